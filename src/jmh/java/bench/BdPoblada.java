@@ -0,0 +1,59 @@
+package bench;
+
+import dao.ClienteDAO;
+import dao.PedidoDAO;
+import db.Db;
+import org.openjdk.jmh.annotations.*;
+import services.ExistenciaIds;
+import services.GeneradorDatos;
+import services.SalidaGenerador;
+
+import java.sql.SQLException;
+import java.util.stream.IntStream;
+
+/**
+ * Estado compartido por los benchmarks de BD: una PostgreSQL local con
+ * datos (variables PG_*, como la aplicación).
+ *
+ * Si la tabla cliente está vacía se rellena una vez con GeneradorDatos
+ * (semilla fija → siempre los mismos datos; tamaño con
+ * -jvmArgsAppend -Dbench.clientes=N, la propiedad se lee en el fork;
+ * 100 000 por defecto). Si ya tiene datos se usan tal cual: para comparar
+ * resultados entre ejecuciones, la BD tiene que ser la misma.
+ */
+@State(Scope.Benchmark)
+public class BdPoblada {
+
+    /** Ids existentes, para elegir filas al azar en cada invocación. */
+    int[] idsClientes;
+    int[] idsPedidos;
+
+    @Setup(Level.Trial)
+    public void preparar() throws Exception {
+        ClienteDAO clientes = new ClienteDAO();
+        if (clientes.count() == 0) {
+            int n = Integer.getInteger("bench.clientes", 100_000);
+            GeneradorDatos.Parametros d = GeneradorDatos.Parametros.porDefecto();
+            GeneradorDatos.generar(new GeneradorDatos.Parametros(d.semilla(), n, Math.max(100, n / 10), n * 5,
+                            d.lineasPorPedido(), d.fraccionConDetalle(), d.zipfProductos(), d.zipfClientes(),
+                            d.desde(), d.hasta(), d.hilos()),
+                    SalidaGenerador.copy(), msg -> System.out.println("[bench] " + msg));
+        }
+        idsClientes = ids(clientes::cargarIds);
+        idsPedidos = ids(new PedidoDAO()::cargarIds);
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        Db.cerrar();
+    }
+
+    private static int[] ids(ExistenciaIds.CargadorIds cargador) throws SQLException {
+        IntStream.Builder b = IntStream.builder();
+        cargador.cargar(b);
+        // Orden fijo: con la misma semilla, la misma secuencia de ids
+        int[] out = b.build().sorted().toArray();
+        if (out.length == 0) throw new IllegalStateException("La BD no tiene filas para el benchmark");
+        return out;
+    }
+}
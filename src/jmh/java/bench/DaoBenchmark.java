@@ -0,0 +1,137 @@
+package bench;
+
+import dao.ClienteDAO;
+import dao.DetallePedidoDAO;
+import db.Db;
+import model.Cliente;
+import model.DetalleCliente;
+import model.DetallePedido;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import services.ClienteDetalle;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Consultas de los DAO contra la BD de BdPoblada, una llamada por
+ * invocación (conexión del pool incluida, como en la aplicación).
+ *
+ * Los ids se eligen al azar entre los existentes con una semilla fija por
+ * hilo: todas las ejecuciones piden la misma secuencia de filas.
+ *
+ * Sin la caché de consultas (CacheConsultas): se mide la ida a la BD.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dlampreas.cacheConsultas.bytes=0"})
+@State(Scope.Thread)
+public class DaoBenchmark {
+
+    private final ClienteDAO clientes = new ClienteDAO();
+    private final DetallePedidoDAO lineas = new DetallePedidoDAO();
+    private SplittableRandom rnd;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        rnd = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public Cliente clienteFindById(BdPoblada bd) throws SQLException {
+        return clientes.findById(bd.idsClientes[rnd.nextInt(bd.idsClientes.length)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public List<Cliente> clienteFindAll(BdPoblada bd) throws SQLException {
+        return clientes.findAll();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Cliente> clienteSearch(BdPoblada bd, Busqueda b) throws SQLException {
+        return clientes.search(b.filtro);
+    }
+
+    @Benchmark
+    public List<DetallePedido> detallePedidoFindByPedidoId(BdPoblada bd) throws SQLException {
+        return lineas.findByPedidoId(bd.idsPedidos[rnd.nextInt(bd.idsPedidos.length)]);
+    }
+
+    /**
+     * Mapeo de filas: recorrer la tabla creando un Cliente por fila frente a
+     * leer solo los ids (misma consulta en streaming, sin objetos). La
+     * diferencia entre los dos es el coste de mapear ResultSet → Cliente.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void mapeoClientes(BdPoblada bd, Blackhole bh) throws SQLException {
+        clientes.recorrerTodos(bh::consume);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 10)
+    public void mapeoSoloIds(BdPoblada bd, Blackhole bh) throws SQLException {
+        clientes.cargarIds(bh::consume);
+    }
+
+    /** Inserción transaccional cliente + detalle (ids propios, se borran al terminar). */
+    @Benchmark
+    public void guardarClienteCompleto(BdPoblada bd, Insercion ins) throws SQLException {
+        int id = Insercion.SIGUIENTE_ID.getAndIncrement();
+        ins.servicio.guardarClienteCompleto(
+                new Cliente(id, "Bench " + id, "bench" + id + "@example.com"),
+                new DetalleCliente(id, "Calle Bench " + id, "600000000", ""));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Busqueda {
+
+        /** Texto de search(): frecuente, poco frecuente y sin resultados. */
+        @Param({"garcía", "núñez", "zzz"})
+        public String filtro;
+    }
+
+    /** Ids para guardarClienteCompleto, muy por encima de los datos de prueba. */
+    @State(Scope.Benchmark)
+    public static class Insercion {
+
+        static final int PRIMER_ID = 1_500_000_000;
+        static final AtomicInteger SIGUIENTE_ID = new AtomicInteger(PRIMER_ID);
+
+        final ClienteDetalle servicio = new ClienteDetalle();
+
+        @Setup(Level.Trial)
+        public void preparar() throws SQLException {
+            // Por si una ejecución anterior se cortó antes del TearDown
+            borrar();
+            SIGUIENTE_ID.set(PRIMER_ID);
+        }
+
+        @TearDown(Level.Trial)
+        public void borrar() throws SQLException {
+            try (Connection con = Db.getConnection();
+                 Statement st = con.createStatement()) {
+                st.executeUpdate("DELETE FROM detalle_cliente WHERE id >= " + PRIMER_ID);
+                st.executeUpdate("DELETE FROM cliente WHERE id >= " + PRIMER_ID);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Punto de entrada de target/benchmarks.jar (perfil Maven "jmh").
+ *
+ * Acepta las mismas opciones que org.openjdk.jmh.Main y añade dos valores
+ * por defecto para poder comparar ejecuciones a lo largo del tiempo:
+ *  - el profiler de GC (asignación por operación), si no se pide ninguno;
+ *  - resultados en JSON en target/jmh-result-FECHA.json, si no se indica -rf/-rff.
+ *
+ * Ejemplos:
+ * <pre>
+ *   java -jar target/benchmarks.jar                      # todo
+ *   java -jar target/benchmarks.jar JsonIOBenchmark -p clientes=10000
+ *   java -jar target/benchmarks.jar DaoBenchmark.cliente -prof stack
+ * </pre>
+ */
+public class EjecutarBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats()) {
+            // Lo que no ejecuta benchmarks lo resuelve JMH tal cual
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder opciones = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty()) {
+            opciones.addProfiler(GCProfiler.class);
+        }
+        if (!cli.getResultFormat().hasValue() && !cli.getResult().hasValue()) {
+            File fichero = new File("target", "jmh-result-"
+                    + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+            fichero.getParentFile().mkdirs();
+            opciones.resultFormat(ResultFormatType.JSON).result(fichero.getPath());
+        }
+
+        new Runner(opciones.build()).run();
+    }
+}
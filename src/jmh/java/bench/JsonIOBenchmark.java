@@ -0,0 +1,115 @@
+package bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import model.*;
+import org.openjdk.jmh.annotations.*;
+import services.JsonIO;
+import services.ModeloJsonModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exportación/importación JSON de AppData a varios tamaños, sin BD, con datos
+ * sintéticos (generar, semilla fija).
+ *
+ * Caminos:
+ *  - "JsonIO": módulo escrito a mano + escritor compacto + lectores reutilizados.
+ *  - "reflexivo": ObjectMapper por defecto con INDENT_OUTPUT, como estaba JsonIO
+ *    (solo se le añade LocalDate, sin lo cual no puede ni escribir un Pedido, y se
+ *    ignoran los campos calculados total/importe, que escribe pero no sabe leer).
+ *
+ * Con -prof gc se ve además cuánta memoria se asigna por operación, que es
+ * lo que más cambia entre versiones del módulo de Jackson.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class JsonIOBenchmark {
+
+    /** Nº de clientes (con sus pedidos y líneas). */
+    @Param({"1000", "10000", "100000"})
+    public int clientes;
+
+    @Param({"JsonIO", "reflexivo"})
+    public String camino;
+
+    private final ObjectMapper reflexivo = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .registerModule(ModeloJsonModule.soloFechas());
+
+    private AppData data;
+    private File escritura;
+    private File lectura;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        data = generar(clientes, 42);
+        File dir = Files.createTempDirectory("jsonio-jmh").toFile();
+        escritura = new File(dir, "escritura.json");
+        lectura = new File(dir, "lectura.json");
+        escribir(lectura);
+    }
+
+    @TearDown(Level.Trial)
+    public void borrar() {
+        escritura.delete();
+        lectura.delete();
+        lectura.getParentFile().delete();
+    }
+
+    @Benchmark
+    public File escribir() throws IOException {
+        escribir(escritura);
+        return escritura;
+    }
+
+    @Benchmark
+    public AppData leer() throws IOException {
+        return camino.equals("JsonIO")
+                ? JsonIO.read(lectura, AppData.class)
+                : reflexivo.readValue(lectura, AppData.class);
+    }
+
+    private void escribir(File fichero) throws IOException {
+        if (camino.equals("JsonIO")) {
+            JsonIO.writeCompact(fichero, data);
+        } else {
+            reflexivo.writeValue(fichero, data);
+        }
+    }
+
+    /** Instantánea sintética: n clientes con detalle, n/10 productos, 2n pedidos, 6n líneas. */
+    static AppData generar(int n, long semilla) {
+        Random r = new Random(semilla);
+        AppData d = new AppData();
+        int productos = Math.max(1, n / 10);
+
+        for (int i = 1; i <= n; i++) {
+            d.getClientes().add(new Cliente(i, "Cliente " + i, "cliente" + i + "@lampreas.es"));
+            d.getDetallesCliente().add(new DetalleCliente(i, "Calle " + r.nextInt(500), "6" + (10000000 + r.nextInt(89999999)), ""));
+        }
+        for (int i = 1; i <= productos; i++) {
+            d.getProductos().add(new Producto(i, "Producto " + i, 1 + r.nextInt(10000) / 100.0));
+        }
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        for (int i = 1; i <= 2 * n; i++) {
+            d.getPedidos().add(new Pedido(i, 1 + r.nextInt(n), base.plusDays(r.nextInt(365))));
+            for (int j = 0; j < 3; j++) {
+                d.getDetallesPedido().add(new DetallePedido(i, 1 + (i * 3 + j) % productos,
+                        1 + r.nextInt(5), 1 + r.nextInt(10000) / 100.0));
+            }
+        }
+        return d;
+    }
+}
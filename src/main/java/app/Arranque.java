@@ -0,0 +1,61 @@
+package app;
+
+import javafx.application.Platform;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Hitos del arranque de la aplicación, en ms desde que arrancó la JVM.
+ *
+ *  - VENTANA: stage.show() ha vuelto.
+ *  - PRIMER_FRAME: primer pulso de JavaFX con la escena ya puesta.
+ *  - PRIMERAS_FILAS: la tabla enseña filas (de la caché en disco o de la BD).
+ *  - INTERACTIVO: ha llegado de la BD la primera página de verdad.
+ *
+ * Propiedades del sistema:
+ *  - lampreas.arranqueRapido=false: sin caché en disco ni conexiones
+ *    precalentadas (para comparar).
+ *  - lampreas.bench.arranque=true: al llegar a INTERACTIVO imprime una línea
+ *    "ARRANQUE {...}" con los hitos y cierra la aplicación (ver bench.ArranqueBench).
+ *
+ * Se usa desde el hilo de JavaFX.
+ */
+final class Arranque {
+
+    static final String VENTANA = "ventana";
+    static final String PRIMER_FRAME = "primer-frame";
+    static final String PRIMERAS_FILAS = "primeras-filas";
+    static final String INTERACTIVO = "interactivo";
+
+    static final boolean RAPIDO = !"false".equals(System.getProperty("lampreas.arranqueRapido"));
+    static final boolean MODO_BENCH = Boolean.getBoolean("lampreas.bench.arranque");
+
+    private static final long INICIO_JVM = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final Map<String, Long> HITOS = new LinkedHashMap<>();
+
+    private Arranque() { }
+
+    /** Apunta el hito la primera vez que se alcanza (las siguientes se ignoran). */
+    static void marcar(String hito) {
+        if (HITOS.putIfAbsent(hito, System.currentTimeMillis() - INICIO_JVM) != null) return;
+
+        if (INTERACTIVO.equals(hito)) {
+            // Las filas de la BD también cuentan como primeras filas si la caché no llegó antes
+            HITOS.putIfAbsent(PRIMERAS_FILAS, HITOS.get(INTERACTIVO));
+            if (MODO_BENCH) {
+                System.out.println("[Arranque] " + HITOS);
+                System.out.println("ARRANQUE " + json());
+                Platform.exit();
+            }
+        }
+    }
+
+    private static String json() {
+        return HITOS.entrySet().stream()
+                .map(e -> "\"" + e.getKey() + "\":" + e.getValue())
+                .collect(Collectors.joining(",", "{\"rapido\":" + RAPIDO + ",", "}"));
+    }
+}
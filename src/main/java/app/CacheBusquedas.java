@@ -0,0 +1,85 @@
+package app;
+
+import model.Cliente;
+
+import java.util.*;
+
+/**
+ * Últimas búsquedas de clientes y sus resultados (LRU pequeño).
+ *
+ * Además del acierto exacto, aprovecha un prefijo: si "ana" se buscó y su
+ * resultado estaba COMPLETO (menos filas que el límite), "ana g" es ese mismo
+ * resultado filtrado, porque todo lo que contiene "ana g" contiene "ana".
+ * Así, escribir letra a letra o borrar con retroceso no va a la BD.
+ *
+ * Mismo criterio que ClienteDAO.search: id, nombre o email contienen el
+ * texto, sin distinguir mayúsculas, ordenados por id.
+ *
+ * Se usa desde el hilo de JavaFX (no es thread-safe).
+ */
+class CacheBusquedas {
+
+    private record Entrada(List<Cliente> clientes, boolean completa) { }
+
+    private final int maxEntradas;
+    private final int limite;
+    private final LinkedHashMap<String, Entrada> entradas;
+
+    /**
+     * @param maxEntradas búsquedas que se recuerdan
+     * @param limite      máximo de filas que devuelve una búsqueda (su LIMIT)
+     */
+    CacheBusquedas(int maxEntradas, int limite) {
+        this.maxEntradas = maxEntradas;
+        this.limite = limite;
+        this.entradas = new LinkedHashMap<>(maxEntradas * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entrada> e) {
+                return size() > CacheBusquedas.this.maxEntradas;
+            }
+        };
+    }
+
+    /** Resultado de la búsqueda si se conoce (exacto o derivable de un prefijo); si no, null. */
+    List<Cliente> buscar(String filtro) {
+        String q = normalizar(filtro);
+
+        Entrada e = entradas.get(q);
+        if (e != null) return e.clientes();
+
+        // Prefijo más largo con resultado completo
+        for (int len = q.length() - 1; len > 0; len--) {
+            Entrada base = entradas.get(q.substring(0, len));
+            if (base == null || !base.completa()) continue;
+
+            List<Cliente> filtrados = new ArrayList<>();
+            for (Cliente c : base.clientes()) {
+                if (contiene(c, q)) filtrados.add(c);
+            }
+            List<Cliente> out = Collections.unmodifiableList(filtrados);
+            entradas.put(q, new Entrada(out, true));
+            return out;
+        }
+        return null;
+    }
+
+    void guardar(String filtro, List<Cliente> clientes) {
+        entradas.put(normalizar(filtro),
+                new Entrada(List.copyOf(clientes), clientes.size() < limite));
+    }
+
+    /** Olvida todo (los datos han cambiado). */
+    void limpiar() {
+        entradas.clear();
+    }
+
+    private static boolean contiene(Cliente c, String q) {
+        return String.valueOf(c.getId()).contains(q)
+                || (c.getNombre() != null && c.getNombre().toLowerCase(Locale.ROOT).contains(q))
+                || (c.getEmail() != null && c.getEmail().toLowerCase(Locale.ROOT).contains(q));
+    }
+
+    private static String normalizar(String s) {
+        return s.trim().toLowerCase(Locale.ROOT);
+    }
+}
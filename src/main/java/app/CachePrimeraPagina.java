@@ -0,0 +1,62 @@
+package app;
+
+import model.Cliente;
+import services.JsonIO;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Copia en disco de la primera página de clientes (y del total), para
+ * enseñar algo en la tabla nada más arrancar, mientras llega la consulta
+ * de verdad. Cuando llega, la tabla aplica solo las diferencias.
+ *
+ * Es solo una ayuda visual: si el fichero falta, está corrupto o es de
+ * otra versión, se ignora y la tabla arranca vacía como siempre.
+ *
+ * Fichero: ~/.lampreas-violeta/primera-pagina.json (o la propiedad
+ * lampreas.cache.dir).
+ */
+class CachePrimeraPagina {
+
+    /** Lo que se guarda: total de clientes y sus primeras filas. */
+    record Contenido(int total, List<Cliente> clientes) { }
+
+    private final File fichero;
+
+    CachePrimeraPagina() {
+        String dir = System.getProperty("lampreas.cache.dir",
+                System.getProperty("user.home") + File.separator + ".lampreas-violeta");
+        this.fichero = new File(dir, "primera-pagina.json");
+    }
+
+    /** Contenido guardado, o null si no hay (o no se puede leer). */
+    Contenido leer() {
+        if (!fichero.isFile()) return null;
+        try {
+            Contenido c = JsonIO.read(fichero, Contenido.class);
+            return c != null && c.clientes() != null ? c : null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("[CachePrimeraPagina] Se ignora " + fichero + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Guarda la página (se escribe a un temporal y se renombra: quien lea a la
+     * vez ve la versión anterior o la nueva, nunca una a medias).
+     */
+    void guardar(int total, List<Cliente> clientes) {
+        File tmp = new File(fichero.getPath() + ".tmp");
+        try {
+            JsonIO.writeCompact(tmp, new Contenido(total, List.copyOf(clientes)));
+            Files.move(tmp.toPath(), fichero.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("[CachePrimeraPagina] No se pudo guardar " + fichero + ": " + e.getMessage());
+        }
+    }
+}
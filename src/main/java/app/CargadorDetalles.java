@@ -0,0 +1,163 @@
+package app;
+
+import dao.DetalleClienteDAO;
+import javafx.application.Platform;
+import model.Cliente;
+import model.DetalleCliente;
+import util.CacheLruInt;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Detalles de cliente cargados bajo demanda, solo para las filas que se ven.
+ *
+ * - Las filas de la tabla piden su detalle con solicitar(id, fila) al pintarse.
+ *   Las peticiones de un mismo pulso se juntan y van en UNA consulta
+ *   (DetalleClienteDAO.findByIds), al terminar el pulso.
+ * - Con cada lote se piden también las PRECARGA filas de antes y de después
+ *   de las pedidas: al hacer scroll poco a poco ya están cargadas.
+ * - La caché es LRU con MAX_ENTRADAS (util.CacheLruInt, sin un Integer por
+ *   entrada): las filas a la vista se consultan en cada repintado, así que
+ *   lo que se sale de la pantalla es lo primero que se descarta. La memoria
+ *   no depende del número de clientes.
+ * - Los clientes sin detalle también se recuerdan, para no volver a pedirlos.
+ *
+ * Se usa desde el hilo de JavaFX (no es thread-safe).
+ */
+class CargadorDetalles {
+
+    private static final int MAX_ENTRADAS = 2_000;
+    private static final int MAX_LOTE = 500;
+    private static final int PRECARGA = 20;
+
+    // Cliente sin detalle en la BD (distinto de "aún no se ha pedido")
+    private static final DetalleCliente SIN_DETALLE = new DetalleCliente();
+
+    private final DetalleClienteDAO dao;
+    private final EjecutorVista ejecutor;
+    private final IntFunction<Cliente> filaCargada;
+    private final Runnable alLlegar;
+    private final Consumer<Throwable> alFallar;
+
+    private final CacheLruInt<DetalleCliente> cache = new CacheLruInt<>(MAX_ENTRADAS);
+
+    private final Set<Integer> pendientes = new LinkedHashSet<>();
+    private final Set<Integer> enCurso = new HashSet<>();
+    private int filaMin = Integer.MAX_VALUE;
+    private int filaMax = -1;
+    private boolean envioProgramado;
+
+    // Se incrementa en limpiar(): las respuestas de antes se descartan
+    private int generacion;
+
+    /**
+     * @param filaCargada fila i de la tabla si ya está en memoria, o null
+     *                    (no debe provocar cargas: se usa para la precarga)
+     * @param alLlegar    se llama cuando llegan detalles nuevos (repintar)
+     */
+    CargadorDetalles(DetalleClienteDAO dao, EjecutorVista ejecutor, IntFunction<Cliente> filaCargada,
+                     Runnable alLlegar, Consumer<Throwable> alFallar) {
+        this.dao = dao;
+        this.ejecutor = ejecutor;
+        this.filaCargada = filaCargada;
+        this.alLlegar = alLlegar;
+        this.alFallar = alFallar;
+    }
+
+    /** Detalle del cliente si ya está cargado y existe; si no, null. */
+    DetalleCliente get(int id) {
+        DetalleCliente d = cache.get(id);
+        return d == SIN_DETALLE ? null : d;
+    }
+
+    /** true si ya se sabe si el cliente tiene detalle (y cuál). */
+    boolean estaCargado(int id) {
+        return cache.containsKey(id);
+    }
+
+    /** Pide el detalle de la fila 'fila' (cliente 'id'), si no está ya. */
+    void solicitar(int id, int fila) {
+        if (cache.get(id) != null) return;   // get() y no containsKey(): cuenta como uso (LRU)
+
+        if (fila >= 0) {
+            filaMin = Math.min(filaMin, fila);
+            filaMax = Math.max(filaMax, fila);
+        }
+        if (enCurso.contains(id) || !pendientes.add(id)) return;
+
+        if (!envioProgramado) {
+            envioProgramado = true;
+            Platform.runLater(this::enviar);
+        }
+    }
+
+    /** Guarda un detalle que ya se conoce (p. ej. recién insertado). */
+    void poner(int id, DetalleCliente d) {
+        cache.put(id, d != null ? d : SIN_DETALLE);
+    }
+
+    /** Olvida todo (los datos han cambiado); lo visible se volverá a pedir. */
+    void limpiar() {
+        generacion++;
+        cache.clear();
+        pendientes.clear();
+        enCurso.clear();
+        filaMin = Integer.MAX_VALUE;
+        filaMax = -1;
+    }
+
+    private void enviar() {
+        envioProgramado = false;
+
+        // Precarga: filas vecinas de las pedidas que ya estén en memoria
+        if (filaMax >= 0) {
+            precargar(filaMin - PRECARGA, filaMin);
+            precargar(filaMax + 1, filaMax + 1 + PRECARGA);
+        }
+        filaMin = Integer.MAX_VALUE;
+        filaMax = -1;
+
+        Iterator<Integer> it = pendientes.iterator();
+        while (it.hasNext()) {
+            int n = Math.min(MAX_LOTE, pendientes.size());
+            int[] ids = new int[n];
+            for (int i = 0; i < n; i++) {
+                ids[i] = it.next();
+                it.remove();
+                enCurso.add(ids[i]);
+            }
+            cargar(ids);
+        }
+    }
+
+    private void precargar(int desde, int hasta) {
+        for (int i = Math.max(0, desde); i < hasta; i++) {
+            Cliente c = filaCargada.apply(i);
+            if (c == null) break;   // fuera de la tabla o página aún sin cargar
+            if (ListaClientesPaginada.esMarcador(c)) continue;
+            int id = c.getId();
+            if (!cache.containsKey(id) && !enCurso.contains(id)) pendientes.add(id);
+        }
+    }
+
+    private void cargar(int[] ids) {
+        int gen = generacion;
+        ejecutor.ejecutar(() -> dao.findByIds(ids), detalles -> {
+            if (gen != generacion) return;
+
+            for (int id : ids) {
+                enCurso.remove(id);
+                cache.put(id, SIN_DETALLE);
+            }
+            for (DetalleCliente d : detalles) cache.put(d.getId(), d);
+            alLlegar.run();
+        }, e -> {
+            if (gen == generacion) {
+                for (int id : ids) enCurso.remove(id);
+            }
+            alFallar.accept(e);
+        });
+    }
+}
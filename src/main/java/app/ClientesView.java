@@ -3,6 +3,8 @@ package app;
 import dao.ClienteDAO;
 import model.Cliente;
 
+import javafx.animation.PauseTransition;
+import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -11,20 +13,19 @@ import javafx.scene.control.*;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
+import javafx.util.Duration;
 
-import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
-import dao.ClienteDAO;
-import model.Cliente;
+import dao.CancelacionConsulta;
 import model.DetalleCliente;
 import services.ClienteDetalle;
+import services.ExistenciaIds;
+import services.IndiceTrigramas;
 import dao.DetalleClienteDAO;
-import model.DetalleCliente;
-
-import java.util.HashMap;
-import java.util.Map;
+import metrics.Metricas;
+import util.DiferenciasPorId;
 
 /**
  * Vista JavaFX para gestionar clientes.
@@ -50,13 +51,40 @@ public class ClientesView {
     private final ClienteDetalle clienteService = new ClienteDetalle();
     private final DetalleClienteDAO detalleClienteDAO = new DetalleClienteDAO();
 
-    // Caché en memoria: idCliente -> detalle
-    private final Map<Integer, DetalleCliente> cacheDetalles = new HashMap<>();
-
-
-    // Tabla y datos
+    // Todo el acceso a BD va por aquí, fuera del hilo de JavaFX
+    private final EjecutorVista ejecutor = new EjecutorVista();
+    private final ProgressIndicator indicadorCarga = new ProgressIndicator();
+
+    // Índice de trigramas para buscar en memoria (se rehace en cada recarga;
+    // es thread-safe, se puede construir desde el hilo de fondo). Guarda todos
+    // los clientes, así que solo se usa hasta MAX_CLIENTES_INDICE: con más,
+    // se busca en la BD.
+    private final IndiceTrigramas indice = new IndiceTrigramas();
+    private boolean indiceListo = false;
+    private static final int MAX_CLIENTES_INDICE = Integer.getInteger("lampreas.indice.maxClientes", 200_000);
+
+    // Máximo de resultados que se muestran en una búsqueda
+    private static final int LIMITE_BUSQUEDA = 500;
+
+    // Búsqueda mientras se escribe: en BD se espera a que se deje de teclear
+    // un momento, y las últimas búsquedas se recuerdan (retroceso = sin BD)
+    private static final Duration ESPERA_TECLEO = Duration.millis(250);
+    private final PauseTransition pausaBusqueda = new PauseTransition(ESPERA_TECLEO);
+    private final CacheBusquedas cacheBusquedas = new CacheBusquedas(32, LIMITE_BUSQUEDA);
+
+    // Tabla y datos:
+    //  - todos: la tabla completa, paginada y cargada según se hace scroll
+    //  - datos: resultados de una búsqueda (acotados a LIMITE_BUSQUEDA)
     private final TableView<Cliente> tabla = new TableView<>();
+    private final ListaClientesPaginada todos =
+            new ListaClientesPaginada(clienteDAO, ejecutor, e -> mostrarError("Error al cargar clientes", e));
     private final ObservableList<Cliente> datos = FXCollections.observableArrayList();
+    private final CachePrimeraPagina cachePrimeraPagina = new CachePrimeraPagina();
+    private final Label lblTotal = new Label();
+
+    // Detalles solo de las filas a la vista (y vecinas), por lotes y con caché acotada
+    private final CargadorDetalles detalles = new CargadorDetalles(detalleClienteDAO, ejecutor,
+            this::filaCargada, tabla::refresh, e -> mostrarError("Error al cargar detalles", e));
 
     // Campos de formulario (Cliente)
     private final TextField txtId = new TextField();
@@ -85,7 +113,30 @@ public class ClientesView {
         configurarTabla();
         configurarFormulario();
         configurarEventos();
-        recargarDatos(); // al iniciar la vista cargamos los clientes
+    }
+
+    /**
+     * Empieza a cargar datos (todo en segundo plano). Se llama después de
+     * mostrar la ventana, para que el primer frame no espere a la BD.
+     *
+     * En arranque rápido, mientras llega la primera página de la BD se
+     * enseña la que se guardó en disco la última vez.
+     */
+    public void iniciar() {
+        recargarDatos();
+
+        if (Arranque.RAPIDO) {
+            ejecutor.ejecutar(cachePrimeraPagina::leer, contenido -> {
+                if (contenido != null && todos.sembrar(contenido.total(), contenido.clientes())) {
+                    Arranque.marcar(Arranque.PRIMERAS_FILAS);
+                }
+            }, this::mostrarError);
+        }
+
+        // Filtro de ids existentes: evita el findById al guardar un ID nuevo
+        if (!ExistenciaIds.CLIENTES.estaCebado()) {
+            ejecutor.ejecutar(ExistenciaIds.CLIENTES::cebarSinError, ok -> { }, this::mostrarError);
+        }
     }
 
     public Parent getRoot() {
@@ -98,8 +149,9 @@ public class ClientesView {
 
     private void configurarTabla() {
         TableColumn<Cliente, Number> colId = new TableColumn<>("ID");
+        // Las filas aún no cargadas (marcador) no tienen id
         colId.setCellValueFactory(c ->
-                new javafx.beans.property.SimpleIntegerProperty(c.getValue().getId()));
+                new javafx.beans.property.SimpleObjectProperty<>(c.getValue().getId()));
 
         TableColumn<Cliente, String> colNombre = new TableColumn<>("Nombre");
         colNombre.setCellValueFactory(c ->
@@ -112,28 +164,57 @@ public class ClientesView {
         // ===== Columnas “placeholder” para DetalleCliente =====
         TableColumn<Cliente, String> colDireccion = new TableColumn<>("Dirección");
         colDireccion.setCellValueFactory(c -> {
-            DetalleCliente d = cacheDetalles.get(c.getValue().getId());
+            DetalleCliente d = detalleDe(c.getValue());
             String valor = (d != null) ? d.getDireccion() : "";
             return new javafx.beans.property.SimpleStringProperty(valor);
         });
 
         TableColumn<Cliente, String> colTelefono = new TableColumn<>("Teléfono");
         colTelefono.setCellValueFactory(c -> {
-            DetalleCliente d = cacheDetalles.get(c.getValue().getId());
+            DetalleCliente d = detalleDe(c.getValue());
             String valor = (d != null) ? d.getTelefono() : "";
             return new javafx.beans.property.SimpleStringProperty(valor);
         });
 
         TableColumn<Cliente, String> colNotas = new TableColumn<>("Notas");
         colNotas.setCellValueFactory(c -> {
-            DetalleCliente d = cacheDetalles.get(c.getValue().getId());
+            DetalleCliente d = detalleDe(c.getValue());
             String valor = (d != null) ? d.getNotas() : "";
             return new javafx.beans.property.SimpleStringProperty(valor);
         });
 
         tabla.getColumns().addAll(colId, colNombre, colEmail,
                 colDireccion, colTelefono, colNotas);
-        tabla.setItems(datos);
+
+        // Cada fila que se pinta pide su detalle (si no está ya en la caché)
+        tabla.setRowFactory(tv -> new TableRow<>() {
+            @Override
+            protected void updateItem(Cliente c, boolean vacia) {
+                super.updateItem(c, vacia);
+                if (!vacia && !ListaClientesPaginada.esMarcador(c)) {
+                    detalles.solicitar(c.getId(), getIndex());
+                }
+            }
+        });
+        tabla.setItems(todos);
+
+        // Cada vez que llega la primera página de la BD se guarda en disco
+        // (para el próximo arranque). Se escribe en segundo plano.
+        todos.setAlLlegarPrimeraPagina(filas -> {
+            Arranque.marcar(Arranque.INTERACTIVO);
+            if (!Arranque.RAPIDO) return;
+            int total = todos.size();
+            ejecutor.ejecutarUltima("guardar-primera-pagina", () -> {
+                cachePrimeraPagina.guardar(total, filas);
+                return null;
+            }, ok -> { }, this::mostrarError);
+        });
+
+        Label placeholder = new Label();
+        placeholder.textProperty().bind(Bindings.when(ejecutor.ocupadoProperty())
+                .then("Cargando clientes…")
+                .otherwise("No hay clientes"));
+        tabla.setPlaceholder(placeholder);
 
         root.setCenter(tabla);
     }
@@ -172,9 +253,16 @@ public class ClientesView {
         HBox botonesCrud = new HBox(10, btnNuevo, btnGuardar, btnBorrar, btnRecargar);
         botonesCrud.setPadding(new Insets(10, 0, 0, 0));
 
+        // Indicador de carga: visible mientras haya consultas en marcha
+        indicadorCarga.setPrefSize(20, 20);
+        indicadorCarga.visibleProperty().bind(ejecutor.ocupadoProperty());
+
+        // Total real de clientes (aunque solo haya unas páginas en memoria)
+        lblTotal.textProperty().bind(todos.totalProperty().asString("%,d clientes"));
+
         // Zona de búsqueda
         HBox zonaBusqueda = new HBox(10,
-                new Label("Buscar:"), txtBuscar, btnBuscar, btnLimpiarBusqueda);
+                new Label("Buscar:"), txtBuscar, btnBuscar, btnLimpiarBusqueda, indicadorCarga, lblTotal);
         zonaBusqueda.setPadding(new Insets(10, 0, 10, 0));
 
         BorderPane bottom = new BorderPane();
@@ -188,20 +276,15 @@ public class ClientesView {
     private void configurarEventos() {
         // Cuando seleccionamos una fila en la tabla, pasamos los datos al formulario
         tabla.getSelectionModel().selectedItemProperty().addListener((obs, oldSel, newSel) -> {
-            if (newSel != null) {
+            if (!ListaClientesPaginada.esMarcador(newSel)) {
                 // Cliente
                 txtId.setText(String.valueOf(newSel.getId()));
                 txtNombre.setText(newSel.getNombre());
                 txtEmail.setText(newSel.getEmail());
                 txtId.setDisable(true); // al editar, de momento, no dejamos cambiar el ID
 
-                // DetalleCliente (cuando exista DetalleClienteDAO se cargará desde BD)
-                // TODO: cuando implementéis DetalleClienteDAO, aquí:
-                //   - detalleDAO.findById(newSel.getId())
-                //   - rellenar txtDireccion, txtTelefono, txtNotas con sus valores
-                txtDireccion.clear();
-                txtTelefono.clear();
-                txtNotas.clear();
+                // DetalleCliente: de la caché si la fila ya lo tiene; si no, de la BD
+                mostrarDetalleSeleccionado(newSel.getId());
             }
         });
 
@@ -216,11 +299,24 @@ public class ClientesView {
             recargarDatos();
         });
 
-        btnBuscar.setOnAction(e -> buscarClientesEnBBDD());
+        // Con el índice cargado se busca en memoria; si no, en la BD
+        btnBuscar.setOnAction(e -> buscar());
+        txtBuscar.setOnAction(e -> buscar());
+
+        // Búsqueda mientras se escribe. En memoria es inmediata; contra la BD
+        // se espera ESPERA_TECLEO desde la última tecla (cada tecla reinicia la espera)
+        pausaBusqueda.setOnFinished(e -> buscar());
+        txtBuscar.textProperty().addListener((obs, antes, ahora) -> {
+            if (indiceListo || ahora.isBlank()) {
+                buscar();
+            } else {
+                pausaBusqueda.playFromStart();
+            }
+        });
 
         btnLimpiarBusqueda.setOnAction(e -> {
             txtBuscar.clear();
-            recargarDatos();
+            mostrarTodos();
         });
     }
 
@@ -229,61 +325,132 @@ public class ClientesView {
        ========================================================= */
 
     /**
-     * Carga todos los clientes desde la BD usando ClienteDAO.findAll()
+     * Recarga la tabla y, en segundo plano, el índice de búsqueda.
+     *
+     * - La tabla (ListaClientesPaginada) solo vuelve a pedir el total y las
+     *   páginas que están a la vista: no depende del número de clientes.
+     * - Los detalles no se leen enteros: se olvidan y las filas a la vista
+     *   los vuelven a pedir (CargadorDetalles).
+     * - El índice se prepara fuera del hilo de JavaFX, leyendo la tabla en
+     *   streaming (recorrerTodos). Si hay más de MAX_CLIENTES_INDICE clientes
+     *   no se prepara (se vacía) y las búsquedas van a la BD. Si se pide otra
+     *   recarga mientras hay una en marcha, se hace UNA más al terminar (no
+     *   una por cada clic).
      */
     private void recargarDatos() {
-        try {
-            // 1) Cargar todos los clientes
-            List<Cliente> clientes = clienteDAO.findAll();
+        cacheBusquedas.limpiar();
+        detalles.limpiar();
+        todos.refrescar();
+        if (txtBuscar.getText().isBlank()) mostrarTodos();
+        tabla.refresh();
+
+        ejecutor.ejecutarAgrupando("recarga", () -> {
+            // Todos los clientes, solo para el índice de búsqueda (la tabla va por páginas)
+            long t0 = System.nanoTime();
+            if (clienteDAO.count() > MAX_CLIENTES_INDICE) {
+                indice.cargar(List.of());
+                return false;
+            }
+            // La tabla puede haber crecido desde count(): pasado el máximo no se guarda nada más
+            List<Cliente> clientes = new ArrayList<>();
+            boolean[] demasiados = {false};
+            clienteDAO.recorrerTodos(c -> {
+                if (clientes.size() < MAX_CLIENTES_INDICE) clientes.add(c);
+                else demasiados[0] = true;
+            });
+            indice.cargar(demasiados[0] ? List.of() : clientes);
+            Metricas.registrar("ClientesView.recarga", System.nanoTime() - t0, clientes.size());
+            return !demasiados[0];
+        }, conIndice -> {
+            indiceListo = conIndice;
+
+            // Si hay un filtro escrito, volver a aplicarlo sobre los datos nuevos
+            if (!txtBuscar.getText().isBlank()) buscar();
+        }, e -> mostrarError("Error al recargar datos", e));
+    }
 
-            // 2) Cargar todos los detalles
-            List<DetalleCliente> detalles = detalleClienteDAO.findAll();
+    /** Vuelve a la tabla completa (paginada). */
+    private void mostrarTodos() {
+        ejecutor.cancelar("buscar");
+        tabla.setItems(todos);
+    }
 
-            // 3) Rellenar la caché id -> detalle
-            cacheDetalles.clear();
-            for (DetalleCliente d : detalles) {
-                cacheDetalles.put(d.getId(), d);
-            }
+    /**
+     * Resultados de búsqueda en la tabla. Si ya se muestran resultados, solo
+     * se aplican las diferencias (filas que entran, salen o cambian): la
+     * tabla repinta eso y conserva scroll y selección.
+     */
+    private void mostrarResultados(List<Cliente> resultados) {
+        if (tabla.getItems() == datos) {
+            DiferenciasPorId.aplicar(datos, resultados, Cliente::getId, ListaClientesPaginada::mismoCliente);
+        } else {
+            datos.setAll(resultados);
+            tabla.setItems(datos);
+        }
+    }
 
-            // 4) Refrescar la tabla  👈 AHORA SÍ
-            datos.setAll(clientes);
+    private DetalleCliente detalleDe(Cliente c) {
+        return c.getId() == null ? null : detalles.get(c.getId());
+    }
 
-        } catch (SQLException e) {
-            mostrarError("Error al recargar datos", e);
+    /** Fila i de la tabla si ya está en memoria (sin provocar cargas), o null. */
+    private Cliente filaCargada(int i) {
+        List<Cliente> items = tabla.getItems();
+        if (items == todos) return todos.getSiCargada(i);
+        return i >= 0 && i < items.size() ? items.get(i) : null;
+    }
+
+    /** Rellena los campos de detalle del cliente seleccionado. */
+    private void mostrarDetalleSeleccionado(int id) {
+        if (detalles.estaCargado(id)) {
+            ejecutor.cancelar("detalle-seleccion");
+            rellenarDetalle(detalles.get(id));
+            return;
         }
+
+        txtDireccion.clear();
+        txtTelefono.clear();
+        txtNotas.clear();
+        ejecutor.ejecutarUltima("detalle-seleccion", () -> detalleClienteDAO.findById(id), d -> {
+            detalles.poner(id, d);
+            Cliente sel = tabla.getSelectionModel().getSelectedItem();
+            if (!ListaClientesPaginada.esMarcador(sel) && sel.getId() == id) rellenarDetalle(d);
+        }, e -> mostrarError("Error al cargar el detalle", e));
+    }
+
+    private void rellenarDetalle(DetalleCliente d) {
+        txtDireccion.setText(d != null ? d.getDireccion() : "");
+        txtTelefono.setText(d != null ? d.getTelefono() : "");
+        txtNotas.setText(d != null ? d.getNotas() : "");
     }
 
 
+    private void buscar() {
+        pausaBusqueda.stop();
+        if (indiceListo) {
+            buscarClientesEnMemoria();
+        } else {
+            buscarClientesEnBBDD();
+        }
+    }
+
     /**
-     * Búsqueda de momento hecha EN MEMORIA.
+     * Búsqueda EN MEMORIA con el índice de trigramas.
      *
-     * Se carga toda la lista (findAll) y se filtra con streams.
-     * Más adelante se puede cambiar para que use ClienteDAO.search()
-     * cuando lo implementéis.
+     * Mismo criterio que antes (id, nombre o email contienen el texto, sin
+     * distinguir mayúsculas), pero sin findAll ni recorrer toda la lista:
+     * el índice devuelve los LIMITE_BUSQUEDA más relevantes.
      */
     private void buscarClientesEnMemoria() {
         String filtro = txtBuscar.getText().trim();
         if (filtro.isEmpty()) {
-            recargarDatos();
+            mostrarTodos();
             return;
         }
 
-        try {
-            List<Cliente> lista = clienteDAO.findAll();
-            String f = filtro.toLowerCase();
-
-            List<Cliente> filtrados = lista.stream()
-                    .filter(c ->
-                            String.valueOf(c.getId()).contains(f) ||
-                                    c.getNombre().toLowerCase().contains(f) ||
-                                    c.getEmail().toLowerCase().contains(f)
-                    )
-                    .collect(Collectors.toList());
-
-            datos.setAll(filtrados);
-        } catch (SQLException e) {
-            mostrarError("Error al buscar clientes", e);
-        }
+        // Una búsqueda en BD aún en marcha ya no interesa
+        ejecutor.cancelar("buscar");
+        mostrarResultados(indice.buscar(filtro, LIMITE_BUSQUEDA));
     }
 
 
@@ -291,18 +458,29 @@ public class ClientesView {
         String filtro = txtBuscar.getText().trim();
 
         if ((filtro.isEmpty())){
-            recargarDatos();
+            mostrarTodos();
             return;
         }
 
-        try {
-            List<Cliente> lista = clienteDAO.search(filtro);
-            datos.setAll(lista);
-
-        } catch (SQLException e){
-            mostrarError("Error al buscar", e);
+        // Repetida, o refinando una anterior completa: sin ir a la BD
+        List<Cliente> enCache = cacheBusquedas.buscar(filtro);
+        if (enCache != null) {
+            ejecutor.cancelar("buscar");
+            mostrarResultados(enCache);
+            return;
         }
 
+        // Si se busca otra cosa antes de que responda, esta se cancela también
+        // en el servidor (Statement.cancel), no solo se ignora su resultado
+        CancelacionConsulta cancelacion = new CancelacionConsulta();
+        ejecutor.ejecutarUltima("buscar",
+                () -> clienteDAO.search(filtro, LIMITE_BUSQUEDA, cancelacion),
+                cancelacion::cancelar,
+                lista -> {
+                    cacheBusquedas.guardar(filtro, lista);
+                    mostrarResultados(lista);
+                },
+                e -> mostrarError("Error al buscar", e));
     }
 
     private void limpiarFormulario() {
@@ -360,13 +538,33 @@ public class ClientesView {
                 txtNotas.getText().trim()
         );
 
-        try {
-            // Comprobamos en BD si ese ID ya existe
-            Cliente existente = clienteDAO.findById(id);
-
-            if (existente == null) {
-                // 👉 NO existe → INSERT de cliente + detalle en UNA transacción
-                clienteService.guardarClienteCompleto(c, d);
+        // Mientras se guarda no se puede volver a pulsar Guardar
+        btnGuardar.setDisable(true);
+
+        ejecutor.ejecutar(() -> {
+            // Comprobamos si ese ID ya existe. Si el filtro dice "seguro que no",
+            // nos ahorramos la consulta; si dice "puede que sí", preguntamos a la BD.
+            Cliente existente = ExistenciaIds.CLIENTES.quizaExiste(id)
+                    ? clienteDAO.findById(id)
+                    : null;
+
+            if (existente != null) return false;
+
+            // 👉 NO existe → INSERT de cliente + detalle en UNA transacción
+            clienteService.guardarClienteCompleto(c, d);
+            return true;
+        }, insertado -> {
+            btnGuardar.setDisable(false);
+
+            if (insertado) {
+                // Sin recargar todo: caché, total y páginas a la vista
+                detalles.poner(id, d);
+                cacheBusquedas.limpiar();
+                todos.refrescar();
+                if (indiceListo) indice.agregar(c);
+                // Si se muestran resultados, se repite la búsqueda: el nuevo
+                // entra solo si cumple el filtro (y donde le toque)
+                if (tabla.getItems() == datos) buscar();
 
                 mostrarInfo("Insertado",
                         "Cliente y detalle creados correctamente.");
@@ -377,12 +575,11 @@ public class ClientesView {
                                 "Más adelante aquí haremos UPDATE desde el Service.");
             }
 
-            recargarDatos();
             limpiarFormulario();
-
-        } catch (SQLException e) {
+        }, e -> {
+            btnGuardar.setDisable(false);
             mostrarError("Error al guardar cliente y detalle", e);
-        }
+        });
     }
 
 
@@ -442,7 +639,13 @@ public class ClientesView {
        DIÁLOGOS AUXILIARES
        ========================================================= */
 
-    private void mostrarError(String titulo, Exception e) {
+    private void mostrarError(Throwable e) {
+        mostrarError("Error", e);
+    }
+
+    private void mostrarError(String titulo, Throwable e) {
+        // Contados también aquí: son los errores que llegan a verse (JMX y log de métricas)
+        Metricas.operacion("ClientesView.error").registrarError();
         e.printStackTrace();
         Alert alert = new Alert(Alert.AlertType.ERROR);
         alert.setTitle("Error");
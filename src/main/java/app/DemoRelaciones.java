@@ -2,7 +2,12 @@ package app;
 
 import dao.*;
 import model.*;
+import services.ImportacionReanudable;
 import services.JsonIO;
+import services.ManifiestoShards;
+import services.MotorInformes;
+import services.NdjsonShards;
+import services.ValidadorSnapshot;
 
 import java.io.File;
 import java.io.IOException;
@@ -15,6 +20,7 @@ import java.util.Scanner;
  * Demo por consola:
  * - Permite probar rápidamente los DAO (listar, insertar, buscar por id)
  * - Exporta/importa JSON con una instantánea de todas las entidades
+ * - Con argumentos no muestra el menú: modo por lotes (ver ModoLotes)
  *
  * Ideal para comprobar que:
  * - conexión JDBC funciona
@@ -24,7 +30,10 @@ import java.util.Scanner;
 public class DemoRelaciones {
 
     // Ruta del JSON de exportación/importación
-    private static final File JSON_FILE = new File("data", "lampreasvioleta_export.json");
+    static final File JSON_FILE = new File("data", "lampreasvioleta_export.json");
+
+    // Carpeta de la exportación NDJSON por shards
+    static final File NDJSON_DIR = new File("data", "ndjson");
 
     // DAOs
     private static final ClienteDAO clienteDAO = new ClienteDAO();
@@ -35,6 +44,11 @@ public class DemoRelaciones {
     private static final DetallePedidoDAO detallePedidoDAO = new DetallePedidoDAO();
 
     public static void main(String[] args) {
+        // Con argumentos: modo por lotes (sin menú), para scripts y tareas programadas
+        if (args.length > 0) {
+            System.exit(ModoLotes.ejecutar(args));
+        }
+
         try (Scanner sc = new Scanner(System.in)) {
 
             while (true) {
@@ -71,6 +85,11 @@ public class DemoRelaciones {
                         // ---------------- JSON EXPORT / IMPORT ------------
                         case "20" -> exportarJson();
                         case "21" -> importarJson();
+                        case "22" -> exportarNdjson();
+                        case "23" -> importarNdjson();
+
+                        // -------------------- INFORMES -------------------
+                        case "30" -> informeVentas();
 
                         case "0" -> {
                             System.out.println("FIN.");
@@ -123,6 +142,11 @@ public class DemoRelaciones {
         System.out.println("JSON");
         System.out.println("  20 - Exportar BD a JSON");
         System.out.println("  21 - Importar JSON a BD (INSERT en orden FK)");
+        System.out.println("  22 - Exportar BD a NDJSON por shards");
+        System.out.println("  23 - Importar NDJSON por shards (en paralelo)");
+        System.out.println();
+        System.out.println("INFORMES (sin tocar la BD)");
+        System.out.println("  30 - Informe de ventas desde el JSON exportado");
         System.out.println();
         System.out.println("  0  - Salir");
         System.out.println("=========================================");
@@ -299,6 +323,15 @@ public class DemoRelaciones {
      * Lee todas las tablas y las serializa.
      */
     private static void exportarJson() throws SQLException, IOException {
+        AppData data = leerInstantanea();
+
+        JsonIO.write(JSON_FILE, data);
+
+        System.out.println("Exportado JSON en: " + JSON_FILE.getAbsolutePath());
+    }
+
+    /** Lee todas las tablas en una instantánea AppData. */
+    static AppData leerInstantanea() throws SQLException {
         AppData data = new AppData();
 
         data.setClientes(clienteDAO.findAll());
@@ -307,22 +340,24 @@ public class DemoRelaciones {
         data.setPedidos(pedidoDAO.findAll());
         data.setDetallesPedido(detallePedidoDAO.findAll());
 
-        JsonIO.write(JSON_FILE, data);
-
-        System.out.println("Exportado JSON en: " + JSON_FILE.getAbsolutePath());
+        return data;
     }
 
     /**
      * Importa JSON a la BD haciendo INSERT en orden correcto por FKs:
      *  1) cliente
-     *  2) detalle_cliente
-     *  3) producto
+     *  2) producto
+     *  3) detalle_cliente
      *  4) pedido
      *  5) detalle_pedido
      *
      * IMPORTANTE:
-     * - No borra lo existente (si ya hay IDs repetidos, fallará por PK).
-     * - En clase podéis añadir luego una opción "vaciar tablas" o "upsert".
+     * - Antes de insertar se valida el JSON en memoria (ValidadorSnapshot):
+     *   PKs duplicadas o FKs rotas cancelan la importación sin tocar la BD.
+     * - No borra lo existente (si ya hay IDs repetidos en la BD, fallará por PK).
+     * - Confirma por bloques y guarda el progreso (ImportacionReanudable):
+     *   si falla a mitad, lo ya importado se queda y al repetir la opción
+     *   se continúa desde el último bloque confirmado.
      */
     private static void importarJson() throws IOException, SQLException {
         if (!JSON_FILE.exists()) {
@@ -332,33 +367,73 @@ public class DemoRelaciones {
 
         AppData data = JsonIO.read(JSON_FILE, AppData.class);
 
-        // 1) Clientes
-        for (Cliente c : data.getClientes()) {
-            // Podrías comprobar si existe para evitar error, pero lo dejamos simple:
-            // si existe, fallará por PK/unique -> perfecto para explicar integridad.
-            clienteDAO.insert(c);
+        // Antes de insertar nada: duplicados y FKs rotas se detectan en memoria
+        ValidadorSnapshot.Informe informe = ValidadorSnapshot.validar(data);
+        informe.imprimir(System.out, 50);
+        if (!informe.esValido()) {
+            System.out.println("Importación cancelada: corrige el JSON y vuelve a intentarlo.");
+            return;
         }
 
-        // 2) Detalles cliente (requieren cliente previo)
-        for (DetalleCliente d : data.getDetallesCliente()) {
-            detalleClienteDAO.insert(d);
-        }
+        ImportacionReanudable importacion =
+                new ImportacionReanudable(JSON_FILE, ImportacionReanudable.TAM_BLOQUE_POR_DEFECTO);
+        long filas = importacion.importar(data, msg -> System.out.println("  " + msg));
+
+        System.out.println("Importación finalizada: " + filas + " filas insertadas.");
+    }
 
-        // 3) Productos
-        for (Producto p : data.getProductos()) {
-            productoDAO.insert(p);
+    /**
+     * Exporta la BD a NDJSON: un conjunto de ficheros por tabla,
+     * cada uno de tamaño acotado, más un manifest.json.
+     */
+    private static void exportarNdjson() throws SQLException, IOException {
+        ManifiestoShards m = NdjsonShards.exportar(leerInstantanea(), NDJSON_DIR,
+                NdjsonShards.MAX_BYTES_POR_DEFECTO);
+
+        for (ManifiestoShards.TablaShards t : m.getTablas()) {
+            System.out.println("  " + t.getTabla() + ": " + t.getFilas()
+                    + " filas en " + t.getShards().size() + " shard(s)");
         }
+        System.out.println("Exportado NDJSON en: " + NDJSON_DIR.getAbsolutePath());
+    }
 
-        // 4) Pedidos (requieren cliente previo)
-        for (Pedido pe : data.getPedidos()) {
-            pedidoDAO.insert(pe);
+    /**
+     * Importa una exportación NDJSON cargando los shards en paralelo
+     * (una conexión por hilo), nivel a nivel según las FKs.
+     */
+    private static void importarNdjson() throws IOException, SQLException {
+        if (!new File(NDJSON_DIR, NdjsonShards.MANIFIESTO).exists()) {
+            System.out.println("No existe la exportación NDJSON: " + NDJSON_DIR.getAbsolutePath());
+            return;
         }
 
-        // 5) Detalles pedido (requieren pedido y producto previos)
-        for (DetallePedido dp : data.getDetallesPedido()) {
-            detallePedidoDAO.insert(dp);
+        int hilos = Runtime.getRuntime().availableProcessors();
+        long filas = NdjsonShards.importar(NDJSON_DIR, hilos);
+
+        System.out.println("Importación NDJSON finalizada: " + filas + " filas con " + hilos + " hilos.");
+    }
+
+    // =========================================================
+    // INFORMES
+    // =========================================================
+
+    /**
+     * Informe de ventas calculado sobre el JSON exportado (opción 20),
+     * en paralelo y sin consultar la BD.
+     */
+    private static void informeVentas() throws IOException {
+        if (!JSON_FILE.exists()) {
+            System.out.println("No existe el JSON: " + JSON_FILE.getAbsolutePath());
+            return;
         }
 
-        System.out.println("Importación finalizada.");
+        AppData data = JsonIO.read(JSON_FILE, AppData.class);
+
+        long t0 = System.nanoTime();
+        MotorInformes.Informe informe = MotorInformes.generar(data, 10);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        informe.imprimir(System.out);
+        System.out.println("Informe calculado en " + ms + " ms.");
     }
 }
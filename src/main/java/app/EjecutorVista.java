@@ -0,0 +1,156 @@
+package app;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.concurrent.Task;
+import util.Hilos;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Ejecuta el trabajo de BD de una vista fuera del hilo de JavaFX.
+ *
+ * Cada trabajo va en un javafx.concurrent.Task; sus callbacks (alTerminar,
+ * alFallar) llegan ya en el hilo de JavaFX, así que pueden tocar controles.
+ *
+ * Tres formas de lanzar:
+ *  - ejecutar(...): sin más.
+ *  - ejecutarUltima(clave, ...): cancela la anterior con la misma clave;
+ *    su resultado se descarta (p. ej. una búsqueda que ya no interesa).
+ *    Con 'alCancelar' se puede además abortar la consulta en la BD
+ *    (interrumpir el hilo no detiene una consulta JDBC).
+ *  - ejecutarAgrupando(clave, ...): si ya hay una en curso con esa clave, no
+ *    lanza otra: la apunta para cuando acabe, y si llegan varias mientras
+ *    tanto solo se ejecuta la última (p. ej. pulsar "Recargar" cinco veces).
+ *
+ * Hilos: virtuales si la JVM los tiene (Java 21+), y si no un pool de hilos
+ * daemon que crece según haga falta. Los trabajos pasan casi todo el tiempo
+ * esperando a la BD, así que no compensa limitar su número.
+ *
+ * IMPORTANTE: los métodos de esta clase se llaman desde el hilo de JavaFX.
+ */
+public final class EjecutorVista {
+
+    private static final ExecutorService HILOS = crearHilos();
+
+    private final Map<String, Task<?>> enCurso = new HashMap<>();
+    private final Map<String, Runnable> pendientes = new HashMap<>();
+
+    private final SimpleIntegerProperty activas = new SimpleIntegerProperty(0);
+    private final ReadOnlyBooleanWrapper ocupado = new ReadOnlyBooleanWrapper(false);
+
+    public EjecutorVista() {
+        ocupado.bind(Bindings.greaterThan(activas, 0));
+    }
+
+    /** true mientras haya algún trabajo en marcha (para indicadores de carga). */
+    public ReadOnlyBooleanProperty ocupadoProperty() {
+        return ocupado.getReadOnlyProperty();
+    }
+
+    public <T> Task<T> ejecutar(Callable<T> trabajo, Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        return lanzar(null, trabajo, null, alTerminar, alFallar);
+    }
+
+    /** Lanza el trabajo cancelando el anterior con la misma clave. */
+    public <T> Task<T> ejecutarUltima(String clave, Callable<T> trabajo,
+                                      Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        return ejecutarUltima(clave, trabajo, null, alTerminar, alFallar);
+    }
+
+    /**
+     * Como ejecutarUltima, y si esta tarea se cancela se ejecuta 'alCancelar'
+     * (en un hilo de fondo: p. ej. Statement.cancel, que habla con el servidor).
+     */
+    public <T> Task<T> ejecutarUltima(String clave, Callable<T> trabajo, Runnable alCancelar,
+                                      Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        cancelar(clave);
+        return lanzar(clave, trabajo, alCancelar, alTerminar, alFallar);
+    }
+
+    /** Lanza el trabajo, o lo deja para cuando acabe el que ya hay con esta clave. */
+    public <T> void ejecutarAgrupando(String clave, Callable<T> trabajo,
+                                      Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        if (enCurso.containsKey(clave)) {
+            // Sustituye a cualquier otro pendiente: solo cuenta el último
+            pendientes.put(clave, () -> ejecutarAgrupando(clave, trabajo, alTerminar, alFallar));
+            return;
+        }
+        lanzar(clave, trabajo, null, alTerminar, alFallar);
+    }
+
+    /** Cancela el trabajo en curso con esta clave (y el pendiente, si lo hay). */
+    public void cancelar(String clave) {
+        pendientes.remove(clave);
+        Task<?> t = enCurso.get(clave);
+        if (t != null) t.cancel(true);
+    }
+
+    private <T> Task<T> lanzar(String clave, Callable<T> trabajo, Runnable alCancelar,
+                               Consumer<T> alTerminar, Consumer<Throwable> alFallar) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return trabajo.call();
+            }
+
+            @Override
+            public boolean cancel(boolean interrumpir) {
+                boolean cancelada = super.cancel(interrumpir);
+                if (cancelada && alCancelar != null) HILOS.execute(alCancelar);
+                return cancelada;
+            }
+        };
+
+        if (clave != null) enCurso.put(clave, task);
+        activas.set(activas.get() + 1);
+
+        // Una tarea puede acabar justo antes de que la cancelen: si ya la ha
+        // sustituido otra con su clave, su resultado se descarta igualmente
+        task.setOnSucceeded(e -> {
+            if (terminar(clave, task)) alTerminar.accept(task.getValue());
+        });
+        task.setOnFailed(e -> {
+            if (terminar(clave, task)) alFallar.accept(task.getException());
+        });
+        task.setOnCancelled(e -> terminar(clave, task));
+
+        HILOS.execute(task);
+        return task;
+    }
+
+    /** Descuenta la tarea; devuelve false si ya la había sustituido otra con su clave. */
+    private boolean terminar(String clave, Task<?> task) {
+        activas.set(activas.get() - 1);
+        if (clave == null) return true;
+        if (enCurso.get(clave) != task) return false;
+
+        enCurso.remove(clave);
+        Runnable siguiente = pendientes.remove(clave);
+        if (siguiente != null) siguiente.run();
+        return true;
+    }
+
+    /** Para los hilos al cerrar la aplicación. */
+    public static void cerrar() {
+        HILOS.shutdownNow();
+    }
+
+    /** Hilos virtuales si los hay (util.Hilos); si no, pool de hilos daemon. */
+    private static ExecutorService crearHilos() {
+        AtomicInteger n = new AtomicInteger();
+        return Hilos.unoPorTarea(() -> Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "vista-bd-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+}
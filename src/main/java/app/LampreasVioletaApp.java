@@ -1,17 +1,78 @@
 package app;
 
+import dao.ClienteDAO;
+import db.Db;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
+import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
+import metrics.PublicacionMetricas;
+
+import java.sql.SQLException;
 
 public class LampreasVioletaApp extends Application {
+
+    // Conexiones que se dejan abiertas al arrancar (tabla, búsqueda, detalles)
+    private static final int CONEXIONES_INICIALES = 3;
+
+    @Override
+    public void init() {
+        // JMX y log periódico de métricas (ver metrics.PublicacionMetricas)
+        PublicacionMetricas.iniciar();
+
+        // Se ejecuta antes de que exista la ventana: mientras JavaFX arranca,
+        // se abren conexiones y se preparan las consultas de la primera pantalla
+        if (!Arranque.RAPIDO) return;
+
+        Thread t = new Thread(() -> {
+            try {
+                Db.calentar(CONEXIONES_INICIALES, "SELECT 1");
+                new ClienteDAO().calentar();
+            } catch (SQLException e) {
+                // No es grave: las consultas abrirán su conexión al necesitarla
+                System.err.println("[Arranque] No se pudo calentar la BD: " + e.getMessage());
+            }
+        }, "calentar-bd");
+        t.setDaemon(true);
+        t.start();
+    }
+
     @Override
     public void start(Stage stage) {
         ClientesView vistaClientes = new ClientesView();
-        Scene scene = new Scene(vistaClientes.getRoot(), 900, 600);
+        StackPane raiz = new StackPane(vistaClientes.getRoot());
+        Scene scene = new Scene(raiz, 900, 600);
+
+        // F12: panel de rendimiento (BD, mapeo, pulso de JavaFX, memoria)
+        PanelRendimiento panel = new PanelRendimiento(scene);
+        raiz.getChildren().add(panel.getNodo());
+
+        // Primer pulso con la escena puesta = primer frame
+        Runnable primerFrame = new Runnable() {
+            @Override
+            public void run() {
+                Arranque.marcar(Arranque.PRIMER_FRAME);
+                // No se puede quitar mientras JavaFX recorre los listeners
+                Platform.runLater(() -> scene.removePostLayoutPulseListener(this));
+            }
+        };
+        scene.addPostLayoutPulseListener(primerFrame);
+
         stage.setTitle("Gestión de Clientes - Lampreas Violeta");
         stage.setScene(scene);
         stage.show();
+        Arranque.marcar(Arranque.VENTANA);
+
+        // Los datos se piden con la ventana ya visible (todo en segundo plano)
+        vistaClientes.iniciar();
+    }
+
+    @Override
+    public void stop() {
+        EjecutorVista.cerrar();
+        Db.cerrar();
+        PublicacionMetricas.detener();
     }
 
     public static void main(String[] args) {
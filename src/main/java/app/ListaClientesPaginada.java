@@ -0,0 +1,277 @@
+package app;
+
+import dao.ClienteDAO;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.collections.ObservableListBase;
+import model.Cliente;
+import util.DiferenciasPorId;
+import util.IntHashMap;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Lista de clientes para la TableView que se carga por páginas según se ve.
+ *
+ * - size() es el número real de clientes (SELECT count(*)), así la barra de
+ *   scroll tiene el tamaño correcto desde el principio.
+ * - get(i) devuelve la fila si su página está en memoria; si no, pide la
+ *   página en segundo plano y devuelve un marcador ("Cargando…"). Cuando
+ *   llega la página se avisa a la tabla (cambio "update") y se repinta.
+ * - Solo se guardan las últimas MAX_PAGINAS páginas usadas (LRU): la memoria
+ *   no depende del número de clientes.
+ * - Al cambiar de página se pide también la siguiente en el sentido del
+ *   scroll, para que al seguir bajando (o subiendo) ya esté cargada.
+ * - refrescar() no vacía la tabla: revalida las páginas a la vista y solo
+ *   avisa de las filas que han cambiado.
+ * - Las páginas se piden por "keyset" (id > último id de la página anterior)
+ *   cuando se conoce ese id; si se salta con la barra, por OFFSET.
+ *
+ * Es de solo lectura y se usa desde el hilo de JavaFX.
+ */
+public class ListaClientesPaginada extends ObservableListBase<Cliente> {
+
+    public static final int TAM_PAGINA = 200;
+    private static final int MAX_PAGINAS = 25;
+
+    /** Fila que aún no ha llegado de la BD (id null). */
+    public static final Cliente CARGANDO = new Cliente(null, "Cargando…", "");
+
+    private final ClienteDAO dao;
+    private final EjecutorVista ejecutor;
+    private final Consumer<Throwable> alFallar;
+
+    private final ReadOnlyIntegerWrapper total = new ReadOnlyIntegerWrapper(0);
+
+    // número de página -> filas, en orden de uso (el primero es el menos reciente)
+    private final LinkedHashMap<Integer, List<Cliente>> paginas =
+            new LinkedHashMap<>(MAX_PAGINAS * 2, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<Cliente>> e) {
+                    return size() > MAX_PAGINAS;
+                }
+            };
+
+    // Último id de cada página vista: permite pedir la siguiente por keyset.
+    // Son solo dos int por página, no filas.
+    private final IntHashMap<Integer> ultimoId = new IntHashMap<>();
+
+    private final Set<Integer> enCurso = new HashSet<>();
+    private int ultimaPaginaPedida = -1;
+
+    // Se incrementa en cada refrescar(): las respuestas de antes se descartan
+    private int generacion;
+
+    // Aviso cada vez que llega de la BD la primera página (para cachearla)
+    private Consumer<List<Cliente>> alLlegarPrimeraPagina = filas -> { };
+
+    public ListaClientesPaginada(ClienteDAO dao, EjecutorVista ejecutor, Consumer<Throwable> alFallar) {
+        this.dao = dao;
+        this.ejecutor = ejecutor;
+        this.alFallar = alFallar;
+    }
+
+    public void setAlLlegarPrimeraPagina(Consumer<List<Cliente>> alLlegar) {
+        this.alLlegarPrimeraPagina = alLlegar;
+    }
+
+    /**
+     * Muestra datos provisionales (p. ej. de una caché en disco) mientras
+     * llega la primera consulta. Solo si aún no hay nada cargado (si la BD
+     * ya ha contestado, no hacen falta). Se revalidan enseguida: al llegar
+     * la página de verdad se aplican solo las diferencias.
+     *
+     * @return true si se han usado
+     */
+    public boolean sembrar(int totalProvisional, List<Cliente> primeraPagina) {
+        if (size() > 0 || !paginas.isEmpty() || enCurso.contains(0) || primeraPagina.isEmpty()) return false;
+
+        List<Cliente> filas = List.copyOf(primeraPagina.subList(0, Math.min(TAM_PAGINA, primeraPagina.size())));
+        paginas.put(0, filas);
+        ultimaPaginaPedida = 0;
+        cambiarTotal(Math.max(totalProvisional, filas.size()));
+        revalidar(0);
+        return true;
+    }
+
+    public static boolean esMarcador(Cliente c) {
+        return c == null || c == CARGANDO;
+    }
+
+    /** Número total de clientes en la BD (según el último refrescar). */
+    public ReadOnlyIntegerProperty totalProperty() {
+        return total.getReadOnlyProperty();
+    }
+
+    @Override
+    public int size() {
+        return total.get();
+    }
+
+    @Override
+    public Cliente get(int i) {
+        Objects.checkIndex(i, size());
+        int p = i / TAM_PAGINA;
+
+        if (p != ultimaPaginaPedida) {
+            // Cambio de página: precargar la siguiente en el sentido del scroll
+            int siguiente = ultimaPaginaPedida < 0 || p > ultimaPaginaPedida ? p + 1 : p - 1;
+            ultimaPaginaPedida = p;
+            pedir(p);
+            if (siguiente >= 0 && (long) siguiente * TAM_PAGINA < size()) pedir(siguiente);
+        }
+
+        List<Cliente> pagina = paginas.get(p);
+        if (pagina == null) {
+            pedir(p);
+            return CARGANDO;
+        }
+        int j = i - p * TAM_PAGINA;
+        return j < pagina.size() ? pagina.get(j) : CARGANDO;
+    }
+
+    /**
+     * Fila i si su página ya está en memoria; si no, null. A diferencia de
+     * get(i), nunca pide páginas (sirve para precargar datos de filas vecinas).
+     */
+    public Cliente getSiCargada(int i) {
+        if (i < 0 || i >= size()) return null;
+        List<Cliente> pagina = paginas.get(i / TAM_PAGINA);
+        int j = i % TAM_PAGINA;
+        return pagina != null && j < pagina.size() ? pagina.get(j) : null;
+    }
+
+    /**
+     * Vuelve a leer el total y las páginas que se están viendo.
+     *
+     * Mientras llegan, se siguen mostrando las filas que había. Al llegar
+     * cada página se compara con la anterior (por id y contenido) y solo se
+     * avisa de lo que cambia: filas quitadas, insertadas o modificadas. La
+     * tabla repinta esas filas y conserva scroll y selección.
+     * El resto de páginas en memoria se olvidan (se pedirán si se vuelven a ver).
+     */
+    public void refrescar() {
+        generacion++;
+        enCurso.clear();
+        ultimoId.clear();
+
+        Set<Integer> aRevalidar = new HashSet<>();
+        for (int p = ultimaPaginaPedida - 1; p <= ultimaPaginaPedida + 1; p++) {
+            if (p >= 0 && paginas.containsKey(p)) aRevalidar.add(p);
+        }
+        paginas.keySet().retainAll(aRevalidar);
+
+        int gen = generacion;
+        ejecutor.ejecutarUltima("conteo-clientes", dao::count, n -> {
+            if (gen == generacion) cambiarTotal(n);
+        }, alFallar);
+
+        for (int p : aRevalidar) revalidar(p);
+    }
+
+    /** Vuelve a pedir una página que está en memoria y avisa solo de sus diferencias. */
+    private void revalidar(int p) {
+        enCurso.add(p);
+        int gen = generacion;
+
+        // Por OFFSET: lo que cuenta es qué filas ocupan ahora esas posiciones
+        ejecutor.ejecutar(() -> dao.findPageOffset((long) p * TAM_PAGINA, TAM_PAGINA), filas -> {
+            if (gen != generacion) return;
+            enCurso.remove(p);
+            List<Cliente> antes = paginas.put(p, filas);
+            if (!filas.isEmpty()) ultimoId.put(p, filas.get(filas.size() - 1).getId());
+            if (p == 0) alLlegarPrimeraPagina.accept(filas);
+
+            beginChange();
+            if (antes != null && antes.size() == filas.size()) {
+                avisarDiferencias(p * TAM_PAGINA, antes, filas);
+            } else {
+                avisarPagina(p);
+            }
+            endChange();
+        }, e -> {
+            if (gen == generacion) enCurso.remove(p);
+            alFallar.accept(e);
+        });
+    }
+
+    /**
+     * Avisa de los cambios entre dos versiones de una página del mismo tamaño
+     * (dentro de un begin/endChange). Un cliente insertado en medio se ve
+     * como una fila añadida en su sitio y otra quitada al final de la página.
+     */
+    private void avisarDiferencias(int base, List<Cliente> antes, List<Cliente> despues) {
+        DiferenciasPorId.calcular(antes, despues, Cliente::getId, ListaClientesPaginada::mismoCliente,
+                new DiferenciasPorId.Destino<>() {
+                    @Override
+                    public void quitar(int desde, List<Cliente> quitados) {
+                        nextRemove(base + desde, quitados);
+                    }
+
+                    @Override
+                    public void insertar(int desde, List<Cliente> nuevos) {
+                        nextAdd(base + desde, base + desde + nuevos.size());
+                    }
+
+                    @Override
+                    public void actualizar(int indice, Cliente antes, Cliente despues) {
+                        nextUpdate(base + indice);
+                    }
+                });
+    }
+
+    /** Mismo id, nombre y email (Cliente no define equals). */
+    static boolean mismoCliente(Cliente a, Cliente b) {
+        return Objects.equals(a.getId(), b.getId())
+                && Objects.equals(a.getNombre(), b.getNombre())
+                && Objects.equals(a.getEmail(), b.getEmail());
+    }
+
+    private void pedir(int p) {
+        if (paginas.containsKey(p) || !enCurso.add(p)) return;
+
+        int gen = generacion;
+        Integer anterior = p == 0 ? Integer.valueOf(Integer.MIN_VALUE) : ultimoId.get(p - 1);
+
+        ejecutor.ejecutar(() -> anterior != null
+                        ? dao.findPageAfter(anterior, TAM_PAGINA)
+                        : dao.findPageOffset((long) p * TAM_PAGINA, TAM_PAGINA),
+                filas -> {
+                    if (gen != generacion) return;
+                    enCurso.remove(p);
+                    paginas.put(p, filas);
+                    if (!filas.isEmpty()) ultimoId.put(p, filas.get(filas.size() - 1).getId());
+                    if (p == 0) alLlegarPrimeraPagina.accept(filas);
+
+                    beginChange();
+                    avisarPagina(p);
+                    endChange();
+                },
+                e -> {
+                    if (gen == generacion) enCurso.remove(p);
+                    alFallar.accept(e);
+                });
+    }
+
+    /** Marca como actualizadas las filas de la página p (dentro de un begin/endChange). */
+    private void avisarPagina(int p) {
+        int desde = p * TAM_PAGINA;
+        int hasta = Math.min(size(), desde + TAM_PAGINA);
+        for (int i = desde; i < hasta; i++) nextUpdate(i);
+    }
+
+    private void cambiarTotal(int n) {
+        int antes = size();
+        if (n == antes) return;
+
+        total.set(n);
+        beginChange();
+        if (n > antes) {
+            nextAdd(antes, n);
+        } else {
+            nextRemove(n, Collections.nCopies(antes - n, CARGANDO));
+        }
+        endChange();
+    }
+}
@@ -0,0 +1,644 @@
+package app;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import dao.*;
+import db.Db;
+import metrics.PublicacionMetricas;
+import model.*;
+import services.ExistenciaIds;
+import services.GeneradorDatos;
+import services.ImportacionReanudable;
+import services.JsonIO;
+import services.ManifiestoShards;
+import services.NdjsonShards;
+import services.SalidaGenerador;
+import services.TablaSnapshot;
+import services.ValidadorSnapshot;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Modo por lotes de DemoRelaciones: sin menú ni preguntas, para scripts y
+ * tareas nocturnas.
+ *
+ * Uso (argumentos de DemoRelaciones):
+ * <pre>
+ *   export [--formato json|ndjson] [--ruta R]
+ *   import [--formato json|ndjson] [--ruta R]
+ *   list   TABLA [--formato ndjson|csv]
+ *   insert TABLA --ruta FICHERO.ndjson [--bloque N]
+ *   script FICHERO|- [--seguir]
+ *   generate [--clientes N] [--productos N] [--pedidos N] [--lineas-por-pedido X]
+ *            [--con-detalle F] [--zipf-productos S] [--zipf-clientes S]
+ *            [--semilla N] [--hilos N] [--destino copy|ndjson] [--ruta DIR]
+ *   serve [--puerto N] [--host H] [--en-curso N]
+ *   help
+ * </pre>
+ * TABLA: cliente, detalle_cliente, producto, pedido, detalle_pedido.
+ *
+ * Salida:
+ *  - Por stdout solo datos legibles por máquina: las filas de "list" (NDJSON
+ *    o CSV con cabecera) y, en el resto, una línea JSON de resumen por comando.
+ *  - Mensajes de progreso y errores por stderr.
+ *  - "list" recorre la tabla en streaming y escribe con buffer: la memoria no
+ *    depende del número de filas. "insert" lee el NDJSON por líneas e inserta
+ *    por bloques, cada uno en su transacción.
+ *
+ * "script" ejecuta un comando por línea (# = comentario; comillas dobles para
+ * argumentos con espacios) en la misma JVM: las conexiones se reutilizan
+ * (ver Db) en lugar de abrir una por operación. Se para en el primer error
+ * salvo con --seguir.
+ *
+ * "serve" arranca la API HTTP (ServidorApi) y sigue hasta que se para el
+ * proceso (Ctrl+C); el resumen se escribe al parar.
+ *
+ * Código de salida: ver las constantes SALIDA_*.
+ */
+final class ModoLotes {
+
+    static final int SALIDA_OK = 0;
+    static final int SALIDA_DATOS_INVALIDOS = 1;
+    static final int SALIDA_USO = 2;
+    static final int SALIDA_ERROR_BD = 3;
+    static final int SALIDA_ERROR_ES = 4;
+    static final int SALIDA_ERROR = 5;
+
+    private static final int BLOQUE_POR_DEFECTO = 1_000;
+    private static final int TAM_BUFFER_SALIDA = 1 << 16;
+
+    /** Argumentos mal puestos. */
+    private static final class UsoIncorrecto extends Exception {
+        UsoIncorrecto(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    /** Una línea del NDJSON de insert que no es una fila válida. */
+    private static final class LineaInvalida extends Exception {
+        final long insertadas;
+
+        LineaInvalida(String mensaje, long insertadas, Throwable causa) {
+            super(mensaje, causa);
+            this.insertadas = insertadas;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Recorrido<T> {
+        void recorrer(Consumer<T> consumidor) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface InsercionLote<T> {
+        void insertar(List<T> filas, Connection con) throws SQLException;
+    }
+
+    /** Lo que hace falta saber de cada tabla para listarla e insertar en ella. */
+    private record Tabla<T>(String nombre, Class<T> tipo, List<String> columnas,
+                            Function<T, List<Object>> valores, Recorrido<T> recorrido,
+                            InsercionLote<T> insercion, ExistenciaIds existencia,
+                            Function<T, Integer> id) { }
+
+    private static final Map<String, Tabla<?>> TABLAS = new LinkedHashMap<>();
+
+    static {
+        ClienteDAO clientes = new ClienteDAO();
+        DetalleClienteDAO detalles = new DetalleClienteDAO();
+        ProductoDAO productos = new ProductoDAO();
+        PedidoDAO pedidos = new PedidoDAO();
+        DetallePedidoDAO lineas = new DetallePedidoDAO();
+
+        registrar(new Tabla<>("cliente", Cliente.class, List.of("id", "nombre", "email"),
+                c -> Arrays.asList(c.getId(), c.getNombre(), c.getEmail()),
+                clientes::recorrerTodos, clientes::insertBatch, ExistenciaIds.CLIENTES, Cliente::getId));
+        registrar(new Tabla<>("detalle_cliente", DetalleCliente.class,
+                List.of("id", "direccion", "telefono", "notas"),
+                d -> Arrays.asList(d.getId(), d.getDireccion(), d.getTelefono(), d.getNotas()),
+                detalles::recorrerTodos, detalles::insertBatch, ExistenciaIds.DETALLES_CLIENTE,
+                DetalleCliente::getId));
+        registrar(new Tabla<>("producto", Producto.class, List.of("id", "nombre", "precio"),
+                p -> Arrays.asList(p.getId(), p.getNombre(), p.getPrecio()),
+                productos::recorrerTodos, productos::insertBatch, ExistenciaIds.PRODUCTOS, Producto::getId));
+        registrar(new Tabla<>("pedido", Pedido.class, List.of("id", "cliente_id", "fecha"),
+                p -> Arrays.asList(p.getId(), p.getClienteId(), p.getFecha()),
+                pedidos::recorrerTodos, pedidos::insertBatch, ExistenciaIds.PEDIDOS, Pedido::getId));
+        registrar(new Tabla<>("detalle_pedido", DetallePedido.class,
+                List.of("pedido_id", "producto_id", "cantidad", "precio_unit"),
+                l -> Arrays.asList(l.getPedidoId(), l.getProductoId(), l.getCantidad(), l.getPrecioUnit()),
+                consumidor -> lineas.recorrerTodas((pedidoId, productoId, cantidad, precioUnit) ->
+                        consumidor.accept(new DetallePedido(pedidoId, productoId, cantidad, precioUnit))),
+                lineas::insertBatch, null, null));
+    }
+
+    private static void registrar(Tabla<?> t) {
+        TABLAS.put(t.nombre(), t);
+    }
+
+    private ModoLotes() { }
+
+    /** Ejecuta un comando y devuelve su código de salida. */
+    static int ejecutar(String[] args) {
+        try {
+            return ejecutarComando(new ArrayList<>(Arrays.asList(args)));
+        } finally {
+            Db.cerrar();
+        }
+    }
+
+    private static int ejecutarComando(List<String> args) {
+        String comando = args.isEmpty() ? "help" : args.remove(0);
+        try {
+            return switch (comando) {
+                case "export" -> exportar(args);
+                case "import" -> importar(args);
+                case "list" -> listar(args);
+                case "insert" -> insertar(args);
+                case "script" -> script(args);
+                case "generate" -> generar(args);
+                case "serve" -> servir(args);
+                case "help", "--help", "-h" -> {
+                    ayuda(System.out);
+                    yield SALIDA_OK;
+                }
+                default -> throw new UsoIncorrecto("Comando desconocido: " + comando);
+            };
+        } catch (UsoIncorrecto e) {
+            System.err.println("[USO] " + e.getMessage());
+            ayuda(System.err);
+            return SALIDA_USO;
+        } catch (SQLException e) {
+            System.err.println("[SQL ERROR] " + comando + ": " + e.getMessage());
+            return SALIDA_ERROR_BD;
+        } catch (IOException e) {
+            System.err.println("[IO ERROR] " + comando + ": " + e.getMessage());
+            return SALIDA_ERROR_ES;
+        } catch (UncheckedIOException e) {
+            System.err.println("[IO ERROR] " + comando + ": " + e.getCause().getMessage());
+            return SALIDA_ERROR_ES;
+        } catch (RuntimeException e) {
+            System.err.println("[ERROR] " + comando + ": " + e);
+            e.printStackTrace();
+            return SALIDA_ERROR;
+        }
+    }
+
+    // =========================================================
+    // COMANDOS
+    // =========================================================
+
+    private static int exportar(List<String> args) throws UsoIncorrecto, SQLException, IOException {
+        Map<String, String> op = opciones(args, 0, "--formato", "--ruta");
+        String formato = op.getOrDefault("--formato", "json");
+        long t0 = System.nanoTime();
+
+        switch (formato) {
+            case "json" -> {
+                File fichero = new File(op.getOrDefault("--ruta", DemoRelaciones.JSON_FILE.getPath()));
+                JsonIO.writeCompact(fichero, DemoRelaciones.leerInstantanea());
+                resumen("export", "ruta", fichero.getPath(), "ms", ms(t0));
+            }
+            case "ndjson" -> {
+                File dir = new File(op.getOrDefault("--ruta", DemoRelaciones.NDJSON_DIR.getPath()));
+                ManifiestoShards m = NdjsonShards.exportar(DemoRelaciones.leerInstantanea(), dir,
+                        NdjsonShards.MAX_BYTES_POR_DEFECTO);
+                long filas = 0;
+                for (ManifiestoShards.TablaShards t : m.getTablas()) filas += t.getFilas();
+                resumen("export", "ruta", dir.getPath(), "filas", filas, "ms", ms(t0));
+            }
+            default -> throw new UsoIncorrecto("Formato de exportación no válido: " + formato);
+        }
+        return SALIDA_OK;
+    }
+
+    private static int importar(List<String> args) throws UsoIncorrecto, SQLException, IOException {
+        Map<String, String> op = opciones(args, 0, "--formato", "--ruta");
+        String formato = op.getOrDefault("--formato", "json");
+        long t0 = System.nanoTime();
+
+        switch (formato) {
+            case "json" -> {
+                File fichero = new File(op.getOrDefault("--ruta", DemoRelaciones.JSON_FILE.getPath()));
+                if (!fichero.isFile()) throw new FileNotFoundException(fichero.getPath());
+
+                AppData data = JsonIO.read(fichero, AppData.class);
+                ValidadorSnapshot.Informe informe = ValidadorSnapshot.validar(data);
+                if (!informe.esValido()) {
+                    informe.imprimir(System.err, 50);
+                    resumen("import", "ruta", fichero.getPath(), "valido", false);
+                    return SALIDA_DATOS_INVALIDOS;
+                }
+
+                long filas = new ImportacionReanudable(fichero, ImportacionReanudable.TAM_BLOQUE_POR_DEFECTO)
+                        .importar(data, msg -> System.err.println("  " + msg));
+                resumen("import", "ruta", fichero.getPath(), "filas", filas, "ms", ms(t0));
+            }
+            case "ndjson" -> {
+                File dir = new File(op.getOrDefault("--ruta", DemoRelaciones.NDJSON_DIR.getPath()));
+                if (!new File(dir, NdjsonShards.MANIFIESTO).isFile()) {
+                    throw new FileNotFoundException(new File(dir, NdjsonShards.MANIFIESTO).getPath());
+                }
+                int hilos = Runtime.getRuntime().availableProcessors();
+                long filas = NdjsonShards.importar(dir, hilos);
+                resumen("import", "ruta", dir.getPath(), "filas", filas, "hilos", hilos, "ms", ms(t0));
+            }
+            default -> throw new UsoIncorrecto("Formato de importación no válido: " + formato);
+        }
+        return SALIDA_OK;
+    }
+
+    private static int listar(List<String> args) throws UsoIncorrecto, SQLException, IOException {
+        Map<String, String> op = opciones(args, 1, "--formato");
+        Tabla<?> tabla = tabla(args.get(0));
+        String formato = op.getOrDefault("--formato", "ndjson");
+        if (!formato.equals("ndjson") && !formato.equals("csv")) {
+            throw new UsoIncorrecto("Formato de listado no válido: " + formato);
+        }
+
+        // Sin cerrar System.out (puede haber más comandos en un script)
+        OutputStream salida = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), TAM_BUFFER_SALIDA);
+        long filas = escribirTabla(tabla, formato.equals("csv"), salida);
+        salida.flush();
+
+        System.err.println("[list] " + tabla.nombre() + ": " + filas + " filas");
+        return SALIDA_OK;
+    }
+
+    private static <T> long escribirTabla(Tabla<T> tabla, boolean csv, OutputStream salida)
+            throws SQLException, IOException {
+        long[] filas = {0};
+        if (csv) salida.write(lineaCsv(new ArrayList<>(tabla.columnas())));
+
+        tabla.recorrido().recorrer(fila -> {
+            try {
+                if (csv) {
+                    salida.write(lineaCsv(tabla.valores().apply(fila)));
+                } else {
+                    salida.write(JsonIO.toLine(fila));
+                    salida.write('\n');
+                }
+                filas[0]++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return filas[0];
+    }
+
+    private static int insertar(List<String> args) throws UsoIncorrecto, SQLException, IOException {
+        Map<String, String> op = opciones(args, 1, "--ruta", "--bloque");
+        Tabla<?> tabla = tabla(args.get(0));
+        String ruta = op.get("--ruta");
+        if (ruta == null) throw new UsoIncorrecto("insert necesita --ruta FICHERO.ndjson");
+        int bloque = entero(op.getOrDefault("--bloque", String.valueOf(BLOQUE_POR_DEFECTO)));
+
+        File fichero = new File(ruta);
+        if (!fichero.isFile()) throw new FileNotFoundException(ruta);
+
+        long t0 = System.nanoTime();
+        long filas;
+        try {
+            filas = insertarDesde(tabla, fichero, bloque);
+        } catch (LineaInvalida e) {
+            System.err.println("[DATOS] " + fichero.getPath() + ": " + e.getMessage());
+            resumen("insert", "tabla", tabla.nombre(), "filas", e.insertadas, "valido", false);
+            return SALIDA_DATOS_INVALIDOS;
+        }
+        resumen("insert", "tabla", tabla.nombre(), "filas", filas, "ms", ms(t0));
+        return SALIDA_OK;
+    }
+
+    /**
+     * Inserta el NDJSON por bloques, cada uno en una transacción. Si un
+     * bloque falla, los anteriores ya están confirmados: el error dice desde
+     * qué línea hay que repetir. Lo mismo si una línea no es una fila válida
+     * (LineaInvalida): se para ahí, sin insertar su bloque.
+     */
+    private static <T> long insertarDesde(Tabla<T> tabla, File fichero, int tamBloque)
+            throws SQLException, IOException, LineaInvalida {
+        long insertadas = 0;
+        List<T> bloque = new ArrayList<>(tamBloque);
+
+        try (MappingIterator<T> it = JsonIO.readLines(fichero, tabla.tipo())) {
+            while (true) {
+                T fila;
+                try {
+                    if (!it.hasNextValue()) break;
+                    fila = it.nextValue();
+                } catch (JsonProcessingException e) {
+                    JsonLocation donde = e.getLocation();
+                    String linea = donde != null && donde.getLineNr() > 0
+                            ? "línea " + donde.getLineNr()
+                            : "fila " + (insertadas + bloque.size() + 1);
+                    throw new LineaInvalida(linea + ": " + e.getOriginalMessage()
+                            + " (las " + insertadas + " filas anteriores a su bloque ya están insertadas)",
+                            insertadas, e);
+                }
+                bloque.add(fila);
+                if (bloque.size() == tamBloque) {
+                    insertarBloque(tabla, bloque, insertadas);
+                    insertadas += bloque.size();
+                    bloque.clear();
+                    if (insertadas % (tamBloque * 100L) == 0) {
+                        System.err.println("  [insert] " + tabla.nombre() + ": " + insertadas + " filas");
+                    }
+                }
+            }
+        }
+        if (!bloque.isEmpty()) {
+            insertarBloque(tabla, bloque, insertadas);
+            insertadas += bloque.size();
+        }
+        return insertadas;
+    }
+
+    private static <T> void insertarBloque(Tabla<T> tabla, List<T> bloque, long anteriores) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+            try {
+                tabla.insercion().insertar(bloque, con);
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw new SQLException("Bloque desde la línea " + (anteriores + 1)
+                        + " (las anteriores ya están insertadas): " + e.getMessage(), e.getSQLState(), e);
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+
+        // Solo tras el commit: los filtros de existencia no pueden ver ids que no están
+        if (tabla.existencia() != null) {
+            for (T fila : bloque) tabla.existencia().agregar(tabla.id().apply(fila));
+        }
+    }
+
+    private static int script(List<String> args) throws UsoIncorrecto, IOException {
+        Map<String, String> op = opciones(args, 1, "--seguir");
+        boolean seguir = op.containsKey("--seguir");
+        String origen = args.get(0);
+
+        Reader lector = origen.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new InputStreamReader(new FileInputStream(origen), StandardCharsets.UTF_8);
+
+        int resultado = SALIDA_OK;
+        int numLinea = 0, ejecutados = 0, fallidos = 0;
+        try (BufferedReader in = new BufferedReader(lector)) {
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                numLinea++;
+                List<String> partes = trocear(linea);
+                if (partes.isEmpty()) continue;
+                if (partes.get(0).equals("script")) {
+                    throw new UsoIncorrecto("Línea " + numLinea + ": no se puede anidar 'script'");
+                }
+
+                ejecutados++;
+                int codigo = ejecutarComando(partes);
+                if (codigo != SALIDA_OK) {
+                    fallidos++;
+                    System.err.println("[script] Línea " + numLinea + " terminó con código " + codigo);
+                    if (resultado == SALIDA_OK) resultado = codigo;
+                    if (!seguir) break;
+                }
+            }
+        }
+
+        resumen("script", "comandos", ejecutados, "fallidos", fallidos);
+        return resultado;
+    }
+
+    /**
+     * Datos sintéticos (ver GeneradorDatos): con --destino copy van directos
+     * a la BD (pensado para tablas vacías); con ndjson, a shards que luego
+     * se cargan con "import --formato ndjson".
+     */
+    private static int generar(List<String> args) throws UsoIncorrecto, SQLException, IOException {
+        Map<String, String> op = opciones(args, 0, "--clientes", "--productos", "--pedidos",
+                "--lineas-por-pedido", "--con-detalle", "--zipf-productos", "--zipf-clientes",
+                "--semilla", "--hilos", "--destino", "--ruta");
+        GeneradorDatos.Parametros d = GeneradorDatos.Parametros.porDefecto();
+        GeneradorDatos.Parametros p;
+        try {
+            p = new GeneradorDatos.Parametros(
+                    op.containsKey("--semilla") ? Long.parseLong(op.get("--semilla")) : d.semilla(),
+                    op.containsKey("--clientes") ? entero(op.get("--clientes")) : d.clientes(),
+                    op.containsKey("--productos") ? entero(op.get("--productos")) : d.productos(),
+                    op.containsKey("--pedidos") ? entero(op.get("--pedidos")) : d.pedidos(),
+                    decimal(op, "--lineas-por-pedido", d.lineasPorPedido()),
+                    decimal(op, "--con-detalle", d.fraccionConDetalle()),
+                    decimal(op, "--zipf-productos", d.zipfProductos()),
+                    decimal(op, "--zipf-clientes", d.zipfClientes()),
+                    d.desde(), d.hasta(),
+                    op.containsKey("--hilos") ? entero(op.get("--hilos")) : d.hilos());
+        } catch (IllegalArgumentException e) {
+            throw new UsoIncorrecto(e.getMessage());
+        }
+
+        String destino = op.getOrDefault("--destino", "copy");
+        SalidaGenerador salida;
+        String ruta;
+        switch (destino) {
+            case "copy" -> {
+                if (op.containsKey("--ruta")) throw new UsoIncorrecto("--ruta solo se usa con --destino ndjson");
+                salida = SalidaGenerador.copy();
+                ruta = "bd";
+            }
+            case "ndjson" -> {
+                File dir = new File(op.getOrDefault("--ruta", DemoRelaciones.NDJSON_DIR.getPath()));
+                salida = SalidaGenerador.ndjson(dir);
+                ruta = dir.getPath();
+            }
+            default -> throw new UsoIncorrecto("Destino no válido: " + destino);
+        }
+
+        long t0 = System.nanoTime();
+        Map<TablaSnapshot, Long> filas = GeneradorDatos.generar(p, salida,
+                msg -> System.err.println("  [generate] " + msg));
+        long total = 0;
+        for (long n : filas.values()) total += n;
+        resumen("generate", "destino", destino, "ruta", ruta, "semilla", p.semilla(),
+                "clientes", filas.get(TablaSnapshot.CLIENTE),
+                "detalles_cliente", filas.get(TablaSnapshot.DETALLE_CLIENTE),
+                "productos", filas.get(TablaSnapshot.PRODUCTO),
+                "pedidos", filas.get(TablaSnapshot.PEDIDO),
+                "lineas", filas.get(TablaSnapshot.DETALLE_PEDIDO),
+                "filas", total, "ms", ms(t0));
+        return SALIDA_OK;
+    }
+
+    private static int servir(List<String> args) throws UsoIncorrecto, IOException {
+        Map<String, String> op = opciones(args, 0, "--puerto", "--host", "--en-curso");
+        int puerto = op.containsKey("--puerto") ? entero(op.get("--puerto")) : ServidorApi.PUERTO_POR_DEFECTO;
+        int enCurso = op.containsKey("--en-curso") ? entero(op.get("--en-curso")) : ServidorApi.EN_CURSO_POR_DEFECTO;
+        // Solo local salvo que se pida otra cosa (--host 0.0.0.0 para toda la red)
+        String host = op.getOrDefault("--host", "localhost");
+
+        long t0 = System.nanoTime();
+        PublicacionMetricas.iniciar();
+        ServidorApi api = ServidorApi.iniciar(new InetSocketAddress(host, puerto), enCurso);
+        System.err.println("[serve] http://" + host + ":" + api.puerto() + "/api/ (Ctrl+C para parar)");
+
+        // Se para con el proceso: el hilo principal no vuelve de aquí
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            api.detener(1);
+            PublicacionMetricas.detener();
+            Db.cerrar();
+            resumen("serve", "host", host, "puerto", api.puerto(), "peticiones", api.peticiones(), "ms", ms(t0));
+        }));
+        try {
+            new CountDownLatch(1).await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return SALIDA_OK;
+    }
+
+    // =========================================================
+    // AUXILIARES
+    // =========================================================
+
+    /**
+     * Separa 'posicionales' argumentos obligatorios del principio y lee las
+     * opciones permitidas (--opcion valor; --seguir no lleva valor).
+     * Deja en 'args' solo los posicionales.
+     */
+    private static Map<String, String> opciones(List<String> args, int posicionales, String... permitidas)
+            throws UsoIncorrecto {
+        if (args.size() < posicionales) throw new UsoIncorrecto("Faltan argumentos");
+
+        Set<String> validas = new HashSet<>(Arrays.asList(permitidas));
+        Map<String, String> out = new HashMap<>();
+        List<String> resto = args.subList(posicionales, args.size());
+        for (int i = 0; i < resto.size(); i++) {
+            String nombre = resto.get(i);
+            if (!validas.contains(nombre)) throw new UsoIncorrecto("Argumento no válido: " + nombre);
+            if (nombre.equals("--seguir")) {
+                out.put(nombre, "true");
+            } else if (i + 1 < resto.size()) {
+                out.put(nombre, resto.get(++i));
+            } else {
+                throw new UsoIncorrecto(nombre + " necesita un valor");
+            }
+        }
+        resto.clear();
+        return out;
+    }
+
+    private static Tabla<?> tabla(String nombre) throws UsoIncorrecto {
+        Tabla<?> t = TABLAS.get(nombre);
+        if (t == null) throw new UsoIncorrecto("Tabla desconocida: " + nombre + " (válidas: " + TABLAS.keySet() + ")");
+        return t;
+    }
+
+    private static int entero(String s) throws UsoIncorrecto {
+        try {
+            int n = Integer.parseInt(s);
+            if (n <= 0) throw new NumberFormatException();
+            return n;
+        } catch (NumberFormatException e) {
+            throw new UsoIncorrecto("Se esperaba un entero positivo: " + s);
+        }
+    }
+
+    private static double decimal(Map<String, String> op, String nombre, double porDefecto) throws UsoIncorrecto {
+        String s = op.get(nombre);
+        if (s == null) return porDefecto;
+        try {
+            return Double.parseDouble(s);
+        } catch (NumberFormatException e) {
+            throw new UsoIncorrecto(nombre + ": se esperaba un número: " + s);
+        }
+    }
+
+    /** Palabras de una línea de script; las comillas dobles agrupan. Vacía si es comentario. */
+    static List<String> trocear(String linea) {
+        List<String> out = new ArrayList<>();
+        String s = linea.strip();
+        if (s.isEmpty() || s.startsWith("#")) return out;
+
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false, hayPalabra = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                entreComillas = !entreComillas;
+                hayPalabra = true;
+            } else if (Character.isWhitespace(c) && !entreComillas) {
+                if (hayPalabra) out.add(actual.toString());
+                actual.setLength(0);
+                hayPalabra = false;
+            } else {
+                actual.append(c);
+                hayPalabra = true;
+            }
+        }
+        if (hayPalabra) out.add(actual.toString());
+        return out;
+    }
+
+    /** Una línea CSV (RFC 4180): entre comillas si hace falta, null = vacío. */
+    static byte[] lineaCsv(List<?> valores) {
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < valores.size(); i++) {
+            if (i > 0) sb.append(',');
+            Object v = valores.get(i);
+            if (v == null) continue;
+            String s = v.toString();
+            if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0 || s.indexOf('\r') >= 0) {
+                sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(s);
+            }
+        }
+        sb.append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** Línea JSON de resumen por stdout: {"comando":..., clave: valor...}. */
+    private static void resumen(String comando, Object... claveValor) {
+        Map<String, Object> campos = new LinkedHashMap<>();
+        campos.put("comando", comando);
+        for (int i = 0; i < claveValor.length; i += 2) {
+            Object v = claveValor[i + 1];
+            campos.put(String.valueOf(claveValor[i]), v instanceof Number || v instanceof Boolean ? v : String.valueOf(v));
+        }
+        try {
+            System.out.println(new String(JsonIO.toLine(campos), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long ms(long t0) {
+        return (System.nanoTime() - t0) / 1_000_000;
+    }
+
+    private static void ayuda(PrintStream out) {
+        out.println("""
+                Uso: DemoRelaciones [COMANDO ...]   (sin argumentos: menú interactivo)
+                  export [--formato json|ndjson] [--ruta R]     foto de la BD a fichero(s)
+                  import [--formato json|ndjson] [--ruta R]     carga una exportación
+                  list   TABLA [--formato ndjson|csv]           filas de una tabla por stdout
+                  insert TABLA --ruta F.ndjson [--bloque N]     inserta un NDJSON por bloques
+                  script FICHERO|- [--seguir]                   un comando por línea
+                  generate [--clientes N] [--productos N] [--pedidos N] [--lineas-por-pedido X]
+                           [--con-detalle F] [--zipf-productos S] [--zipf-clientes S]
+                           [--semilla N] [--hilos N] [--destino copy|ndjson] [--ruta DIR]
+                                                                datos sintéticos (tablas vacías)
+                  serve [--puerto N] [--host H] [--en-curso N]  API HTTP JSON (ver ServidorApi)
+                TABLA: %s
+                Salida: 0 ok, 1 datos inválidos, 2 uso, 3 error BD, 4 error E/S, 5 otro error"""
+                .formatted(String.join(", ", TABLAS.keySet())));
+    }
+}
@@ -0,0 +1,199 @@
+package app;
+
+import javafx.animation.AnimationTimer;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.StackPane;
+import javafx.util.Duration;
+import metrics.Histograma;
+import metrics.Llamada;
+import metrics.Metricas;
+import metrics.Operacion;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Panel de rendimiento superpuesto a la ventana (se muestra/oculta con F12).
+ *
+ * Para saber de un vistazo si la lentitud viene de la BD, de convertir filas
+ * o de pintar:
+ *  - Pulso de JavaFX: intervalo entre fotogramas y tiempo de layout/CSS.
+ *  - Por operación (Metricas): llamadas, p50/p99 y filas por llamada. Las
+ *    consultas de los DAO aparecen como "jdbc CLASE.metodo", desde que se
+ *    ejecutan hasta leer la última fila (ver db.SentenciaMedida).
+ *  - Últimas llamadas a la BD.
+ *  - Heap y recolecciones de basura del último segundo.
+ *
+ * Mientras está oculto solo cuesta dos listeners de pulso que no hacen nada.
+ * Visible, fuerza un pulso por fotograma (AnimationTimer): es lo que mide.
+ */
+public class PanelRendimiento {
+
+    static final String OP_PULSO = "fx.pulso";
+    static final String OP_LAYOUT = "fx.layout";
+
+    private static final int NUM_RECIENTES = 6;
+    private static final DateTimeFormatter HORA = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final Label texto = new Label();
+    private final StackPane nodo = new StackPane(texto);
+
+    private final Timeline refresco = new Timeline(new KeyFrame(Duration.millis(500), e -> actualizar()));
+
+    private final AnimationTimer pulsos = new AnimationTimer() {
+        private long anterior;
+
+        @Override
+        public void handle(long ahora) {
+            if (anterior != 0) Metricas.registrarValor(OP_PULSO, ahora - anterior);
+            anterior = ahora;
+        }
+
+        @Override
+        public void stop() {
+            super.stop();
+            anterior = 0;
+        }
+    };
+
+    private long inicioLayout;
+
+    // GC acumulado en el refresco anterior (para sacar lo del último intervalo)
+    private long gcCuentaAnterior = -1;
+    private long gcMsAnterior;
+    private long refrescoAnterior;
+
+    public PanelRendimiento(Scene scene) {
+        texto.setStyle("-fx-font-family: 'monospace'; -fx-font-size: 11px; -fx-text-fill: #e0ffe0;");
+        nodo.setStyle("-fx-background-color: rgba(0, 0, 0, 0.75); -fx-background-radius: 4;");
+        nodo.setPadding(new Insets(8));
+        nodo.setMaxSize(StackPane.USE_PREF_SIZE, StackPane.USE_PREF_SIZE);
+        nodo.setMouseTransparent(true);
+        nodo.setVisible(false);
+        StackPane.setAlignment(nodo, Pos.TOP_RIGHT);
+        StackPane.setMargin(nodo, new Insets(8));
+
+        refresco.setCycleCount(Timeline.INDEFINITE);
+
+        // Layout + CSS de cada pulso (lo que cuesta "pintar" la escena)
+        scene.addPreLayoutPulseListener(() -> {
+            if (nodo.isVisible()) inicioLayout = System.nanoTime();
+        });
+        scene.addPostLayoutPulseListener(() -> {
+            if (nodo.isVisible() && inicioLayout != 0) {
+                Metricas.registrarValor(OP_LAYOUT, System.nanoTime() - inicioLayout);
+            }
+        });
+
+        scene.addEventFilter(javafx.scene.input.KeyEvent.KEY_PRESSED, e -> {
+            if (e.getCode() == KeyCode.F12) {
+                alternar();
+                e.consume();
+            }
+        });
+    }
+
+    /** Nodo a poner encima del contenido (en un StackPane). */
+    public Node getNodo() {
+        return nodo;
+    }
+
+    public void alternar() {
+        boolean mostrar = !nodo.isVisible();
+        nodo.setVisible(mostrar);
+        if (mostrar) {
+            // El pulso se mide desde ahora: lo de antes es de cuando nadie miraba
+            Metricas.operacion(OP_PULSO).getLatencias().reiniciar();
+            Metricas.operacion(OP_LAYOUT).getLatencias().reiniciar();
+            inicioLayout = 0;
+            pulsos.start();
+            refresco.play();
+            actualizar();
+        } else {
+            pulsos.stop();
+            refresco.stop();
+        }
+    }
+
+    private void actualizar() {
+        StringBuilder sb = new StringBuilder(1024);
+
+        Histograma pulso = Metricas.operacion(OP_PULSO).getLatencias();
+        Histograma layout = Metricas.operacion(OP_LAYOUT).getLatencias();
+        sb.append(String.format(Locale.ROOT, "Pulso FX    p50 %s  p99 %s  máx %s%n",
+                ms(pulso.percentil(0.50)), ms(pulso.percentil(0.99)), ms(pulso.max())));
+        sb.append(String.format(Locale.ROOT, "Layout/CSS  p50 %s  p99 %s  máx %s%n",
+                ms(layout.percentil(0.50)), ms(layout.percentil(0.99)), ms(layout.max())));
+
+        añadirMemoria(sb);
+
+        sb.append(String.format(Locale.ROOT, "%n%-38s %6s %9s %9s %8s%n", "Operación", "n", "p50", "p99", "filas"));
+        List<Operacion> ops = Metricas.operaciones().stream()
+                .filter(o -> !o.getNombre().startsWith("fx."))
+                .sorted(Comparator.comparing(Operacion::getNombre))
+                .toList();
+        for (Operacion o : ops) {
+            Histograma h = o.getLatencias();
+            sb.append(String.format(Locale.ROOT, "%-38s %6d %9s %9s %8s%n",
+                    recortar(o.getNombre(), 38), h.cuenta(), ms(h.percentil(0.50)), ms(h.percentil(0.99)),
+                    o.getFilas() == 0 ? "" : String.format(Locale.ROOT, "%.0f", o.filasPorLlamada())));
+        }
+
+        sb.append(String.format("%nÚltimas llamadas%n"));
+        for (Llamada l : Metricas.recientes(NUM_RECIENTES)) {
+            LocalTime hora = LocalTime.ofInstant(Instant.ofEpochMilli(l.instante()), ZoneId.systemDefault());
+            sb.append(String.format(Locale.ROOT, "  %s  %-32s %9s %6d filas%n",
+                    HORA.format(hora), recortar(l.operacion(), 32), ms(l.nanos()), l.filas()));
+        }
+
+        texto.setText(sb.toString().stripTrailing());
+    }
+
+    private void añadirMemoria(StringBuilder sb) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+
+        long cuenta = 0, tiempo = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            cuenta += Math.max(0, gc.getCollectionCount());
+            tiempo += Math.max(0, gc.getCollectionTime());
+        }
+
+        long ahora = System.nanoTime();
+        String ultimo = "";
+        if (gcCuentaAnterior >= 0) {
+            double seg = (ahora - refrescoAnterior) / 1e9;
+            ultimo = String.format(Locale.ROOT, "  (%.1f/s, %.0f ms/s)",
+                    (cuenta - gcCuentaAnterior) / seg, (tiempo - gcMsAnterior) / seg);
+        }
+        gcCuentaAnterior = cuenta;
+        gcMsAnterior = tiempo;
+        refrescoAnterior = ahora;
+
+        sb.append(String.format(Locale.ROOT, "Heap %d/%d MB (máx %d)  GC %d col., %d ms%s%n",
+                heap.getUsed() >> 20, heap.getCommitted() >> 20, heap.getMax() >> 20,
+                cuenta, tiempo, ultimo));
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+    }
+
+    private static String recortar(String s, int max) {
+        return s.length() <= max ? s : s.substring(0, max - 1) + "…";
+    }
+}
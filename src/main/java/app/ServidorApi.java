@@ -0,0 +1,467 @@
+package app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dao.CancelacionConsulta;
+import dao.ClienteDAO;
+import dao.DetallePedidoDAO;
+import dao.PedidoDAO;
+import dao.ProductoDAO;
+import metrics.Metricas;
+import model.Cliente;
+import model.DetallePedido;
+import model.Pedido;
+import model.Producto;
+import services.JsonIO;
+import util.Hilos;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * API HTTP de solo lectura sobre los DAO, para otros servicios (JSON UTF-8,
+ * solo GET). Se arranca con "DemoRelaciones serve" (ver ModoLotes).
+ *
+ * <pre>
+ *   /api/clientes[?despues=ID][&amp;limite=N]     por id; sin limite, todos
+ *   /api/clientes/{id}
+ *   /api/clientes/buscar?q=TEXTO[&amp;limite=N]   ClienteDAO.search (50 por defecto)
+ *   /api/productos
+ *   /api/productos/{id}
+ *   /api/pedidos[?despues=ID][&amp;limite=N]      con sus líneas
+ *   /api/pedidos/{id}
+ * </pre>
+ * Para paginar, despues = id del último recibido.
+ *
+ * - Cada petición va en su propio hilo virtual si la JVM los tiene (si no,
+ *   en un pool). Como mucho maxEnCurso lecturas de la BD a la vez (el resto
+ *   espera su turno; Db además limita las conexiones de todo el proceso).
+ *   El turno se tiene solo mientras se lee una consulta o una página, no
+ *   mientras se escribe la respuesta: un cliente lento no quita el sitio a
+ *   los demás.
+ * - Los listados se leen por páginas de PAGINA filas (keyset por id) y cada
+ *   página se escribe antes de pedir la siguiente: la memoria no depende del
+ *   tamaño de la tabla y no se tiene una conexión abierta mientras un
+ *   cliente lento lee.
+ * - Las respuestas de hasta MAX_CON_ETAG bytes van con Content-Length y un
+ *   ETag (hash del cuerpo). Si la petición trae ese ETag en If-None-Match
+ *   se responde 304 sin cuerpo: la consulta se hace igual, pero no se envía
+ *   ni se vuelve a leer lo que el cliente ya tiene. Las más grandes se
+ *   envían por trozos (chunked) según se generan, sin ETag.
+ * - Métricas (ver metrics.Metricas): "http RUTA" por petición, con las filas
+ *   escritas; las que fallan con 5xx cuentan como error.
+ */
+public final class ServidorApi {
+
+    public static final int PUERTO_POR_DEFECTO = 8080;
+    public static final int EN_CURSO_POR_DEFECTO = 32;
+
+    // Filas por consulta en los listados
+    private static final int PAGINA = 1_000;
+
+    // Hasta este tamaño la respuesta se genera entera (para el ETag); más, en streaming
+    private static final int MAX_CON_ETAG = 256 * 1024;
+
+    private static final int TAM_BUFFER = 1 << 16;
+    private static final int MAX_BUSQUEDA = 1_000;
+    private static final int BACKLOG = 1_024;
+    private static final String JSON = "application/json; charset=utf-8";
+
+    /** Parámetros de la petición que no valen (400). */
+    private static final class PeticionIncorrecta extends Exception {
+        PeticionIncorrecta(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    /** No existe lo pedido (404). */
+    private static final class NoEncontrado extends Exception {
+        NoEncontrado(String mensaje) {
+            super(mensaje);
+        }
+    }
+
+    /** Escribe la respuesta de una ruta y devuelve las filas escritas. */
+    @FunctionalInterface
+    private interface Escritor {
+        long escribir(JsonGenerator gen) throws SQLException, IOException, NoEncontrado, InterruptedException;
+    }
+
+    /** Una lectura de la BD (ver leer()). */
+    @FunctionalInterface
+    private interface Lectura<T> {
+        T leer() throws SQLException;
+    }
+
+    /** nombre: para las métricas, con los ids como {id}. */
+    private record Ruta(String nombre, Escritor escritor) { }
+
+    private final ClienteDAO clientes = new ClienteDAO();
+    private final ProductoDAO productos = new ProductoDAO();
+    private final PedidoDAO pedidos = new PedidoDAO();
+    private final DetallePedidoDAO lineas = new DetallePedidoDAO();
+
+    private final HttpServer servidor;
+    private final ExecutorService ejecutor;
+    private final Semaphore enCurso;
+    private final LongAdder peticiones = new LongAdder();
+
+    private ServidorApi(HttpServer servidor, ExecutorService ejecutor, int maxEnCurso) {
+        this.servidor = servidor;
+        this.ejecutor = ejecutor;
+        this.enCurso = new Semaphore(maxEnCurso);
+    }
+
+    /** Arranca el servidor (puerto 0 = uno libre cualquiera, ver puerto()). */
+    public static ServidorApi iniciar(InetSocketAddress direccion, int maxEnCurso) throws IOException {
+        HttpServer servidor = HttpServer.create(direccion, BACKLOG);
+        ExecutorService ejecutor = Hilos.unoPorTarea(maxEnCurso);
+        ServidorApi api = new ServidorApi(servidor, ejecutor, maxEnCurso);
+        servidor.createContext("/api/", api::atender);
+        servidor.setExecutor(ejecutor);
+        servidor.start();
+        return api;
+    }
+
+    public int puerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    public long peticiones() {
+        return peticiones.sum();
+    }
+
+    /** Deja de aceptar peticiones y espera como mucho 'segundos' a las que están en marcha. */
+    public void detener(int segundos) {
+        servidor.stop(segundos);
+        ejecutor.shutdown();
+    }
+
+    // =========================================================
+    // PETICIONES
+    // =========================================================
+
+    private void atender(HttpExchange ex) throws IOException {
+        long t0 = System.nanoTime();
+        peticiones.increment();
+        String nombre = "desconocida";
+        SalidaRespuesta salida = null;
+        boolean cortar = false;
+        try {
+            if (!ex.getRequestMethod().equals("GET")) {
+                ex.getResponseHeaders().set("Allow", "GET");
+                enviarError(ex, 405, "Solo se admite GET");
+                return;
+            }
+            Ruta ruta = ruta(ex.getRequestURI().getRawPath(), parametros(ex.getRequestURI().getRawQuery()));
+            nombre = ruta.nombre();
+
+            ex.getResponseHeaders().set("Content-Type", JSON);
+            salida = new SalidaRespuesta(ex);
+            long filas;
+            try (JsonGenerator gen = JsonIO.generador(salida)) {
+                filas = ruta.escritor().escribir(gen);
+            }
+            salida.terminar();
+            Metricas.registrar("http " + nombre, System.nanoTime() - t0, (int) Math.min(filas, Integer.MAX_VALUE));
+        } catch (PeticionIncorrecta e) {
+            enviarError(ex, 400, e.getMessage());
+        } catch (NoEncontrado e) {
+            if (!nombre.equals("desconocida")) Metricas.registrar("http " + nombre, System.nanoTime() - t0, 0);
+            enviarError(ex, 404, e.getMessage());
+        } catch (SQLException | IOException | RuntimeException | InterruptedException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            Metricas.operacion("http " + nombre).registrarError();
+            System.err.println("[API] " + ex.getRequestURI() + ": " + e);
+            if (salida != null && salida.enviando()) {
+                // Ya se mandó un 200 y parte del cuerpo: solo queda cortar la
+                // conexión sin cerrar la respuesta (close() enviaría el último
+                // trozo y el cliente lo tomaría por completa)
+                cortar = true;
+                throw e instanceof IOException io ? io : new IOException(e);
+            }
+            // 08xxx: no hay conexión con la BD
+            boolean sinBd = e instanceof SQLException s && s.getSQLState() != null && s.getSQLState().startsWith("08");
+            enviarError(ex, sinBd ? 503 : 500, e.getMessage());
+        } finally {
+            if (!cortar) ex.close();
+        }
+    }
+
+    private Ruta ruta(String camino, Map<String, String> q) throws PeticionIncorrecta, NoEncontrado {
+        String[] partes = camino.substring("/api/".length()).split("/");
+        String recurso = partes[0];
+        String sub = partes.length > 1 ? partes[1] : null;
+        if (partes.length > 2) throw new NoEncontrado("Ruta desconocida: " + camino);
+
+        switch (recurso) {
+            case "clientes" -> {
+                if (sub == null) {
+                    int despues = entero(q, "despues", Integer.MIN_VALUE);
+                    int limite = positivo(q, "limite", Integer.MAX_VALUE);
+                    return new Ruta("/api/clientes", gen -> escribirClientes(gen, despues, limite));
+                }
+                if (sub.equals("buscar")) {
+                    String texto = q.get("q");
+                    if (texto == null) throw new PeticionIncorrecta("Falta el parámetro q");
+                    int limite = Math.min(positivo(q, "limite", 50), MAX_BUSQUEDA);
+                    return new Ruta("/api/clientes/buscar", gen -> {
+                        List<Cliente> encontrados = leer(() -> clientes.search(texto, limite, new CancelacionConsulta()));
+                        return escribirLista(gen, encontrados);
+                    });
+                }
+                int id = id(sub);
+                return new Ruta("/api/clientes/{id}", gen -> {
+                    Cliente c = leer(() -> clientes.findById(id));
+                    if (c == null) throw new NoEncontrado("No existe el cliente " + id);
+                    gen.writeObject(c);
+                    return 1;
+                });
+            }
+            case "productos" -> {
+                if (sub == null) {
+                    return new Ruta("/api/productos", gen -> escribirLista(gen, leer(productos::findAll)));
+                }
+                int id = id(sub);
+                return new Ruta("/api/productos/{id}", gen -> {
+                    Producto p = leer(() -> productos.findById(id));
+                    if (p == null) throw new NoEncontrado("No existe el producto " + id);
+                    gen.writeObject(p);
+                    return 1;
+                });
+            }
+            case "pedidos" -> {
+                if (sub == null) {
+                    int despues = entero(q, "despues", Integer.MIN_VALUE);
+                    int limite = positivo(q, "limite", Integer.MAX_VALUE);
+                    return new Ruta("/api/pedidos", gen -> escribirPedidos(gen, despues, limite));
+                }
+                int id = id(sub);
+                return new Ruta("/api/pedidos/{id}", gen -> {
+                    Pedido p = leer(() -> pedidos.findById(id));
+                    if (p == null) throw new NoEncontrado("No existe el pedido " + id);
+                    p.setLineas(leer(() -> lineas.findByPedidoId(id)));
+                    gen.writeObject(p);
+                    return 1 + p.getLineas().size();
+                });
+            }
+            default -> throw new NoEncontrado("Ruta desconocida: " + camino);
+        }
+    }
+
+    private static long escribirLista(JsonGenerator gen, List<?> filas) throws IOException {
+        gen.writeStartArray();
+        for (Object f : filas) gen.writeObject(f);
+        gen.writeEndArray();
+        return filas.size();
+    }
+
+    private long escribirClientes(JsonGenerator gen, int despues, int limite)
+            throws SQLException, IOException, InterruptedException {
+        gen.writeStartArray();
+        long n = 0;
+        int ultimo = despues;
+        while (n < limite) {
+            int pedida = (int) Math.min(PAGINA, limite - n);
+            int desde = ultimo;
+            List<Cliente> pagina = leer(() -> clientes.findPageAfter(desde, pedida));
+            for (Cliente c : pagina) gen.writeObject(c);
+            n += pagina.size();
+            if (pagina.size() < pedida) break;
+            ultimo = pagina.get(pagina.size() - 1).getId();
+        }
+        gen.writeEndArray();
+        return n;
+    }
+
+    /** Pedidos por páginas; las líneas de cada página, en una consulta por rango de ids. */
+    private long escribirPedidos(JsonGenerator gen, int despues, int limite)
+            throws SQLException, IOException, InterruptedException {
+        gen.writeStartArray();
+        long n = 0;
+        int ultimo = despues;
+        while (n < limite) {
+            int pedida = (int) Math.min(PAGINA, limite - n);
+            int desde = ultimo;
+            List<Pedido> pagina = leer(() -> pedidos.findPageAfter(desde, pedida));
+            if (pagina.isEmpty()) break;
+
+            int hasta = pagina.get(pagina.size() - 1).getId();
+            List<DetallePedido> suyas = leer(() -> lineas.findByPedidoRango(desde, hasta));
+            int j = 0;
+            for (Pedido p : pagina) {
+                // Las dos listas van ordenadas por id de pedido
+                List<DetallePedido> delPedido = new ArrayList<>();
+                while (j < suyas.size() && suyas.get(j).getPedidoId() < p.getId()) j++;
+                while (j < suyas.size() && suyas.get(j).getPedidoId().equals(p.getId())) delPedido.add(suyas.get(j++));
+                p.setLineas(delPedido);
+                gen.writeObject(p);
+            }
+            n += pagina.size();
+            if (pagina.size() < pedida) break;
+            ultimo = hasta;
+        }
+        gen.writeEndArray();
+        return n;
+    }
+
+    /** Hace la lectura con un turno de enCurso, que se suelta antes de escribir nada. */
+    private <T> T leer(Lectura<T> lectura) throws SQLException, InterruptedException {
+        enCurso.acquire();
+        try {
+            return lectura.leer();
+        } finally {
+            enCurso.release();
+        }
+    }
+
+    private static void enviarError(HttpExchange ex, int estado, String mensaje) throws IOException {
+        byte[] cuerpo = JsonIO.toLine(Map.of("error", mensaje == null ? "" : mensaje));
+        ex.getResponseHeaders().set("Content-Type", JSON);
+        ex.sendResponseHeaders(estado, cuerpo.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(cuerpo);
+        }
+    }
+
+    // =========================================================
+    // PARÁMETROS
+    // =========================================================
+
+    private static Map<String, String> parametros(String query) {
+        Map<String, String> out = new HashMap<>();
+        if (query == null || query.isEmpty()) return out;
+        for (String par : query.split("&")) {
+            int igual = par.indexOf('=');
+            String clave = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            out.put(URLDecoder.decode(clave, StandardCharsets.UTF_8), URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static int id(String texto) throws PeticionIncorrecta {
+        try {
+            return Integer.parseInt(texto);
+        } catch (NumberFormatException e) {
+            throw new PeticionIncorrecta("Id no válido: " + texto);
+        }
+    }
+
+    private static int entero(Map<String, String> q, String nombre, int porDefecto) throws PeticionIncorrecta {
+        String s = q.get(nombre);
+        if (s == null) return porDefecto;
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new PeticionIncorrecta(nombre + ": se esperaba un entero: " + s);
+        }
+    }
+
+    private static int positivo(Map<String, String> q, String nombre, int porDefecto) throws PeticionIncorrecta {
+        int n = entero(q, nombre, porDefecto);
+        if (n <= 0) throw new PeticionIncorrecta(nombre + ": debe ser mayor que 0");
+        return n;
+    }
+
+    // =========================================================
+    // RESPUESTA
+    // =========================================================
+
+    /**
+     * Cuerpo de la respuesta: se guarda en memoria mientras no pase de
+     * MAX_CON_ETAG (y al terminar se envía con ETag, o 304); si pasa, se
+     * envían las cabeceras y sigue por trozos según se escribe.
+     */
+    private static final class SalidaRespuesta extends OutputStream {
+
+        private final HttpExchange ex;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(8 * 1024);
+        private OutputStream cuerpo;
+
+        SalidaRespuesta(HttpExchange ex) {
+            this.ex = ex;
+        }
+
+        /** Ya se han enviado las cabeceras (200) y parte del cuerpo. */
+        boolean enviando() {
+            return cuerpo != null;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (cuerpo == null) {
+                if (buffer.size() + len <= MAX_CON_ETAG) {
+                    buffer.write(b, off, len);
+                    return;
+                }
+                ex.sendResponseHeaders(200, 0);   // 0 = longitud desconocida: chunked
+                cuerpo = new BufferedOutputStream(ex.getResponseBody(), TAM_BUFFER);
+                buffer.writeTo(cuerpo);
+                buffer = null;
+            }
+            cuerpo.write(b, off, len);
+        }
+
+        void terminar() throws IOException {
+            if (cuerpo != null) {
+                cuerpo.close();
+                return;
+            }
+            byte[] bytes = buffer.toByteArray();
+            String etag = etag(bytes);
+            ex.getResponseHeaders().set("ETag", etag);
+            ex.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (coincide(ex.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                ex.sendResponseHeaders(304, -1);
+                return;
+            }
+            ex.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+
+        private static String etag(byte[] cuerpo) {
+            try {
+                byte[] hash = MessageDigest.getInstance("SHA-256").digest(cuerpo);
+                return '"' + HexFormat.of().formatHex(hash, 0, 16) + '"';
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);   // SHA-256 está en todas las JVM
+            }
+        }
+
+        /** If-None-Match: "*" o lista de ETags (los débiles W/"..." también valen). */
+        private static boolean coincide(String ifNoneMatch, String etag) {
+            if (ifNoneMatch == null) return false;
+            for (String candidato : ifNoneMatch.split(",")) {
+                String c = candidato.strip();
+                if (c.startsWith("W/")) c = c.substring(2);
+                if (c.equals("*") || c.equals(etag)) return true;
+            }
+            return false;
+        }
+    }
+}
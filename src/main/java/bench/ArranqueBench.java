@@ -0,0 +1,122 @@
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark de arranque de LampreasVioletaApp: tiempo hasta el primer frame
+ * y hasta que la tabla tiene datos de la BD (interactivo).
+ *
+ * Cada medición es una JVM nueva (el arranque en frío es lo que se mide):
+ * lanza la aplicación con -Dlampreas.bench.arranque=true, que imprime sus
+ * hitos (ver app.Arranque) y se cierra sola. Se alternan los modos
+ * "rápido" (caché en disco + conexiones precalentadas) y "normal", y se
+ * descartan las primeras ejecuciones de cada uno (caché de disco del SO,
+ * caché de la primera página, JIT del servidor...).
+ *
+ * Para que sea reproducible: misma BD (mismas filas), misma máquina y
+ * mismas opciones de JVM; la caché de disco se guarda en un directorio
+ * propio (target/arranque-bench) para no depender del usuario.
+ *
+ * Necesita pantalla (o xvfb-run) y PostgreSQL accesible (variables PG_*).
+ *
+ * Uso: bench.ArranqueBench [ejecuciones] [calentamiento]
+ */
+public class ArranqueBench {
+
+    private static final String[] HITOS = {"ventana", "primer-frame", "primeras-filas", "interactivo"};
+    private static final Pattern HITO = Pattern.compile("\"([a-z-]+)\":(\\d+)");
+    private static final long TIEMPO_MAXIMO_S = 60;
+
+    public static void main(String[] args) throws Exception {
+        int ejecuciones = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int calentamiento = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+
+        Map<Boolean, Map<String, List<Long>>> resultados = new LinkedHashMap<>();
+        resultados.put(true, new LinkedHashMap<>());
+        resultados.put(false, new LinkedHashMap<>());
+
+        for (int i = 0; i < calentamiento + ejecuciones; i++) {
+            for (boolean rapido : new boolean[]{true, false}) {
+                Map<String, Long> hitos = lanzar(rapido);
+                if (hitos == null) {
+                    System.err.println("Ejecución " + i + (rapido ? " (rápido)" : " (normal)") + " sin resultado");
+                    continue;
+                }
+                if (i < calentamiento) continue;
+                hitos.forEach((k, v) -> resultados.get(rapido).computeIfAbsent(k, x -> new ArrayList<>()).add(v));
+            }
+        }
+
+        System.out.printf("%-8s %-16s %6s %8s %8s %8s%n", "modo", "hito (ms)", "n", "mediana", "p90", "mín");
+        for (Map.Entry<Boolean, Map<String, List<Long>>> modo : resultados.entrySet()) {
+            for (String hito : HITOS) {
+                List<Long> v = modo.getValue().get(hito);
+                if (v == null || v.isEmpty()) continue;
+                Collections.sort(v);
+                System.out.printf("%-8s %-16s %6d %8d %8d %8d%n",
+                        modo.getKey() ? "rápido" : "normal", hito, v.size(),
+                        v.get(v.size() / 2), v.get((int) Math.ceil(v.size() * 0.9) - 1), v.get(0));
+            }
+        }
+    }
+
+    /** Lanza la aplicación en una JVM nueva y devuelve sus hitos (null si no llegó a interactiva). */
+    private static Map<String, Long> lanzar(boolean rapido) throws IOException, InterruptedException {
+        // JavaFX desde el classpath no arranca: sus jars van al module-path
+        List<String> classpath = new ArrayList<>();
+        List<String> modulos = new ArrayList<>();
+        for (String entrada : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (new File(entrada).getName().startsWith("javafx-")) modulos.add(entrada);
+            else classpath.add(entrada);
+        }
+
+        List<String> cmd = new ArrayList<>(List.of(
+                ProcessHandle.current().info().command().orElse("java"),
+                "-Dlampreas.bench.arranque=true",
+                "-Dlampreas.arranqueRapido=" + rapido,
+                "-Dlampreas.cache.dir=" + new File("target", "arranque-bench").getAbsolutePath()));
+        if (!modulos.isEmpty()) {
+            cmd.addAll(List.of("--module-path", String.join(File.pathSeparator, modulos),
+                    "--add-modules", "javafx.controls"));
+        }
+        cmd.addAll(List.of("-cp", String.join(File.pathSeparator, classpath), "app.LampreasVioletaApp"));
+
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        // La salida se lee en otro hilo: si la aplicación se cuelga sin cerrarla,
+        // readLine() no volvería nunca y el tiempo máximo no se aplicaría
+        AtomicReference<Map<String, Long>> hitos = new AtomicReference<>();
+        Thread lector = new Thread(() -> leerHitos(p, hitos), "ArranqueBench-salida");
+        lector.setDaemon(true);
+        lector.start();
+        if (!p.waitFor(TIEMPO_MAXIMO_S, TimeUnit.SECONDS)) {
+            System.err.println("La aplicación no terminó en " + TIEMPO_MAXIMO_S + " s: se mata");
+            p.destroyForcibly().waitFor();
+        }
+        lector.join(TimeUnit.SECONDS.toMillis(5));
+        return hitos.get();
+    }
+
+    private static void leerHitos(Process p, AtomicReference<Map<String, Long>> hitos) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            String linea;
+            while ((linea = in.readLine()) != null) {
+                if (!linea.startsWith("ARRANQUE ")) continue;
+                Map<String, Long> leidos = new LinkedHashMap<>();
+                Matcher m = HITO.matcher(linea);
+                while (m.find()) leidos.put(m.group(1), Long.parseLong(m.group(2)));
+                hitos.set(leidos);
+            }
+        } catch (IOException e) {
+            // Se cerró al matar el proceso: vale lo leído hasta entonces
+        }
+    }
+}
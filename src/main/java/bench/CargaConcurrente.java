@@ -0,0 +1,304 @@
+package bench;
+
+import dao.CancelacionConsulta;
+import dao.CacheConsultas;
+import dao.ClienteDAO;
+import dao.ProductoDAO;
+import db.Db;
+import metrics.Histograma;
+import metrics.PublicacionMetricas;
+import model.*;
+import services.ClienteDetalle;
+import services.PedidoCompleto;
+import util.Hilos;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Prueba de carga concurrente de DAOs y servicios: muchos "usuarios" a la
+ * vez haciendo una mezcla de operaciones, a un ritmo fijo.
+ *
+ * Bucle abierto: las operaciones se lanzan a la tasa pedida (--tasa por
+ * segundo) aunque las anteriores no hayan terminado, como llegan las
+ * peticiones de usuarios reales. Cada una tiene una hora prevista de inicio
+ * y su latencia de respuesta se mide desde ella, no desde que empezó de
+ * verdad: si el sistema se atasca, el tiempo que las peticiones pasan
+ * esperando cuenta (corrección de "coordinated omission"). La latencia de
+ * servicio (desde que empieza de verdad) se muestra aparte: si las dos se
+ * separan, hay cola.
+ *
+ * Cada operación se ejecuta en su propio hilo virtual si la JVM los tiene
+ * (Java 21+); si no, en un pool de --en-curso hilos. En los dos casos no hay
+ * más de --en-curso a la vez (el resto espera, y esa espera cuenta). Las
+ * conexiones las limita Db (lampreas.db.maxConexiones): con más operaciones
+ * en curso que conexiones, las que sobran esperan en getConnection(), y esa
+ * espera también cuenta.
+ *
+ * Operaciones (--mezcla, pesos relativos):
+ *  - lookup:  ClienteDAO.findById de un cliente al azar
+ *  - search:  ClienteDAO.search (LIMIT 50) con un texto al azar
+ *  - pedido:  PedidoCompleto.guardarPedidoCompleto con 1-5 líneas
+ *  - cliente: ClienteDetalle.guardarClienteCompleto
+ * Lo insertado usa ids a partir de PRIMER_ID y se borra al terminar.
+ *
+ * Necesita PostgreSQL con clientes y productos (variables PG_*); se pueden
+ * crear con "DemoRelaciones generate".
+ *
+ * Uso: bench.CargaConcurrente [--tasa N] [--duracion S] [--calentamiento S]
+ *      [--mezcla lookup=60,search=25,pedido=10,cliente=5] [--en-curso N] [--semilla N]
+ */
+public class CargaConcurrente {
+
+    /** Ids de lo que inserta la prueba (se borra al terminar). */
+    static final int PRIMER_ID = 1_600_000_000;
+
+    // Precisión de los histogramas: < 1 % de error en los percentiles
+    private static final int BITS_PRECISION = 7;
+
+    private static final String[] BUSQUEDAS = {
+            "garcía", "martín", "ana", "josé", "lópez", "gmail", "hotmail", "maría", "ruiz", "sanz", "luis", "zzz"};
+
+    enum TipoOp { LOOKUP, SEARCH, PEDIDO, CLIENTE }
+
+    /** Estadísticas de un tipo de operación (solo lo que empieza tras el calentamiento). */
+    static final class Resultado {
+        final Histograma respuesta = new Histograma(BITS_PRECISION);
+        final Histograma servicio = new Histograma(BITS_PRECISION);
+        final LongAdder errores = new LongAdder();
+        final Map<String, LongAdder> erroresPorTipo = new ConcurrentHashMap<>();
+    }
+
+    private final Map<TipoOp, Resultado> resultados = new EnumMap<>(TipoOp.class);
+    private final ClienteDAO clienteDAO = new ClienteDAO();
+    private final ClienteDetalle clienteDetalle = new ClienteDetalle();
+    private final PedidoCompleto pedidoCompleto = new PedidoCompleto();
+    private final AtomicInteger siguienteId = new AtomicInteger(PRIMER_ID);
+    private final AtomicInteger enCursoMax = new AtomicInteger();
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    private final int[] idsClientes;
+    private final int[] idsProductos;
+    private final Map<Integer, Double> precios = new HashMap<>();
+
+    private CargaConcurrente() throws SQLException {
+        for (TipoOp t : TipoOp.values()) resultados.put(t, new Resultado());
+
+        IntStream.Builder b = IntStream.builder();
+        clienteDAO.cargarIds(b);
+        idsClientes = b.build().sorted().toArray();
+        for (Producto p : new ProductoDAO().findAll()) precios.put(p.getId(), p.getPrecio());
+        idsProductos = precios.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        if (idsClientes.length == 0 || idsProductos.length == 0) {
+            throw new IllegalStateException("Hacen falta clientes y productos en la BD (ver DemoRelaciones generate)");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> op = opciones(args);
+        double tasa = Double.parseDouble(op.getOrDefault("--tasa", "200"));
+        int duracion = Integer.parseInt(op.getOrDefault("--duracion", "60"));
+        int calentamiento = Integer.parseInt(op.getOrDefault("--calentamiento", "10"));
+        int maxEnCurso = Integer.parseInt(op.getOrDefault("--en-curso", "256"));
+        long semilla = Long.parseLong(op.getOrDefault("--semilla", "42"));
+        Map<TipoOp, Integer> mezcla = mezcla(op.getOrDefault("--mezcla", "lookup=60,search=25,pedido=10,cliente=5"));
+
+        // Durante la prueba, las métricas por sentencia se ven también por JMX
+        PublicacionMetricas.iniciar();
+        CargaConcurrente carga = new CargaConcurrente();
+        try {
+            borrarInsertados();
+            long retrasoMax = carga.ejecutar(tasa, calentamiento, duracion, maxEnCurso, semilla, mezcla);
+            carga.informe(tasa, duracion, maxEnCurso, retrasoMax);
+        } finally {
+            borrarInsertados();
+            Db.cerrar();
+            PublicacionMetricas.detener();
+        }
+    }
+
+    /**
+     * Lanza operaciones a la tasa pedida durante calentamiento + duración
+     * segundos y espera a que terminen. Devuelve el máximo retraso del propio
+     * lanzador (si es grande, la prueba no llegó a la tasa pedida).
+     */
+    private long ejecutar(double tasa, int calentamientoS, int duracionS, int maxEnCurso, long semilla,
+                          Map<TipoOp, Integer> mezcla) throws InterruptedException {
+        TipoOp[] tabla = tablaMezcla(mezcla);
+        Semaphore permisos = new Semaphore(maxEnCurso);
+        ExecutorService ejecutor = Hilos.unoPorTarea(maxEnCurso);
+        SplittableRandom rnd = new SplittableRandom(semilla);
+
+        long intervalo = Math.max(1, (long) (1e9 / tasa));
+        long inicio = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        long inicioMedida = inicio + TimeUnit.SECONDS.toNanos(calentamientoS);
+        long fin = inicioMedida + TimeUnit.SECONDS.toNanos(duracionS);
+        long retrasoMax = 0;
+
+        System.err.printf("Carga: %.0f op/s, %d s (+%d s de calentamiento), hasta %d en curso, %s%n",
+                tasa, duracionS, calentamientoS, maxEnCurso, mezcla);
+
+        for (long i = 0; ; i++) {
+            long previsto = inicio + i * intervalo;
+            if (previsto >= fin) break;
+            long ahora;
+            while ((ahora = System.nanoTime()) < previsto) LockSupport.parkNanos(previsto - ahora);
+            retrasoMax = Math.max(retrasoMax, ahora - previsto);
+
+            TipoOp tipo = tabla[rnd.nextInt(tabla.length)];
+            long semillaOp = rnd.nextLong();
+            Resultado r = previsto >= inicioMedida ? resultados.get(tipo) : null;
+            ejecutor.execute(() -> medir(tipo, previsto, semillaOp, permisos, r));
+        }
+
+        ejecutor.shutdown();
+        if (!ejecutor.awaitTermination(2, TimeUnit.MINUTES)) {
+            System.err.println("Quedan operaciones sin terminar tras 2 minutos");
+            ejecutor.shutdownNow();
+        }
+        return retrasoMax;
+    }
+
+    /** Una operación; r == null durante el calentamiento (no se anota). */
+    private void medir(TipoOp tipo, long previsto, long semillaOp, Semaphore permisos, Resultado r) {
+        try {
+            permisos.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        enCursoMax.accumulateAndGet(enCurso.incrementAndGet(), Math::max);
+        long t0 = System.nanoTime();
+        try {
+            operacion(tipo, new SplittableRandom(semillaOp));
+            long t1 = System.nanoTime();
+            if (r != null) {
+                r.respuesta.registrar(t1 - previsto);
+                r.servicio.registrar(t1 - t0);
+            }
+        } catch (Exception e) {
+            if (r != null) {
+                r.errores.increment();
+                String clave = e instanceof SQLException s && s.getSQLState() != null
+                        ? "SQLState " + s.getSQLState() : e.getClass().getSimpleName();
+                r.erroresPorTipo.computeIfAbsent(clave, k -> new LongAdder()).increment();
+            }
+        } finally {
+            enCurso.decrementAndGet();
+            permisos.release();
+        }
+    }
+
+    private void operacion(TipoOp tipo, SplittableRandom rnd) throws SQLException {
+        switch (tipo) {
+            case LOOKUP -> clienteDAO.findById(idsClientes[rnd.nextInt(idsClientes.length)]);
+            case SEARCH -> clienteDAO.search(BUSQUEDAS[rnd.nextInt(BUSQUEDAS.length)], 50, new CancelacionConsulta());
+            case PEDIDO -> {
+                int id = siguienteId.getAndIncrement();
+                Pedido p = new Pedido(id, idsClientes[rnd.nextInt(idsClientes.length)], LocalDate.now());
+                int n = 1 + rnd.nextInt(5);
+                Set<Integer> productos = new LinkedHashSet<>();
+                while (productos.size() < Math.min(n, idsProductos.length)) {
+                    productos.add(idsProductos[rnd.nextInt(idsProductos.length)]);
+                }
+                List<DetallePedido> lineas = new ArrayList<>(productos.size());
+                for (int producto : productos) {
+                    lineas.add(new DetallePedido(id, producto, 1 + rnd.nextInt(3), precios.get(producto)));
+                }
+                pedidoCompleto.guardarPedidoCompleto(p, lineas);
+            }
+            case CLIENTE -> {
+                int id = siguienteId.getAndIncrement();
+                clienteDetalle.guardarClienteCompleto(
+                        new Cliente(id, "Carga " + id, "carga" + id + "@example.com"),
+                        new DetalleCliente(id, "Calle Carga " + id, "600000000", ""));
+            }
+        }
+    }
+
+    private void informe(double tasa, int duracionS, int maxEnCurso, long retrasoMax) {
+        System.out.printf("%-8s %8s %7s %7s %9s %9s %9s %9s %9s %12s%n",
+                "op", "ok", "errores", "% err", "op/s", "p50 ms", "p99 ms", "p99.9 ms", "máx ms", "p99 serv ms");
+        long totalOk = 0, totalErr = 0;
+        for (Map.Entry<TipoOp, Resultado> e : resultados.entrySet()) {
+            Resultado r = e.getValue();
+            long ok = r.respuesta.cuenta();
+            long err = r.errores.sum();
+            if (ok + err == 0) continue;
+            totalOk += ok;
+            totalErr += err;
+            System.out.printf(Locale.ROOT, "%-8s %8d %7d %7.2f %9.1f %9.2f %9.2f %9.2f %9.2f %12.2f%n",
+                    e.getKey().name().toLowerCase(Locale.ROOT), ok, err, 100.0 * err / (ok + err),
+                    (double) ok / duracionS, ms(r.respuesta.percentil(0.50)), ms(r.respuesta.percentil(0.99)),
+                    ms(r.respuesta.percentil(0.999)), ms(r.respuesta.max()), ms(r.servicio.percentil(0.99)));
+            r.erroresPorTipo.forEach((tipo, n) -> System.out.printf("           %s: %d%n", tipo, n.sum()));
+        }
+        System.out.printf(Locale.ROOT, "Total: %.1f op/s completadas de %.1f pedidas, %.2f %% errores, "
+                        + "máx. en curso %d de %d, retraso máx. del lanzador %.2f ms%n",
+                (double) (totalOk + totalErr) / duracionS, tasa, 100.0 * totalErr / Math.max(1, totalOk + totalErr),
+                enCursoMax.get(), maxEnCurso, ms(retrasoMax));
+        CacheConsultas.Estadisticas c = CacheConsultas.GLOBAL.estadisticas();
+        System.out.printf(Locale.ROOT, "Caché de consultas: %.1f %% aciertos (%d aciertos, %d compartidas, %d fallos), "
+                        + "%d entradas, %.1f MB%n",
+                100 * c.tasaAciertos(), c.aciertos(), c.compartidas(), c.fallos(), c.entradas(), c.bytes() / 1e6);
+    }
+
+    // ------------------------------------------------------------------
+    //  AUXILIARES
+    // ------------------------------------------------------------------
+
+    /** Cada tipo repetido tantas veces como su peso: elegir es un índice al azar. */
+    private static TipoOp[] tablaMezcla(Map<TipoOp, Integer> mezcla) {
+        List<TipoOp> out = new ArrayList<>();
+        mezcla.forEach((t, peso) -> out.addAll(Collections.nCopies(peso, t)));
+        if (out.isEmpty()) throw new IllegalArgumentException("La mezcla no tiene ninguna operación");
+        return out.toArray(new TipoOp[0]);
+    }
+
+    private static Map<TipoOp, Integer> mezcla(String texto) {
+        Map<TipoOp, Integer> out = new EnumMap<>(TipoOp.class);
+        for (String parte : texto.split(",")) {
+            String[] kv = parte.split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Mezcla no válida: " + texto);
+            int peso = Integer.parseInt(kv[1].strip());
+            if (peso < 0) throw new IllegalArgumentException("Peso negativo: " + parte);
+            out.put(TipoOp.valueOf(kv[0].strip().toUpperCase(Locale.ROOT)), peso);
+        }
+        return out;
+    }
+
+    private static Map<String, String> opciones(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Argumento no válido: " + args[i]);
+            }
+            out.put(args[i], args[i + 1]);
+        }
+        return out;
+    }
+
+    /** Borra lo que ha insertado esta prueba (o una anterior que se cortó). */
+    private static void borrarInsertados() throws SQLException {
+        try (Connection con = Db.getConnection();
+             Statement st = con.createStatement()) {
+            st.executeUpdate("DELETE FROM detalle_pedido WHERE pedido_id >= " + PRIMER_ID);
+            st.executeUpdate("DELETE FROM pedido WHERE id >= " + PRIMER_ID);
+            st.executeUpdate("DELETE FROM detalle_cliente WHERE id >= " + PRIMER_ID);
+            st.executeUpdate("DELETE FROM cliente WHERE id >= " + PRIMER_ID);
+        }
+        CacheConsultas.GLOBAL.invalidar("cliente");
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
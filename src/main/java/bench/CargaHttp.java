@@ -0,0 +1,255 @@
+package bench;
+
+import app.ServidorApi;
+import dao.ClienteDAO;
+import dao.PedidoDAO;
+import db.Db;
+import metrics.Histograma;
+import util.Hilos;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Rendimiento máximo de la API HTTP (ServidorApi): --conexiones clientes
+ * que envían peticiones sin pausa, cada uno en cuanto recibe la respuesta
+ * anterior, durante --duracion segundos.
+ *
+ * Es un bucle cerrado: mide peticiones/s con esa concurrencia. Las
+ * latencias son las de servicio; cuando el servidor se satura no incluyen
+ * la cola que tendrían usuarios reales (para eso, CargaConcurrente, que
+ * lanza a ritmo fijo).
+ *
+ * Peticiones (--mezcla, pesos relativos):
+ *  - cliente:   /api/clientes/{id} de un cliente al azar
+ *  - buscar:    /api/clientes/buscar?q=... con un texto al azar
+ *  - productos: /api/productos, con If-None-Match del último ETag recibido
+ *               (--etag false para pedirlo siempre entero)
+ *  - pedido:    /api/pedidos/{id} (con líneas) de un pedido al azar
+ *  - pagina:    /api/clientes?despues=ID&amp;limite=100 desde un id al azar
+ *
+ * Sin --url arranca el servidor en esta misma JVM (puerto libre). Los ids
+ * se leen de la BD con los DAO (variables PG_*: la misma que usa el
+ * servidor); se pueden crear datos con "DemoRelaciones generate".
+ *
+ * Uso: bench.CargaHttp [--url http://localhost:8080] [--conexiones N] [--duracion S]
+ *      [--calentamiento S] [--mezcla cliente=40,buscar=15,productos=20,pedido=15,pagina=10]
+ *      [--etag true|false] [--en-curso N] [--semilla N]
+ */
+public class CargaHttp {
+
+    private static final int BITS_PRECISION = 7;
+
+    private static final String[] BUSQUEDAS = {
+            "garcía", "martín", "ana", "josé", "lópez", "gmail", "hotmail", "maría", "ruiz", "sanz", "luis", "zzz"};
+
+    enum TipoPeticion { CLIENTE, BUSCAR, PRODUCTOS, PEDIDO, PAGINA }
+
+    /** Estadísticas de un tipo de petición (solo tras el calentamiento). */
+    static final class Resultado {
+        final Histograma latencia = new Histograma(BITS_PRECISION);
+        final Map<String, LongAdder> porEstado = new ConcurrentSkipListMap<>();
+        final LongAdder bytes = new LongAdder();
+    }
+
+    private final Map<TipoPeticion, Resultado> resultados = new EnumMap<>(TipoPeticion.class);
+    private final HttpClient cliente = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicReference<String> etagProductos = new AtomicReference<>();
+
+    private final String base;
+    private final boolean usarEtag;
+    private final int[] idsClientes;
+    private final int[] idsPedidos;
+
+    private CargaHttp(String base, boolean usarEtag) throws Exception {
+        this.base = base;
+        this.usarEtag = usarEtag;
+        for (TipoPeticion t : TipoPeticion.values()) resultados.put(t, new Resultado());
+
+        IntStream.Builder b = IntStream.builder();
+        new ClienteDAO().cargarIds(b);
+        idsClientes = b.build().sorted().toArray();
+        IntStream.Builder p = IntStream.builder();
+        new PedidoDAO().cargarIds(p);
+        idsPedidos = p.build().sorted().toArray();
+        if (idsClientes.length == 0 || idsPedidos.length == 0) {
+            throw new IllegalStateException("Hacen falta clientes y pedidos en la BD (ver DemoRelaciones generate)");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> op = opciones(args);
+        int conexiones = Integer.parseInt(op.getOrDefault("--conexiones", "64"));
+        int duracion = Integer.parseInt(op.getOrDefault("--duracion", "30"));
+        int calentamiento = Integer.parseInt(op.getOrDefault("--calentamiento", "5"));
+        int enCurso = Integer.parseInt(op.getOrDefault("--en-curso", String.valueOf(ServidorApi.EN_CURSO_POR_DEFECTO)));
+        boolean usarEtag = Boolean.parseBoolean(op.getOrDefault("--etag", "true"));
+        long semilla = Long.parseLong(op.getOrDefault("--semilla", "42"));
+        Map<TipoPeticion, Integer> mezcla = mezcla(
+                op.getOrDefault("--mezcla", "cliente=40,buscar=15,productos=20,pedido=15,pagina=10"));
+
+        ServidorApi local = null;
+        String url = op.get("--url");
+        if (url == null) {
+            local = ServidorApi.iniciar(new InetSocketAddress("localhost", 0), enCurso);
+            url = "http://localhost:" + local.puerto();
+            System.err.println("Servidor en esta JVM: " + url + "/api/ (hasta " + enCurso + " en curso)");
+        }
+        try {
+            CargaHttp carga = new CargaHttp(url.replaceAll("/+$", ""), usarEtag);
+            long nanosMedidos = carga.ejecutar(conexiones, calentamiento, duracion, semilla, mezcla);
+            carga.informe(conexiones, nanosMedidos);
+        } finally {
+            if (local != null) local.detener(1);
+            Db.cerrar();
+        }
+    }
+
+    /** Lanza los clientes, espera a que acaben y devuelve el tiempo medido (sin calentamiento). */
+    private long ejecutar(int conexiones, int calentamientoS, int duracionS, long semilla,
+                          Map<TipoPeticion, Integer> mezcla) throws InterruptedException {
+        TipoPeticion[] tabla = tablaMezcla(mezcla);
+        long inicioMedida = System.nanoTime() + TimeUnit.SECONDS.toNanos(calentamientoS);
+        long fin = inicioMedida + TimeUnit.SECONDS.toNanos(duracionS);
+
+        System.err.printf("Carga HTTP: %d conexiones, %d s (+%d s de calentamiento), %s, ETag %s%n",
+                conexiones, duracionS, calentamientoS, mezcla, usarEtag ? "sí" : "no");
+
+        ExecutorService ejecutor = Hilos.unoPorTarea(conexiones);
+        SplittableRandom raiz = new SplittableRandom(semilla);
+        for (int i = 0; i < conexiones; i++) {
+            SplittableRandom rnd = raiz.split();
+            ejecutor.execute(() -> {
+                long ahora;
+                while ((ahora = System.nanoTime()) < fin) {
+                    TipoPeticion tipo = tabla[rnd.nextInt(tabla.length)];
+                    peticion(tipo, rnd, ahora >= inicioMedida ? resultados.get(tipo) : null);
+                }
+            });
+        }
+        ejecutor.shutdown();
+        if (!ejecutor.awaitTermination(duracionS + calentamientoS + 60L, TimeUnit.SECONDS)) {
+            System.err.println("Quedan peticiones sin terminar");
+            ejecutor.shutdownNow();
+        }
+        return fin - inicioMedida;
+    }
+
+    /** Una petición; r == null durante el calentamiento (no se anota). */
+    private void peticion(TipoPeticion tipo, SplittableRandom rnd, Resultado r) {
+        HttpRequest.Builder req = HttpRequest.newBuilder(URI.create(base + camino(tipo, rnd)))
+                .timeout(Duration.ofSeconds(30));
+        String etag = tipo == TipoPeticion.PRODUCTOS && usarEtag ? etagProductos.get() : null;
+        if (etag != null) req.header("If-None-Match", etag);
+
+        long t0 = System.nanoTime();
+        String estado;
+        long bytes = 0;
+        try {
+            HttpResponse<byte[]> resp = cliente.send(req.build(), HttpResponse.BodyHandlers.ofByteArray());
+            estado = String.valueOf(resp.statusCode());
+            bytes = resp.body().length;
+            if (tipo == TipoPeticion.PRODUCTOS && resp.statusCode() == 200) {
+                resp.headers().firstValue("ETag").ifPresent(etagProductos::set);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            estado = e.getClass().getSimpleName();
+        }
+        if (r != null) {
+            r.latencia.registrar(System.nanoTime() - t0);
+            r.porEstado.computeIfAbsent(estado, k -> new LongAdder()).increment();
+            r.bytes.add(bytes);
+        }
+    }
+
+    private String camino(TipoPeticion tipo, SplittableRandom rnd) {
+        return switch (tipo) {
+            case CLIENTE -> "/api/clientes/" + idsClientes[rnd.nextInt(idsClientes.length)];
+            case BUSCAR -> "/api/clientes/buscar?q="
+                    + URLEncoder.encode(BUSQUEDAS[rnd.nextInt(BUSQUEDAS.length)], StandardCharsets.UTF_8);
+            case PRODUCTOS -> "/api/productos";
+            case PEDIDO -> "/api/pedidos/" + idsPedidos[rnd.nextInt(idsPedidos.length)];
+            case PAGINA -> "/api/clientes?limite=100&despues=" + idsClientes[rnd.nextInt(idsClientes.length)];
+        };
+    }
+
+    private void informe(int conexiones, long nanosMedidos) {
+        double seg = nanosMedidos / 1e9;
+        System.out.printf("%-10s %9s %9s %9s %9s %9s %10s  %s%n",
+                "petición", "total", "pet/s", "p50 ms", "p99 ms", "máx ms", "KB/pet", "estados");
+        long total = 0, bytes = 0, fallidas = 0;
+        for (Map.Entry<TipoPeticion, Resultado> e : resultados.entrySet()) {
+            Resultado r = e.getValue();
+            long n = r.latencia.cuenta();
+            if (n == 0) continue;
+            total += n;
+            bytes += r.bytes.sum();
+            StringBuilder estados = new StringBuilder();
+            for (Map.Entry<String, LongAdder> s : r.porEstado.entrySet()) {
+                if (!s.getKey().equals("200") && !s.getKey().equals("304")) fallidas += s.getValue().sum();
+                estados.append(s.getKey()).append('=').append(s.getValue().sum()).append(' ');
+            }
+            System.out.printf(Locale.ROOT, "%-10s %9d %9.1f %9.2f %9.2f %9.2f %10.2f  %s%n",
+                    e.getKey().name().toLowerCase(Locale.ROOT), n, n / seg,
+                    ms(r.latencia.percentil(0.50)), ms(r.latencia.percentil(0.99)), ms(r.latencia.max()),
+                    r.bytes.sum() / 1024.0 / n, estados.toString().strip());
+        }
+        System.out.printf(Locale.ROOT, "Total: %.1f peticiones/s con %d conexiones, %.2f MB/s, %d sin 200/304%n",
+                total / seg, conexiones, bytes / seg / 1e6, fallidas);
+    }
+
+    // ------------------------------------------------------------------
+    //  AUXILIARES
+    // ------------------------------------------------------------------
+
+    private static TipoPeticion[] tablaMezcla(Map<TipoPeticion, Integer> mezcla) {
+        List<TipoPeticion> out = new ArrayList<>();
+        mezcla.forEach((t, peso) -> out.addAll(Collections.nCopies(peso, t)));
+        if (out.isEmpty()) throw new IllegalArgumentException("La mezcla no tiene ninguna petición");
+        return out.toArray(new TipoPeticion[0]);
+    }
+
+    private static Map<TipoPeticion, Integer> mezcla(String texto) {
+        Map<TipoPeticion, Integer> out = new EnumMap<>(TipoPeticion.class);
+        for (String parte : texto.split(",")) {
+            String[] kv = parte.split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Mezcla no válida: " + texto);
+            int peso = Integer.parseInt(kv[1].strip());
+            if (peso < 0) throw new IllegalArgumentException("Peso negativo: " + parte);
+            out.put(TipoPeticion.valueOf(kv[0].strip().toUpperCase(Locale.ROOT)), peso);
+        }
+        return out;
+    }
+
+    private static Map<String, String> opciones(String[] args) {
+        Map<String, String> out = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Argumento no válido: " + args[i]);
+            }
+            out.put(args[i], args[i + 1]);
+        }
+        return out;
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1e6;
+    }
+}
@@ -0,0 +1,304 @@
+package dao;
+
+import db.Db;
+import metrics.Metricas;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché compartida de resultados de consultas, para las que muchos usuarios
+ * repiten igual (la misma búsqueda, la lista de productos...).
+ *
+ * - Clave: el SQL (la constante del DAO) más los parámetros.
+ * - Cada consulta tiene su TTL: pasado ese tiempo se vuelve a leer de la BD
+ *   aunque nadie haya escrito (por si escribe otro proceso).
+ * - Invalidación por tabla: cada consulta dice de qué tablas lee, y los
+ *   DAO llaman a invalidar() al escribir en una. Con una conexión en
+ *   transacción se invalida al escribir y otra vez tras el commit (lo que
+ *   se leyera entre medias aún no incluía la escritura).
+ * - Memoria acotada: se estima el tamaño de cada resultado y, si el total
+ *   pasa de maxBytes, se quitan los menos usados recientemente.
+ * - Sin estampidas: si varios hilos piden a la vez algo que no está, solo
+ *   uno va a la BD y el resto espera su resultado. Si esa carga falla, cada
+ *   uno lo reintenta por su cuenta (p. ej. si la canceló quien la pidió).
+ * - Los resultados se devuelven copiados (lista y filas): quien los recibe
+ *   los puede modificar sin afectar a los demás.
+ *
+ * Métricas (ver metrics.Metricas): "cache NOMBRE acierto", "... compartida"
+ * (esperó la carga de otro) y "... fallo" (fue a la BD), con su tiempo; la
+ * tasa de aciertos global está en estadisticas().
+ *
+ * Tamaño: propiedad lampreas.cacheConsultas.bytes (32 MB por defecto; 0 = sin caché).
+ */
+public final class CacheConsultas {
+
+    /** La caché de todos los DAO. */
+    public static final CacheConsultas GLOBAL =
+            new CacheConsultas(Long.getLong("lampreas.cacheConsultas.bytes", 32L << 20));
+
+    // Estimación de lo que ocupa cada entrada y cada fila sin contar sus campos
+    private static final long PESO_ENTRADA = 256;
+    private static final long PESO_FILA = 48;
+
+    /** Lee de la BD lo que no está en la caché. */
+    @FunctionalInterface
+    public interface Carga<T> {
+        List<T> cargar() throws SQLException;
+    }
+
+    /**
+     * Una consulta cacheable.
+     *
+     * @param nombre   para las métricas (p. ej. "ClienteDAO.search")
+     * @param sql      la constante SQL del DAO (parte de la clave)
+     * @param tablas   tablas de las que lee (las que la invalidan)
+     * @param pesoFila bytes aproximados de una fila (sin la cabecera del objeto)
+     * @param copiar   copia de una fila para devolver
+     */
+    public record Consulta<T>(String nombre, String sql, Duration ttl, Set<String> tablas,
+                              ToLongFunction<T> pesoFila, UnaryOperator<T> copiar) { }
+
+    public record Estadisticas(long aciertos, long compartidas, long fallos, long expulsiones,
+                               long invalidaciones, int entradas, long bytes) {
+
+        /** Peticiones servidas sin ir a la BD (las compartidas cuentan como acierto). */
+        public double tasaAciertos() {
+            long total = aciertos + compartidas + fallos;
+            return total == 0 ? 0 : (double) (aciertos + compartidas) / total;
+        }
+    }
+
+    private record Clave(String sql, List<Object> parametros) { }
+
+    private static final class Entrada {
+        final CompletableFuture<List<?>> filas = new CompletableFuture<>();
+        final Set<String> tablas;
+        final long[] generaciones;      // de sus tablas al empezar a cargar
+        volatile long caduca;           // System.nanoTime(); se fija antes de completar 'filas'
+        volatile long ultimoUso;
+        long peso;
+        boolean contada;                // su peso está en pesoTotal (con el monitor de la entrada)
+        boolean quitada;
+
+        Entrada(Set<String> tablas, long[] generaciones) {
+            this.tablas = tablas;
+            this.generaciones = generaciones;
+        }
+    }
+
+    private final long maxBytes;
+    private final Map<Clave, Entrada> entradas = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> generaciones = new ConcurrentHashMap<>();
+    private final AtomicLong pesoTotal = new AtomicLong();
+
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder compartidas = new LongAdder();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder expulsiones = new LongAdder();
+    private final LongAdder invalidaciones = new LongAdder();
+
+    public CacheConsultas(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Resultado de la consulta con esos parámetros: de la caché si está y no
+     * ha caducado; si no, lo lee con 'carga' (una sola vez aunque lo pidan
+     * varios hilos a la vez).
+     */
+    public <T> List<T> obtener(Consulta<T> consulta, List<?> parametros, Carga<T> carga) throws SQLException {
+        if (maxBytes <= 0) return carga.cargar();
+
+        // Arrays.asList admite null (List.copyOf no): un parámetro puede serlo
+        Clave clave = new Clave(consulta.sql(), Arrays.asList(parametros.toArray()));
+        long t0 = System.nanoTime();
+
+        while (true) {
+            Entrada e = entradas.get(clave);
+            if (e != null && vigente(e, t0)) {
+                boolean enCarga = !e.filas.isDone();
+                List<?> filas = esperar(e);
+                if (filas == null) {
+                    // Falló la carga de otro hilo: se intenta de nuevo
+                    quitar(clave, e);
+                    continue;
+                }
+                e.ultimoUso = System.nanoTime();
+                (enCarga ? compartidas : aciertos).increment();
+                Metricas.registrarValor("cache " + consulta.nombre() + (enCarga ? " compartida" : " acierto"),
+                        System.nanoTime() - t0);
+                @SuppressWarnings("unchecked")
+                List<T> deLaCache = (List<T>) filas;
+                return copiar(consulta, deLaCache);
+            }
+
+            Entrada nueva = new Entrada(consulta.tablas(), generacionesDe(consulta.tablas()));
+            if (e == null) {
+                if (entradas.putIfAbsent(clave, nueva) != null) continue;
+            } else {
+                if (!entradas.replace(clave, e, nueva)) continue;
+                descontar(e);
+            }
+            return cargar(clave, nueva, consulta, carga, t0);
+        }
+    }
+
+    /** Quita todo lo que lee de 'tabla'. La llaman los DAO al escribir. */
+    public void invalidar(String tabla) {
+        generaciones.computeIfAbsent(tabla, t -> new AtomicLong()).incrementAndGet();
+        invalidaciones.increment();
+        for (Map.Entry<Clave, Entrada> par : entradas.entrySet()) {
+            if (par.getValue().tablas.contains(tabla)) quitar(par.getKey(), par.getValue());
+        }
+    }
+
+    /**
+     * Como invalidar(tabla), para una escritura hecha con 'con': ahora y,
+     * si 'con' está en una transacción, otra vez cuando se confirme.
+     */
+    public void invalidar(Connection con, String tabla) throws SQLException {
+        invalidar(tabla);
+        Db.trasConfirmar(con, () -> invalidar(tabla));
+    }
+
+    /** Vacía la caché (p. ej. tras una carga masiva que no pasa por los DAO). */
+    public void vaciar() {
+        for (Map.Entry<Clave, Entrada> par : entradas.entrySet()) quitar(par.getKey(), par.getValue());
+    }
+
+    public Estadisticas estadisticas() {
+        return new Estadisticas(aciertos.sum(), compartidas.sum(), fallos.sum(), expulsiones.sum(),
+                invalidaciones.sum(), entradas.size(), pesoTotal.get());
+    }
+
+    // ------------------------------------------------------------------
+
+    private <T> List<T> cargar(Clave clave, Entrada nueva, Consulta<T> consulta, Carga<T> carga, long t0)
+            throws SQLException {
+        List<T> filas;
+        try {
+            filas = carga.cargar();
+        } catch (SQLException | RuntimeException ex) {
+            quitar(clave, nueva);
+            nueva.filas.completeExceptionally(ex);
+            throw ex;
+        }
+        fallos.increment();
+        Metricas.registrarValor("cache " + consulta.nombre() + " fallo", System.nanoTime() - t0);
+
+        List<T> guardadas = Collections.unmodifiableList(new ArrayList<>(filas));
+        long peso = PESO_ENTRADA;
+        for (T fila : guardadas) peso += PESO_FILA + consulta.pesoFila().applyAsLong(fila);
+        nueva.peso = peso;
+        nueva.ultimoUso = System.nanoTime();
+        nueva.caduca = nueva.ultimoUso + consulta.ttl().toNanos();
+        nueva.filas.complete(guardadas);
+
+        // Si alguien escribió en sus tablas mientras se leía, puede no incluirlo:
+        // sirve para quien la pidió, pero no se guarda
+        if (invalidadaDesde(nueva)) {
+            quitar(clave, nueva);
+        } else {
+            contar(nueva);
+            if (pesoTotal.get() > maxBytes) expulsar();
+        }
+        // Copia también para quien la cargó: 'filas' son los mismos objetos que 'guardadas'
+        return copiar(consulta, guardadas);
+    }
+
+    private static boolean vigente(Entrada e, long ahora) {
+        if (!e.filas.isDone()) return true;
+        return !e.filas.isCompletedExceptionally() && e.caduca - ahora > 0;
+    }
+
+    /** Filas de la entrada, esperando si aún se están cargando; null si la carga falló. */
+    private static List<?> esperar(Entrada e) throws SQLException {
+        try {
+            return e.filas.get();
+        } catch (ExecutionException ex) {
+            return null;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando un resultado de la caché", ex);
+        }
+    }
+
+    private static <T> List<T> copiar(Consulta<T> consulta, List<T> filas) {
+        List<T> out = new ArrayList<>(filas.size());
+        for (T fila : filas) out.add(consulta.copiar().apply(fila));
+        return out;
+    }
+
+    private long[] generacionesDe(Set<String> tablas) {
+        long[] out = new long[tablas.size()];
+        int i = 0;
+        for (String t : tablas) out[i++] = generaciones.computeIfAbsent(t, x -> new AtomicLong()).get();
+        return out;
+    }
+
+    private boolean invalidadaDesde(Entrada e) {
+        int i = 0;
+        for (String t : e.tablas) {
+            if (generaciones.get(t).get() != e.generaciones[i++]) return true;
+        }
+        return false;
+    }
+
+    private void contar(Entrada e) {
+        synchronized (e) {
+            if (e.quitada) return;
+            e.contada = true;
+            pesoTotal.addAndGet(e.peso);
+        }
+    }
+
+    private void quitar(Clave clave, Entrada e) {
+        if (entradas.remove(clave, e)) descontar(e);
+    }
+
+    private void descontar(Entrada e) {
+        synchronized (e) {
+            e.quitada = true;
+            if (e.contada) pesoTotal.addAndGet(-e.peso);
+            e.contada = false;
+        }
+    }
+
+    /** Quita las entradas usadas hace más tiempo hasta bajar al 90 % de maxBytes. */
+    private synchronized void expulsar() {
+        if (pesoTotal.get() <= maxBytes) return;
+        List<Map.Entry<Clave, Entrada>> cargadas = new ArrayList<>();
+        for (Map.Entry<Clave, Entrada> par : entradas.entrySet()) {
+            if (par.getValue().filas.isDone()) cargadas.add(par);
+        }
+        cargadas.sort(Comparator.comparingLong(par -> par.getValue().ultimoUso));
+
+        long objetivo = maxBytes - maxBytes / 10;
+        for (Map.Entry<Clave, Entrada> par : cargadas) {
+            if (pesoTotal.get() <= objetivo) break;
+            quitar(par.getKey(), par.getValue());
+            expulsiones.increment();
+        }
+    }
+
+    /** Bytes aproximados de un String (para los pesoFila de los DAO). */
+    public static long pesoTexto(String s) {
+        return s == null ? 0 : 40 + s.length();
+    }
+}
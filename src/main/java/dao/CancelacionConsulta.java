@@ -0,0 +1,50 @@
+package dao;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Permite cancelar desde otro hilo una consulta que está en marcha.
+ *
+ * El DAO registra su Statement antes de ejecutarlo; cancelar() llama a
+ * Statement.cancel(), que en PostgreSQL pide al servidor que aborte la
+ * consulta (el hilo que la ejecuta recibe una SQLException 57014).
+ * Si se cancela antes de empezar, registrar() falla y la consulta ni se envía.
+ */
+public class CancelacionConsulta {
+
+    /** SQLState de PostgreSQL para "query_canceled". */
+    public static final String SQLSTATE_CANCELADA = "57014";
+
+    private Statement sentencia;
+    private boolean cancelada;
+
+    /** Lo llama el DAO justo antes de ejecutar. */
+    public synchronized void registrar(Statement st) throws SQLException {
+        if (cancelada) throw new SQLException("Consulta cancelada", SQLSTATE_CANCELADA);
+        sentencia = st;
+    }
+
+    /** Lo llama el DAO al terminar (la sentencia ya no se puede cancelar). */
+    public synchronized void liberar() {
+        sentencia = null;
+    }
+
+    public void cancelar() {
+        Statement st;
+        synchronized (this) {
+            cancelada = true;
+            st = sentencia;
+        }
+        if (st == null) return;
+        try {
+            st.cancel();
+        } catch (SQLException e) {
+            // Ya terminó o la conexión se cerró: no hay nada que cancelar
+        }
+    }
+
+    public synchronized boolean estaCancelada() {
+        return cancelada;
+    }
+}
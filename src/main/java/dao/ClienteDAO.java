@@ -14,8 +14,12 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 // Imports necesarios para el uso del API JDBC de Java.
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 // Usamos listas dinámicas para devolver varios clientes cuando hacemos un SELECT *.
 
 public class ClienteDAO {
@@ -39,6 +43,26 @@ public class ClienteDAO {
             "SELECT id, nombre, email FROM cliente ORDER BY id";
     // Consulta SQL para obtener todos los clientes ordenados por id.
 
+    private static final String SELECT_IDS_SQL =
+            "SELECT id FROM cliente";
+    // Solo los ids: para cebar el filtro de existencia (ExistenciaIds).
+
+    private static final int TAM_FETCH = 10_000;
+    // Filas que trae el driver en cada viaje cuando leemos en streaming.
+
+    private static final String COUNT_SQL =
+            "SELECT count(*) FROM cliente";
+    // Número total de clientes (para saber el tamaño de la tabla paginada).
+
+    private static final String SELECT_PAGE_AFTER_SQL =
+            "SELECT id, nombre, email FROM cliente WHERE id > ? ORDER BY id LIMIT ?";
+    // Página "keyset": los siguientes N clientes después de un id conocido.
+    // Usa el índice de la PK y no recorre las filas anteriores (a diferencia de OFFSET).
+
+    private static final String SELECT_PAGE_OFFSET_SQL =
+            "SELECT id, nombre, email FROM cliente ORDER BY id OFFSET ? LIMIT ?";
+    // Página por posición: solo cuando no conocemos el id anterior (salto con la barra).
+
 
     private static final String SEARCH_SQL = """
                     SELECT id, nombre, email
@@ -46,9 +70,17 @@ public class ClienteDAO {
                     WHERE CAST(id AS TEXT) ILIKE ? 
                         OR nombre ILIKE ?  
                         OR email ILIKE ?
-                    ORDER BY id                    
+                    ORDER BY id
                     """;
 
+    private static final String SEARCH_LIMIT_SQL = SEARCH_SQL + " LIMIT ?";
+
+    private static final CacheConsultas.Consulta<Cliente> CACHE_SEARCH = consultaCacheada(SEARCH_SQL);
+    private static final CacheConsultas.Consulta<Cliente> CACHE_SEARCH_LIMIT = consultaCacheada(SEARCH_LIMIT_SQL);
+    // Las búsquedas se repiten mucho (varios usuarios, borrar y volver a escribir):
+    // se guardan en la caché compartida (ver CacheConsultas), que se invalida al
+    // insertar clientes. TTL corto por si escribe otro proceso.
+
 
     // ----------------------------------------------------------
     // MÉTODO: INSERTAR UN CLIENTE
@@ -71,6 +103,9 @@ public class ClienteDAO {
             ps.executeUpdate();
             // Ejecuta la sentencia. Como es un INSERT, no devuelve ResultSet.
 
+            CacheConsultas.GLOBAL.invalidar("cliente");
+            // Las búsquedas guardadas en caché ya no incluyen este cliente.
+
             // Recuperar el ID generado por PostgreSQL
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -90,6 +125,22 @@ public class ClienteDAO {
             ps.setString(3, c.getEmail());
             ps.executeUpdate();
         }
+        CacheConsultas.GLOBAL.invalidar(con, "cliente");
+    }
+
+    // Versión por lotes: todas las filas viajan en un único executeBatch
+    // sobre la conexión (y la transacción) que le pasa el servicio.
+    public void insertBatch(List<Cliente> clientes, Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(INSERT_SQL)) {
+            for (Cliente c : clientes) {
+                ps.setInt(1, c.getId());
+                ps.setString(2, c.getNombre());
+                ps.setString(3, c.getEmail());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        CacheConsultas.GLOBAL.invalidar(con, "cliente");
     }
 
     // ----------------------------------------------------------
@@ -133,32 +184,128 @@ public class ClienteDAO {
         // Devuelve una lista con todos los clientes de la tabla.
         // Nunca devuelve null; si no hay datos, devuelve lista vacía.
 
-        List<Cliente> out = new ArrayList<>();
-
         try (Connection con = Db.getConnection();
-             PreparedStatement ps = con.prepareStatement(SELECT_ALL_SQL);
-             ResultSet rs = ps.executeQuery()) {
+             PreparedStatement ps = con.prepareStatement(SELECT_ALL_SQL)) {
 
-            while (rs.next()) {
-                // Iteramos por cada fila del ResultSet.
-                // Cada fila se convierte en un objeto Cliente.
+            // Cada fila se convierte en un objeto Cliente (ver leerLista)
+            return leerLista(ps);
+        }
+    }
 
-                Cliente c = new Cliente(
-                        rs.getInt("id"),
-                        rs.getString("nombre"),
-                        rs.getString("email")
-                );
 
-                out.add(c);   // Añadimos el cliente a la lista.
+
+    // ----------------------------------------------------------
+    // MÉTODO: RECORRER SOLO LOS IDS
+    // ----------------------------------------------------------
+
+    public void cargarIds(IntConsumer consumidor) throws SQLException {
+        // Pasa cada id de la tabla al consumidor, sin crear un Cliente por fila.
+        // El driver de PostgreSQL solo lee por bloques (fetchSize) con autocommit
+        // desactivado; si no, cargaría todos los ids en memoria de golpe.
+
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement ps = con.prepareStatement(SELECT_IDS_SQL)) {
+                ps.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(rs.getInt(1));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
             }
         }
+    }
 
-        return out;   // Devolvemos la lista completa.
+    /**
+     * Recorre todas las filas de cliente (ordenadas por id) en streaming:
+     * en memoria solo hay un bloque de TAM_FETCH filas, no la tabla entera.
+     */
+    public void recorrerTodos(Consumer<Cliente> consumidor) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement ps = con.prepareStatement(SELECT_ALL_SQL)) {
+                ps.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(mapRow(rs));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+
+    // ----------------------------------------------------------
+    // MÉTODOS: PAGINACIÓN
+    // ----------------------------------------------------------
+
+    public int count() throws SQLException {
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(COUNT_SQL)) {
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return (int) Math.min(rs.getLong(1), Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    public List<Cliente> findPageAfter(int ultimoId, int limite) throws SQLException {
+        // Los 'limite' clientes con id > ultimoId, ordenados por id.
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(SELECT_PAGE_AFTER_SQL)) {
+            ps.setInt(1, ultimoId);
+            ps.setInt(2, limite);
+            return leerLista(ps);
+        }
+    }
+
+    public List<Cliente> findPageOffset(long offset, int limite) throws SQLException {
+        // Los 'limite' clientes a partir de la posición 'offset' (ordenados por id).
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement ps = con.prepareStatement(SELECT_PAGE_OFFSET_SQL)) {
+            ps.setLong(1, offset);
+            ps.setInt(2, limite);
+            return leerLista(ps);
+        }
+    }
+
+    public void calentar() throws SQLException {
+        // Ejecuta una vez las consultas del arranque (total y primera página)
+        // para que driver, planificador y caché del servidor ya las tengan
+        // listas cuando la tabla las pida de verdad.
+
+        count();
+        findPageAfter(Integer.MIN_VALUE, 1);
+    }
+
+    private List<Cliente> leerLista(PreparedStatement ps) throws SQLException {
+        // Los tiempos y las filas ya los anota Db en cada sentencia (db.SentenciaMedida)
+        List<Cliente> out = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                out.add(mapRow(rs));
+            }
+        }
+        return out;
     }
 
     public List<Cliente> search(String filtro) throws SQLException {
+        return CacheConsultas.GLOBAL.obtener(CACHE_SEARCH, List.of(filtro), () -> buscar(filtro));
+    }
+
+    private List<Cliente> buscar(String filtro) throws SQLException {
 
-        String patron = "%" + filtro + "%";
+        String patron = patronContiene(filtro);
 
         try (Connection con = Db.getConnection();
            PreparedStatement pst = con.prepareStatement(SEARCH_SQL)) {
@@ -178,6 +325,45 @@ public class ClienteDAO {
         }
     }
 
+    public List<Cliente> search(String filtro, int limite, CancelacionConsulta cancelacion) throws SQLException {
+        // Igual que search(filtro) pero con LIMIT, y cancelable desde otro hilo
+        // (búsqueda mientras se escribe: la anterior deja de interesar).
+        // Si otro hilo ya está haciendo la misma búsqueda, se espera a la suya.
+
+        return CacheConsultas.GLOBAL.obtener(CACHE_SEARCH_LIMIT, List.of(filtro, limite),
+                () -> buscar(filtro, limite, cancelacion));
+    }
+
+    private List<Cliente> buscar(String filtro, int limite, CancelacionConsulta cancelacion) throws SQLException {
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SEARCH_LIMIT_SQL)) {
+            String patron = patronContiene(filtro);
+            pst.setString(1, patron);
+            pst.setString(2, patron);
+            pst.setString(3, patron);
+            pst.setInt(4, limite);
+
+            cancelacion.registrar(pst);
+            try {
+                return leerLista(pst);
+            } finally {
+                cancelacion.liberar();
+            }
+        }
+    }
+
+    private static String patronContiene(String filtro) {
+        // '%' y '_' son comodines en ILIKE: se escapan para buscar el texto tal cual
+        String escapado = filtro.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        return "%" + escapado + "%";
+    }
+
+    private static CacheConsultas.Consulta<Cliente> consultaCacheada(String sql) {
+        return new CacheConsultas.Consulta<>("ClienteDAO.search", sql, Duration.ofSeconds(15), Set.of("cliente"),
+                c -> 16 + CacheConsultas.pesoTexto(c.getNombre()) + CacheConsultas.pesoTexto(c.getEmail()),
+                c -> new Cliente(c.getId(), c.getNombre(), c.getEmail()));
+    }
+
     private Cliente mapRow(ResultSet rs) throws SQLException {
 
         Cliente c = new Cliente(
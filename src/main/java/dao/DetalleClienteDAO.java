@@ -6,6 +6,8 @@ import model.DetalleCliente;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * DAO para la tabla detalle_cliente.
@@ -39,6 +41,22 @@ public class DetalleClienteDAO {
             ORDER BY id
             """;
 
+    /** Consulta para obtener de una vez los detalles de varios ids. */
+    private static final String SELECT_BY_IDS_SQL = """
+            SELECT id, direccion, telefono, notas
+            FROM detalle_cliente
+            WHERE id = ANY(?)
+            """;
+
+    /** Consulta para leer solo los ids (filtros de existencia). */
+    private static final String SELECT_IDS_SQL = """
+            SELECT id
+            FROM detalle_cliente
+            """;
+
+    /** Filas por viaje al leer en streaming. */
+    private static final int TAM_FETCH = 10_000;
+
     /** Consulta para actualizar los datos del detalle. */
     private static final String UPDATE_SQL = """
             UPDATE detalle_cliente
@@ -101,6 +119,28 @@ public class DetalleClienteDAO {
         }
     }
 
+    /**
+     * Inserta varios detalles en un único lote, usando la conexión del servicio.
+     * Aplica el mismo tratamiento del teléfono que insert(d, con).
+     */
+    public void insertBatch(List<DetalleCliente> detalles, Connection con) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(INSERT_SQL)) {
+            for (DetalleCliente d : detalles) {
+                ps.setInt(1, d.getId());
+                ps.setString(2, d.getDireccion());
+                String tel = d.getTelefono();
+                if (tel == null || tel.isBlank()) {
+                    ps.setNull(3, Types.VARCHAR);
+                } else {
+                    ps.setString(3, tel.trim());
+                }
+                ps.setString(4, d.getNotas());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
 
     /**
      * Obtiene un detalle según el ID (clave primaria).
@@ -113,12 +153,40 @@ public class DetalleClienteDAO {
             pst.setInt(1, id);
 
             try (ResultSet rs = pst.executeQuery()) {
-                if (rs.next()) {
-                    return mapRow(rs);
+                return rs.next() ? mapRow(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Obtiene los detalles de varios ids en una sola consulta (un array como
+     * parámetro: el SQL es siempre el mismo, tenga los ids que tenga).
+     * Los ids sin detalle simplemente no aparecen; el orden no está definido.
+     */
+    public List<DetalleCliente> findByIds(int[] ids) throws SQLException {
+        List<DetalleCliente> out = new ArrayList<>(ids.length);
+        if (ids.length == 0) return out;
+
+        Integer[] valores = new Integer[ids.length];
+        for (int i = 0; i < ids.length; i++) valores[i] = ids[i];
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SELECT_BY_IDS_SQL)) {
+
+            Array array = con.createArrayOf("integer", valores);
+            try {
+                pst.setArray(1, array);
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        out.add(mapRow(rs));
+                    }
                 }
-                return null;
+            } finally {
+                array.free();
             }
         }
+
+        return out;
     }
 
     /**
@@ -139,6 +207,50 @@ public class DetalleClienteDAO {
         return out;
     }
 
+    /**
+     * Recorre todos los ids de detalle_cliente en streaming (para cebar filtros
+     * de existencia sin crear un objeto por fila).
+     */
+    public void cargarIds(IntConsumer consumidor) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_IDS_SQL)) {
+                pst.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(rs.getInt(1));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Recorre todas las filas de detalle_cliente (ordenadas por id) en streaming:
+     * en memoria solo hay un bloque de TAM_FETCH filas, no la tabla entera.
+     */
+    public void recorrerTodos(Consumer<DetalleCliente> consumidor) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_ALL_SQL)) {
+                pst.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(mapRow(rs));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
     /**
      * Actualiza los datos del detalle.
      * Si id no existe, devuelve 0.
@@ -19,7 +19,7 @@ public class DetallePedidoDAO {
 
     private static final String INSERT_SQL =
             """
-            INSERT INTO ldetalle_pedido
+            INSERT INTO detalle_pedido
             (pedido_id, producto_id, cantidad, precio_unit)
             VALUES (?, ?, ?, ?)
             """;
@@ -39,6 +39,18 @@ public class DetallePedidoDAO {
             ORDER BY producto_id
             """;
 
+    // Las de un rango de pedidos (una página de PedidoDAO.findPageAfter)
+    private static final String SELECT_BY_RANGO_PEDIDO_SQL =
+            """
+            SELECT pedido_id, producto_id, cantidad, precio_unit
+            FROM detalle_pedido
+            WHERE pedido_id > ? AND pedido_id <= ?
+            ORDER BY pedido_id, producto_id
+            """;
+
+    // Filas por viaje a la BD en los recorridos en streaming
+    private static final int TAM_FETCH = 10_000;
+
     // ===============================
     // CRUD BÁSICO
     // ===============================
@@ -56,6 +68,23 @@ public class DetallePedidoDAO {
         }
     }
 
+    /**
+     * Inserta varias líneas en un único lote.
+     * Usa la conexión que le pasa el servicio (no hace commit).
+     */
+    public void insertBatch(List<DetallePedido> lineas, Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(INSERT_SQL)) {
+            for (DetallePedido dp : lineas) {
+                pst.setInt(1, dp.getPedidoId());
+                pst.setInt(2, dp.getProductoId());
+                pst.setInt(3, dp.getCantidad());
+                pst.setDouble(4, dp.getPrecioUnit());
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+    }
+
     public List<DetallePedido> findAll() throws SQLException {
         List<DetallePedido> out = new ArrayList<>();
 
@@ -93,6 +122,62 @@ public class DetallePedidoDAO {
         return out;
     }
 
+    /**
+     * Líneas de los pedidos con id en (despuesDe, hasta], ordenadas por
+     * pedido y producto: las de una página de pedidos en una sola consulta.
+     */
+    public List<DetallePedido> findByPedidoRango(int despuesDe, int hasta) throws SQLException {
+        List<DetallePedido> out = new ArrayList<>();
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SELECT_BY_RANGO_PEDIDO_SQL)) {
+
+            pst.setInt(1, despuesDe);
+            pst.setInt(2, hasta);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapRow(rs));
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Recibe una línea de detalle_pedido como valores primitivos,
+     * sin crear un objeto DetallePedido por fila.
+     */
+    @FunctionalInterface
+    public interface LectorLinea {
+        void leer(int pedidoId, int productoId, int cantidad, double precioUnit);
+    }
+
+    /**
+     * Recorre TODAS las líneas (ordenadas por pedido_id, producto_id) en streaming.
+     *
+     * El driver de PostgreSQL solo trae las filas por bloques (fetchSize)
+     * si autocommit está desactivado; si no, cargaría la tabla entera en memoria.
+     */
+    public void recorrerTodas(LectorLinea lector) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_ALL_SQL)) {
+                pst.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        lector.leer(rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getDouble(4));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
     // ===============================
     // MAPEADOR
     // ===============================
@@ -0,0 +1,93 @@
+package dao;
+
+import db.Db;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * DAO de la tabla de control import_checkpoint.
+ *
+ * Guarda, por fichero de origen y tabla, cuántas filas se han importado ya.
+ * El progreso se actualiza con la MISMA conexión y transacción que inserta
+ * el bloque de filas: o se confirman las dos cosas o ninguna.
+ */
+public class ImportCheckpointDAO {
+
+    // ===============================
+    // SQL
+    // ===============================
+
+    private static final String CREATE_SQL = """
+            CREATE TABLE IF NOT EXISTS import_checkpoint (
+                origen TEXT   NOT NULL,
+                tabla  TEXT   NOT NULL,
+                filas  BIGINT NOT NULL,
+                PRIMARY KEY (origen, tabla)
+            )
+            """;
+
+    private static final String SELECT_BY_ORIGEN_SQL =
+            "SELECT tabla, filas FROM import_checkpoint WHERE origen = ?";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO import_checkpoint (origen, tabla, filas)
+            VALUES (?, ?, ?)
+            ON CONFLICT (origen, tabla) DO UPDATE SET filas = EXCLUDED.filas
+            """;
+
+    private static final String DELETE_BY_ORIGEN_SQL =
+            "DELETE FROM import_checkpoint WHERE origen = ?";
+
+    // ===============================
+    // MÉTODOS
+    // ===============================
+
+    /** Crea la tabla de control si aún no existe. */
+    public void crearTablaSiNoExiste() throws SQLException {
+        try (Connection con = Db.getConnection();
+             Statement st = con.createStatement()) {
+            st.execute(CREATE_SQL);
+        }
+    }
+
+    /** Progreso guardado para un origen: tabla -> filas ya importadas. */
+    public Map<String, Long> findByOrigen(String origen) throws SQLException {
+        Map<String, Long> out = new HashMap<>();
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SELECT_BY_ORIGEN_SQL)) {
+
+            pst.setString(1, origen);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    out.put(rs.getString("tabla"), rs.getLong("filas"));
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /** Guarda el progreso dentro de la transacción del llamador (no hace commit). */
+    public void guardar(String origen, String tabla, long filas, Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(UPSERT_SQL)) {
+            pst.setString(1, origen);
+            pst.setString(2, tabla);
+            pst.setLong(3, filas);
+            pst.executeUpdate();
+        }
+    }
+
+    /** Borra el progreso de un origen (importación terminada). */
+    public int deleteByOrigen(String origen) throws SQLException {
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(DELETE_BY_ORIGEN_SQL)) {
+
+            pst.setString(1, origen);
+            return pst.executeUpdate();
+        }
+    }
+}
@@ -7,6 +7,8 @@ import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * DAO de la entidad Pedido.
@@ -22,11 +24,20 @@ public class PedidoDAO {
             "INSERT INTO pedido (id, cliente_id, fecha) VALUES (?, ?, ?)";
 
     private static final String SELECT_BY_ID_SQL =
-            "SELECT id, cliente_id, fecha FROM lpedido WHERE id = ?";
+            "SELECT id, cliente_id, fecha FROM pedido WHERE id = ?";
 
     private static final String SELECT_ALL_SQL =
             "SELECT id, cliente_id, fecha FROM pedido ORDER BY id";
 
+    // Página "keyset": los siguientes N pedidos después de un id conocido
+    private static final String SELECT_PAGE_AFTER_SQL =
+            "SELECT id, cliente_id, fecha FROM pedido WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_IDS_SQL =
+            "SELECT id FROM pedido";
+
+    private static final int TAM_FETCH = 10_000;
+
     // ===============================
     // CRUD BÁSICO
     // ===============================
@@ -43,6 +54,34 @@ public class PedidoDAO {
         }
     }
 
+    /**
+     * Inserta un pedido con la conexión que le pasa el servicio (no hace commit).
+     */
+    public void insert(Pedido p, Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(INSERT_SQL)) {
+            pst.setInt(1, p.getId());
+            pst.setInt(2, p.getClienteId());
+            pst.setDate(3, Date.valueOf(p.getFecha()));
+            pst.executeUpdate();
+        }
+    }
+
+    /**
+     * Inserta varios pedidos en un único lote.
+     * Usa la conexión que le pasa el servicio (no hace commit).
+     */
+    public void insertBatch(List<Pedido> pedidos, Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(INSERT_SQL)) {
+            for (Pedido p : pedidos) {
+                pst.setInt(1, p.getId());
+                pst.setInt(2, p.getClienteId());
+                pst.setDate(3, Date.valueOf(p.getFecha()));
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+    }
+
     public Pedido findById(int id) throws SQLException {
         try (Connection con = Db.getConnection();
              PreparedStatement pst = con.prepareStatement(SELECT_BY_ID_SQL)) {
@@ -73,6 +112,72 @@ public class PedidoDAO {
         return out;
     }
 
+    /**
+     * Los 'limite' pedidos con id > ultimoId, ordenados por id (sin líneas).
+     */
+    public List<Pedido> findPageAfter(int ultimoId, int limite) throws SQLException {
+        List<Pedido> out = new ArrayList<>();
+
+        try (Connection con = Db.getConnection();
+             PreparedStatement pst = con.prepareStatement(SELECT_PAGE_AFTER_SQL)) {
+
+            pst.setInt(1, ultimoId);
+            pst.setInt(2, limite);
+
+            try (ResultSet rs = pst.executeQuery()) {
+                while (rs.next()) {
+                    out.add(mapRow(rs));
+                }
+            }
+        }
+
+        return out;
+    }
+
+    /**
+     * Recorre todos los ids de pedido en streaming (para cebar filtros
+     * de existencia sin crear un objeto por fila).
+     */
+    public void cargarIds(IntConsumer consumidor) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_IDS_SQL)) {
+                pst.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(rs.getInt(1));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Recorre todas las filas de pedido (ordenadas por id) en streaming:
+     * en memoria solo hay un bloque de TAM_FETCH filas, no la tabla entera.
+     */
+    public void recorrerTodos(Consumer<Pedido> consumidor) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_ALL_SQL)) {
+                pst.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(mapRow(rs));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
     // ===============================
     // MAPEADOR
     // ===============================
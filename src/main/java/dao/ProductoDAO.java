@@ -4,8 +4,12 @@ import db.Db;
 import model.Producto;
 
 import java.sql.*;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * DAO de la entidad Producto.
@@ -26,6 +30,20 @@ public class ProductoDAO {
     private static final String SELECT_ALL_SQL =
             "SELECT id, nombre, precio FROM producto ORDER BY id";
 
+    private static final String SELECT_IDS_SQL =
+            "SELECT id FROM producto";
+
+    private static final int TAM_FETCH = 10_000;
+
+    /**
+     * findAll en la caché compartida (ver CacheConsultas): la lista de
+     * productos cambia poco y la piden todos los formularios de pedidos.
+     */
+    private static final CacheConsultas.Consulta<Producto> CACHE_FIND_ALL = new CacheConsultas.Consulta<>(
+            "ProductoDAO.findAll", SELECT_ALL_SQL, Duration.ofMinutes(5), Set.of("producto"),
+            p -> 24 + CacheConsultas.pesoTexto(p.getNombre()),
+            p -> new Producto(p.getId(), p.getNombre(), p.getPrecio()));
+
     // ===============================
     // CRUD BÁSICO
     // ===============================
@@ -40,6 +58,24 @@ public class ProductoDAO {
 
             pst.executeUpdate();
         }
+        CacheConsultas.GLOBAL.invalidar("producto");
+    }
+
+    /**
+     * Inserta varios productos en un único lote.
+     * Usa la conexión que le pasa el servicio (no hace commit).
+     */
+    public void insertBatch(List<Producto> productos, Connection con) throws SQLException {
+        try (PreparedStatement pst = con.prepareStatement(INSERT_SQL)) {
+            for (Producto p : productos) {
+                pst.setInt(1, p.getId());
+                pst.setString(2, p.getNombre());
+                pst.setDouble(3, p.getPrecio());
+                pst.addBatch();
+            }
+            pst.executeBatch();
+        }
+        CacheConsultas.GLOBAL.invalidar(con, "producto");
     }
 
     public Producto findById(int id) throws SQLException {
@@ -58,6 +94,10 @@ public class ProductoDAO {
     }
 
     public List<Producto> findAll() throws SQLException {
+        return CacheConsultas.GLOBAL.obtener(CACHE_FIND_ALL, List.of(), this::leerTodos);
+    }
+
+    private List<Producto> leerTodos() throws SQLException {
         List<Producto> out = new ArrayList<>();
 
         try (Connection con = Db.getConnection();
@@ -72,6 +112,50 @@ public class ProductoDAO {
         return out;
     }
 
+    /**
+     * Recorre todos los ids de producto en streaming (para cebar filtros
+     * de existencia sin crear un objeto por fila).
+     */
+    public void cargarIds(IntConsumer consumidor) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_IDS_SQL)) {
+                pst.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(rs.getInt(1));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Recorre todas las filas de producto (ordenadas por id) en streaming:
+     * en memoria solo hay un bloque de TAM_FETCH filas, no la tabla entera.
+     */
+    public void recorrerTodos(Consumer<Producto> consumidor) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try (PreparedStatement pst = con.prepareStatement(SELECT_ALL_SQL)) {
+                pst.setFetchSize(TAM_FETCH);
+
+                try (ResultSet rs = pst.executeQuery()) {
+                    while (rs.next()) {
+                        consumidor.accept(mapRow(rs));
+                    }
+                }
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+
     // ===============================
     // MAPEADOR
     // ===============================
@@ -1,10 +1,51 @@
 package db;
 
+import metrics.Metricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Deque;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Conexiones a PostgreSQL.
+ *
+ * Abrir una conexión (TCP + autenticación) cuesta bastante más que una
+ * consulta sencilla, así que se reutilizan: getConnection() devuelve una
+ * conexión libre si la hay, y close() sobre ella no la cierra sino que la
+ * devuelve (se guardan como mucho MAX_LIBRES). Para quien la usa no cambia
+ * nada: try-with-resources igual que antes.
+ *
+ * Como mucho hay MAX_CONEXIONES en uso a la vez (propiedad
+ * lampreas.db.maxConexiones, 20 por defecto): PostgreSQL rechaza las que
+ * pasan de su max_connections (100 por defecto), y con muchos hilos a la vez
+ * (CargaConcurrente, ServidorApi) se llegaría. Si están todas en uso,
+ * getConnection() espera a que se devuelva una, hasta ESPERA_MAXIMA_MS
+ * (lampreas.db.esperaMs, 30 s); pasado ese tiempo falla con
+ * SQLTransientConnectionException.
+ *
+ * Al devolverla se deja como recién abierta: si quedó una transacción a
+ * medias se hace rollback y se vuelve a autocommit.
+ *
+ * Métricas (ver metrics.Metricas): tiempo de conseguir una conexión
+ * ("Db.getConnection"), tiempo que se tiene en uso ("Db.conexion en uso"),
+ * y cada sentencia que se crea con ella va envuelta en SentenciaMedida
+ * (latencia, filas, lotes y errores por método del DAO).
+ *
+ * Eventos JFR (ver EventosJfr): conexión obtenida y en uso, cada sentencia
+ * y cada transacción (SeguimientoConexion), sin coste si no se graban.
+ */
 public final class Db {
 
     private static final String HOST = System.getenv().getOrDefault("PG_HOST", "localhost");
@@ -15,16 +56,238 @@ public final class Db {
 
     private static final String URL = "jdbc:postgresql://" + HOST + ":" + PORT + "/" + DB;
 
+    // Conexiones libres que se guardan; el resto se cierran al devolverlas
+    private static final int MAX_LIBRES = 8;
+
+    // Conexiones en uso a la vez (abiertas por getConnection() y sin devolver)
+    private static final int MAX_CONEXIONES = Integer.getInteger("lampreas.db.maxConexiones", 20);
+    private static final long ESPERA_MAXIMA_MS = Long.getLong("lampreas.db.esperaMs", 30_000L);
+
+    // Una conexión que lleva más de esto sin usarse se comprueba antes de darla
+    // (el servidor o un firewall pueden haberla cortado)
+    private static final long COMPROBAR_TRAS_NANOS = 30_000_000_000L;
+
+    private static final Deque<Libre> LIBRES = new ConcurrentLinkedDeque<>();
+    private static final AtomicInteger NUM_LIBRES = new AtomicInteger();
+    // Un permiso por conexión en uso; justo, para que nadie espere indefinidamente
+    private static final Semaphore EN_USO = new Semaphore(MAX_CONEXIONES, true);
+
+    private record Libre(Connection real, long desde) { }
+
     private Db() {}
 
     public static Connection getConnection() throws SQLException {
+        long t0 = System.nanoTime();
+        EventosJfr.ConexionObtenida evento = null;
+        if (EventosJfr.conexionActiva()) {
+            evento = new EventosJfr.ConexionObtenida();
+            evento.begin();
+        }
+
+        esperarTurno();
+        Connection real = null;
+        boolean reutilizada;
+        try {
+            Libre libre;
+            while (real == null && (libre = LIBRES.pollFirst()) != null) {
+                NUM_LIBRES.decrementAndGet();
+                if (t0 - libre.desde() < COMPROBAR_TRAS_NANOS || libre.real().isValid(2)) {
+                    real = libre.real();
+                } else {
+                    cerrarSinError(libre.real());
+                }
+            }
+            reutilizada = real != null;
+            if (real == null) real = abrir();
+        } catch (SQLException | RuntimeException e) {
+            if (real != null) cerrarSinError(real);
+            EN_USO.release();
+            throw e;
+        }
+
+        Metricas.registrar("Db.getConnection", System.nanoTime() - t0, 0);
+        if (evento != null) {
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.reutilizada = reutilizada;
+                evento.libres = NUM_LIBRES.get();
+                evento.commit();
+            }
+        }
+        return envolver(real, new SeguimientoConexion());
+    }
+
+    /** Espera un permiso de EN_USO, como mucho ESPERA_MAXIMA_MS. */
+    private static void esperarTurno() throws SQLException {
+        try {
+            if (!EN_USO.tryAcquire(ESPERA_MAXIMA_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Las " + MAX_CONEXIONES
+                        + " conexiones siguen en uso tras esperar " + ESPERA_MAXIMA_MS + " ms", "08004");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrumpido esperando una conexión", "08004", e);
+        }
+    }
+
+    /**
+     * Abre 'n' conexiones (como mucho MAX_CONEXIONES), ejecuta en ellas las
+     * sentencias dadas (para que el driver y el servidor ya las tengan
+     * analizadas) y las deja libres. Pensado para llamarse en segundo plano
+     * al arrancar.
+     */
+    public static void calentar(int n, String... sentencias) throws SQLException {
+        Connection[] abiertas = new Connection[Math.min(n, MAX_CONEXIONES)];
+        try {
+            for (int i = 0; i < abiertas.length; i++) {
+                abiertas[i] = getConnection();
+                try (Statement st = abiertas[i].createStatement()) {
+                    for (String sql : sentencias) st.execute(sql);
+                }
+            }
+        } finally {
+            for (Connection c : abiertas) {
+                if (c != null) c.close();
+            }
+        }
+    }
+
+    /** Cierra las conexiones libres (al salir de la aplicación). */
+    public static void cerrar() {
+        Libre libre;
+        while ((libre = LIBRES.pollFirst()) != null) {
+            NUM_LIBRES.decrementAndGet();
+            cerrarSinError(libre.real());
+        }
+    }
+
+    private static Connection abrir() throws SQLException {
         Properties p = new Properties();
         p.setProperty("user", USER);
         p.setProperty("password", PASS);
         return DriverManager.getConnection(URL, p );
+    }
 
+    /** Devuelve la conexión real a las libres, limpia; o la cierra si sobran. Libera su permiso. */
+    private static void devolver(Connection real) {
+        try {
+            guardarOCerrar(real);
+        } finally {
+            EN_USO.release();
+        }
+    }
 
+    private static void guardarOCerrar(Connection real) {
+        try {
+            if (real.isClosed()) return;
+            if (!real.getAutoCommit()) {
+                real.rollback();
+                real.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            cerrarSinError(real);
+            return;
+        }
+
+        if (NUM_LIBRES.incrementAndGet() <= MAX_LIBRES) {
+            LIBRES.addFirst(new Libre(real, System.nanoTime()));
+        } else {
+            NUM_LIBRES.decrementAndGet();
+            cerrarSinError(real);
+        }
     }
 
+    private static void cerrarSinError(Connection c) {
+        try {
+            c.close();
+        } catch (SQLException e) {
+            // Ya estaba rota: no hay nada más que hacer
+        }
+    }
 
+    /**
+     * Ejecuta 'accion' cuando se confirme lo que se ha escrito con 'con':
+     * ya, si está en autocommit; si no, tras el siguiente commit() (o al
+     * volver a autocommit). Si la transacción acaba en rollback no se ejecuta.
+     * Lo usan los DAO para invalidar la caché (CacheConsultas).
+     */
+    public static void trasConfirmar(Connection con, Runnable accion) throws SQLException {
+        if (!con.getAutoCommit()
+                && Proxy.isProxyClass(con.getClass())
+                && Proxy.getInvocationHandler(con) instanceof Manejador m) {
+            m.seguimiento.trasConfirmar(accion);
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Conexión que se ve igual que la real salvo close(), que la devuelve.
+     * Tras cerrarla, cualquier otro uso falla (como una conexión cerrada).
+     */
+    private static Connection envolver(Connection real, SeguimientoConexion seguimiento) {
+        return (Connection) Proxy.newProxyInstance(
+                Db.class.getClassLoader(), new Class<?>[]{Connection.class}, new Manejador(real, seguimiento));
+    }
+
+    private static final class Manejador implements InvocationHandler {
+        private final Connection real;
+        private final SeguimientoConexion seguimiento;
+        private final long desde = System.nanoTime();
+        private boolean cerrada;
+
+        Manejador(Connection real, SeguimientoConexion seguimiento) {
+            this.real = real;
+            this.seguimiento = seguimiento;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "close":
+                    if (!cerrada) {
+                        cerrada = true;
+                        try {
+                            Metricas.registrarValor("Db.conexion en uso", System.nanoTime() - desde);
+                            seguimiento.alCerrar();
+                        } finally {
+                            devolver(real);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return cerrada || real.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Conexión(" + real + ")";
+                default:
+                    if (cerrada) throw new SQLException("La conexión ya está cerrada", "08003");
+                    if (m.getName().equals("setAutoCommit")) seguimiento.alCambiarAutoCommit((Boolean) args[0]);
+                    Object r;
+                    try {
+                        r = m.invoke(real, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    switch (m.getName()) {
+                        case "setAutoCommit" -> seguimiento.ejecutarConfirmadas();
+                        case "commit" -> seguimiento.alTerminarTransaccion("commit");
+                        case "rollback" -> {
+                            // rollback(Savepoint) no termina la transacción
+                            if (args == null || args.length == 0) seguimiento.alTerminarTransaccion("rollback");
+                        }
+                        default -> { }
+                    }
+                    // createStatement, prepareStatement, prepareCall
+                    if (r instanceof Statement st) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+                        return SentenciaMedida.envolver(st, m.getReturnType(), sql, seguimiento);
+                    }
+                    return r;
+            }
+        }
+    }
 }
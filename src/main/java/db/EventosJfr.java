@@ -0,0 +1,127 @@
+package db;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos de Java Flight Recorder del acceso a BD, para que una grabación
+ * diga qué consulta/operación hay detrás de cada lectura de socket.
+ *
+ * Se emiten desde la capa de conexiones (Db, SentenciaMedida), así que
+ * cubren todos los DAO y servicios sin tocarlos. Cada evento lleva su
+ * duración y su hilo (lo pone JFR).
+ *
+ * Con JFR parado o el evento desactivado el coste es una lectura de un
+ * booleano (activo()): no se crea el evento ni se recorre la pila.
+ *
+ * Grabar: java -XX:StartFlightRecording:filename=bd.jfr,settings=profile ...
+ * y en JDK Mission Control, "Event Browser" → Lampreas Violeta.
+ */
+final class EventosJfr {
+
+    private EventosJfr() { }
+
+    private static final EventType TIPO_SENTENCIA = EventType.getEventType(Sentencia.class);
+    private static final EventType TIPO_OBTENIDA = EventType.getEventType(ConexionObtenida.class);
+    private static final EventType TIPO_EN_USO = EventType.getEventType(ConexionEnUso.class);
+    private static final EventType TIPO_TRANSACCION = EventType.getEventType(Transaccion.class);
+
+    static boolean sentenciaActiva() {
+        return TIPO_SENTENCIA.isEnabled();
+    }
+
+    static boolean conexionActiva() {
+        return TIPO_OBTENIDA.isEnabled() || TIPO_EN_USO.isEnabled();
+    }
+
+    static boolean transaccionActiva() {
+        return TIPO_TRANSACCION.isEnabled();
+    }
+
+    @Name("lampreas.Sentencia")
+    @Label("Sentencia SQL")
+    @Category({"Lampreas Violeta", "Base de datos"})
+    @Description("Ejecución de una sentencia; en consultas, hasta leer la última fila o cerrar el ResultSet")
+    @StackTrace(false)
+    static final class Sentencia extends Event {
+
+        @Label("Operación")
+        @Description("Método del DAO que creó la sentencia")
+        String operacion;
+
+        @Label("SQL")
+        String sql;
+
+        @Label("Tipo")
+        @Description("query, update, batch o execute")
+        String tipo;
+
+        @Label("Filas")
+        long filas;
+
+        @Label("Sentencias en el lote")
+        int lote;
+
+        @Label("Error")
+        @Description("SQLState o clase de la excepción; vacío si fue bien")
+        String error;
+    }
+
+    @Name("lampreas.ConexionObtenida")
+    @Label("Conexión obtenida")
+    @Category({"Lampreas Violeta", "Base de datos"})
+    @Description("Db.getConnection: de las libres o abriendo una nueva")
+    @StackTrace(false)
+    static final class ConexionObtenida extends Event {
+
+        @Label("Reutilizada")
+        boolean reutilizada;
+
+        @Label("Conexiones libres")
+        @Description("Libres en el pool al terminar")
+        int libres;
+    }
+
+    @Name("lampreas.ConexionEnUso")
+    @Label("Conexión en uso")
+    @Category({"Lampreas Violeta", "Base de datos"})
+    @Description("Desde getConnection hasta close (la devolución al pool)")
+    @StackTrace(false)
+    static final class ConexionEnUso extends Event {
+
+        @Label("Operación")
+        @Description("Quién pidió la conexión")
+        String operacion;
+
+        @Label("Sentencias")
+        int sentencias;
+    }
+
+    @Name("lampreas.Transaccion")
+    @Label("Transacción")
+    @Category({"Lampreas Violeta", "Base de datos"})
+    @Description("Desde setAutoCommit(false) o el commit anterior hasta commit/rollback")
+    @StackTrace(false)
+    static final class Transaccion extends Event {
+
+        @Label("Operación")
+        @Description("Servicio o DAO que la empezó")
+        String operacion;
+
+        @Label("Resultado")
+        @Description("commit, rollback o rollback al devolver la conexión")
+        String resultado;
+
+        @Label("Sentencias")
+        int sentencias;
+
+        @Label("Filas")
+        @Description("Filas leídas o afectadas por sus sentencias")
+        long filas;
+    }
+}
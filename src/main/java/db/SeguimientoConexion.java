@@ -0,0 +1,126 @@
+package db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lo que pasa en una conexión prestada, entre getConnection() y close():
+ * sentencias ejecutadas y transacciones, para los eventos JFR (EventosJfr)
+ * y para lo que hay que hacer tras el commit (Db.trasConfirmar).
+ *
+ * Una transacción empieza con setAutoCommit(false) y termina con commit()
+ * o rollback() (tras los cuales, si sigue sin autocommit, empieza otra).
+ * Si se vuelve a autocommit o se devuelve la conexión con una transacción
+ * a medias, cuenta como commit o rollback respectivamente (es lo que hacen
+ * el driver y Db); las que no ejecutaron nada no se anotan.
+ *
+ * Las acciones de trasConfirmar se ejecutan cuando la transacción acaba en
+ * commit y se descartan si acaba en rollback.
+ *
+ * Una conexión la usa un hilo cada vez: no hace falta sincronizar.
+ */
+final class SeguimientoConexion {
+
+    private final EventosJfr.ConexionEnUso enUso;
+    private int sentencias;
+
+    private boolean enTransaccion;
+    private EventosJfr.Transaccion transaccion;
+    private int sentenciasTx;
+    private long filasTx;
+
+    private final List<Runnable> pendientes = new ArrayList<>();
+    private final List<Runnable> confirmadas = new ArrayList<>();
+
+    SeguimientoConexion() {
+        if (EventosJfr.conexionActiva()) {
+            enUso = new EventosJfr.ConexionEnUso();
+            enUso.operacion = SentenciaMedida.llamante(null);
+            enUso.begin();
+        } else {
+            enUso = null;
+        }
+    }
+
+    /** Una sentencia terminada (con sus filas leídas o afectadas). */
+    void alEjecutar(long filas) {
+        sentencias++;
+        if (enTransaccion) {
+            sentenciasTx++;
+            filasTx += filas;
+        }
+    }
+
+    /** 'accion' para cuando se confirme la transacción en curso (ejecutada ya si no hay). */
+    void trasConfirmar(Runnable accion) {
+        if (enTransaccion) pendientes.add(accion);
+        else accion.run();
+    }
+
+    /** Antes de setAutoCommit(activo); tras hacerlo, Db llama a ejecutarConfirmadas(). */
+    void alCambiarAutoCommit(boolean activo) {
+        if (!activo && !enTransaccion) {
+            empezar();
+        } else if (activo && enTransaccion) {
+            terminar(sentenciasTx > 0 ? "commit" : null, true);
+        }
+    }
+
+    /** Las acciones de una transacción ya confirmada. */
+    void ejecutarConfirmadas() {
+        if (confirmadas.isEmpty()) return;
+        List<Runnable> acciones = new ArrayList<>(confirmadas);
+        confirmadas.clear();
+        for (Runnable a : acciones) a.run();
+    }
+
+    /** Tras un commit() o rollback() que ha ido bien. */
+    void alTerminarTransaccion(String resultado) {
+        if (!enTransaccion) return;
+        terminar(resultado, resultado.equals("commit"));
+        empezar();
+        ejecutarConfirmadas();
+    }
+
+    /** Al devolver la conexión (Db hace rollback de lo que quede a medias). */
+    void alCerrar() {
+        if (enTransaccion) terminar(sentenciasTx > 0 ? "rollback al devolver" : null, false);
+        confirmadas.clear();
+        if (enUso != null) {
+            enUso.end();
+            if (enUso.shouldCommit()) {
+                enUso.sentencias = sentencias;
+                enUso.commit();
+            }
+        }
+    }
+
+    private void empezar() {
+        enTransaccion = true;
+        sentenciasTx = 0;
+        filasTx = 0;
+        if (EventosJfr.transaccionActiva()) {
+            transaccion = new EventosJfr.Transaccion();
+            transaccion.operacion = SentenciaMedida.llamante("services.");
+            transaccion.begin();
+        }
+    }
+
+    /** resultado == null: se descarta (no ejecutó nada). */
+    private void terminar(String resultado, boolean confirmada) {
+        enTransaccion = false;
+        if (confirmada) confirmadas.addAll(pendientes);
+        pendientes.clear();
+        EventosJfr.Transaccion t = transaccion;
+        transaccion = null;
+        if (t == null || resultado == null) return;
+
+        t.end();
+        if (t.shouldCommit()) {
+            t.resultado = resultado;
+            t.sentencias = sentenciasTx;
+            t.filas = filasTx;
+            t.commit();
+        }
+    }
+}
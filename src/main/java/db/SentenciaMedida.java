@@ -0,0 +1,272 @@
+package db;
+
+import metrics.Metricas;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Statement (o PreparedStatement / CallableStatement) que anota en Metricas
+ * cada ejecución, sin tocar los DAO: Db envuelve así todas las sentencias
+ * que se crean con sus conexiones.
+ *
+ * La operación es "jdbc " + el método que creó la sentencia, buscado en la
+ * pila con StackWalker: el primero de un DAO (p. ej. "jdbc ClienteDAO.findById")
+ * o, si no hay, el primero fuera de db y de las librerías. Recorrer la pila
+ * en cada prepareStatement costaría más que la propia llamada, así que el
+ * nombre se recuerda por SQL (hasta MAX_NOMBRES distintos): si dos métodos
+ * preparan exactamente el mismo SQL, cuentan juntos con el nombre del primero.
+ *
+ * Se anota:
+ *  - consultas: desde executeQuery hasta cerrar el ResultSet (o leer la
+ *    última fila), con las filas leídas;
+ *  - updates: el tiempo de la ejecución y las filas afectadas;
+ *  - executeBatch: además, el nº de sentencias del lote;
+ *  - errores: las ejecuciones que lanzan excepción.
+ *
+ * Si JFR lo está grabando, cada ejecución emite además un evento
+ * lampreas.Sentencia con el SQL (ver EventosJfr).
+ */
+final class SentenciaMedida implements InvocationHandler {
+
+    private static final StackWalker PILA = StackWalker.getInstance();
+
+    // Frames que se miran como mucho al buscar quién creó la sentencia
+    private static final int MAX_FRAMES = 24;
+
+    // SQL -> operación. Los DAO usan constantes, pero un SQL generado podría no
+    // repetirse nunca: pasado el máximo ya no se guardan más
+    private static final int MAX_NOMBRES = 1024;
+    private static final Map<String, String> NOMBRES = new ConcurrentHashMap<>();
+
+    private final Statement real;
+    private final String operacion;
+    private final String sql;
+    private final SeguimientoConexion seguimiento;
+    private int enLote;
+
+    private SentenciaMedida(Statement real, String operacion, String sql, SeguimientoConexion seguimiento) {
+        this.real = real;
+        this.operacion = operacion;
+        this.sql = sql;
+        this.seguimiento = seguimiento;
+    }
+
+    /**
+     * Envuelve la sentencia con el interfaz que devolvió el método (Statement,
+     * PreparedStatement...). 'sql' es el de prepareStatement/prepareCall, o
+     * null con createStatement (entonces va en cada execute).
+     */
+    static Statement envolver(Statement real, Class<?> tipo, String sql, SeguimientoConexion seguimiento) {
+        return (Statement) Proxy.newProxyInstance(Db.class.getClassLoader(), new Class<?>[]{tipo},
+                new SentenciaMedida(real, operacion(sql), sql, seguimiento));
+    }
+
+    private static String operacion(String sql) {
+        if (sql == null) return "jdbc " + llamante("dao.");
+        String nombre = NOMBRES.get(sql);
+        if (nombre == null) {
+            nombre = "jdbc " + llamante("dao.");
+            if (NOMBRES.size() < MAX_NOMBRES) NOMBRES.putIfAbsent(sql, nombre);
+        }
+        return nombre;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+        String nombre = m.getName();
+        switch (nombre) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "addBatch":
+                enLote++;
+                return delegar(m, args);
+            case "clearBatch":
+                enLote = 0;
+                return delegar(m, args);
+            default:
+                if (!nombre.startsWith("execute")) return delegar(m, args);
+        }
+
+        EventosJfr.Sentencia evento = null;
+        if (EventosJfr.sentenciaActiva()) {
+            evento = new EventosJfr.Sentencia();
+            evento.operacion = operacion;
+            evento.sql = sql != null ? sql : args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            evento.tipo = tipo(nombre);
+            evento.lote = enLote;
+            evento.begin();
+        }
+
+        long t0 = System.nanoTime();
+        Object r;
+        try {
+            r = delegar(m, args);
+        } catch (Throwable e) {
+            Metricas.operacion(operacion).registrarError();
+            if (nombre.endsWith("Batch")) enLote = 0;
+            if (evento != null) {
+                evento.error = e instanceof SQLException se && se.getSQLState() != null
+                        ? se.getSQLState() : e.getClass().getSimpleName();
+                evento.commit();
+            }
+            throw e;
+        }
+        long nanos = System.nanoTime() - t0;
+
+        long filas;
+        switch (nombre) {
+            case "executeQuery" -> {
+                return ResultadoMedido.envolver((ResultSet) r, operacion, t0, evento, seguimiento);
+            }
+            case "executeUpdate", "executeLargeUpdate" -> filas = ((Number) r).longValue();
+            case "executeBatch", "executeLargeBatch" -> {
+                filas = 0;
+                if (r instanceof int[] n) for (int x : n) filas += Math.max(0, x);
+                if (r instanceof long[] n) for (long x : n) filas += Math.max(0, x);
+                Metricas.operacion(operacion).registrarLote(enLote);
+                enLote = 0;
+            }
+            default -> filas = Math.max(0, real.getUpdateCount());
+        }
+        Metricas.registrar(operacion, nanos, (int) filas);
+        seguimiento.alEjecutar(filas);
+        if (evento != null) {
+            evento.filas = filas;
+            evento.commit();
+        }
+        return r;
+    }
+
+    private static String tipo(String metodo) {
+        return switch (metodo) {
+            case "executeQuery" -> "query";
+            case "executeUpdate", "executeLargeUpdate" -> "update";
+            case "executeBatch", "executeLargeBatch" -> "batch";
+            default -> "execute";
+        };
+    }
+
+    private Object delegar(Method m, Object[] args) throws Throwable {
+        try {
+            return m.invoke(real, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * "Clase.metodo" de quien llama a la capa de conexiones: el primer frame
+     * cuya clase empieza por 'preferido' (p. ej. "dao.") o, si no hay (o es
+     * null), el primero fuera de db y de las librerías.
+     */
+    static String llamante(String preferido) {
+        return PILA.walk(frames -> {
+            String primero = null;
+            Iterator<StackWalker.StackFrame> it = frames.limit(MAX_FRAMES).iterator();
+            while (it.hasNext()) {
+                StackWalker.StackFrame f = it.next();
+                String clase = f.getClassName();
+                if (interna(clase)) continue;
+                String nombre = clase.substring(clase.lastIndexOf('.') + 1) + "." + f.getMethodName();
+                if (preferido == null || clase.startsWith(preferido)) return nombre;
+                if (primero == null) primero = nombre;
+            }
+            return primero != null ? primero : "desconocida";
+        });
+    }
+
+    private static boolean interna(String clase) {
+        return clase.startsWith("db.") || clase.startsWith("java.") || clase.startsWith("jdk.")
+                || clase.startsWith("sun.") || clase.startsWith("com.sun.") || clase.startsWith("org.postgresql.")
+                || clase.contains("$Proxy");
+    }
+
+    /** ResultSet que cuenta las filas leídas y anota la consulta al terminar. */
+    private static final class ResultadoMedido implements InvocationHandler {
+
+        private final ResultSet real;
+        private final String operacion;
+        private final long t0;
+        private final EventosJfr.Sentencia evento;
+        private final SeguimientoConexion seguimiento;
+        private int filas;
+        private boolean anotado;
+
+        private ResultadoMedido(ResultSet real, String operacion, long t0, EventosJfr.Sentencia evento,
+                                SeguimientoConexion seguimiento) {
+            this.real = real;
+            this.operacion = operacion;
+            this.t0 = t0;
+            this.evento = evento;
+            this.seguimiento = seguimiento;
+        }
+
+        static ResultSet envolver(ResultSet real, String operacion, long t0, EventosJfr.Sentencia evento,
+                                  SeguimientoConexion seguimiento) {
+            return (ResultSet) Proxy.newProxyInstance(Db.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                    new ResultadoMedido(real, operacion, t0, evento, seguimiento));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method m, Object[] args) throws Throwable {
+            switch (m.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "next": {
+                    boolean hay;
+                    try {
+                        hay = real.next();
+                    } catch (SQLException e) {
+                        if (!anotado) {
+                            Metricas.operacion(operacion).registrarError();
+                            if (evento != null) {
+                                evento.filas = filas;
+                                evento.error = e.getSQLState() != null ? e.getSQLState() : "SQLException";
+                                evento.commit();
+                            }
+                        }
+                        anotado = true;
+                        throw e;
+                    }
+                    if (hay) filas++;
+                    else anotar();
+                    return hay;
+                }
+                case "close":
+                    anotar();
+                    break;
+                default:
+                    break;
+            }
+            try {
+                return m.invoke(real, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void anotar() {
+            if (anotado) return;
+            anotado = true;
+            Metricas.registrar(operacion, System.nanoTime() - t0, filas);
+            seguimiento.alEjecutar(filas);
+            if (evento != null) {
+                evento.filas = filas;
+                evento.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package metrics;
+
+/**
+ * Una llamada concreta, para la lista de "últimas llamadas".
+ *
+ * @param instante System.currentTimeMillis() al terminar
+ */
+public record Llamada(String operacion, long nanos, int filas, long instante) { }
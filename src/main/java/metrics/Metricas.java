@@ -0,0 +1,99 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Registro de métricas de la aplicación, en memoria y sin dependencias.
+ *
+ * - Por operación: histograma de latencias (p50/p99...) y filas.
+ * - Las últimas NUM_RECIENTES llamadas, en un buffer circular.
+ *
+ * Pensado para llamarse en cada consulta: registrar() no bloquea (una
+ * búsqueda en un ConcurrentHashMap y unos incrementos atómicos).
+ * Lo lee el panel de rendimiento de la aplicación, y PublicacionMetricas lo
+ * expone por JMX y lo vuelca a un log.
+ *
+ * Uso típico:
+ * <pre>
+ *   long t0 = System.nanoTime();
+ *   ... consulta ...
+ *   Metricas.registrar("ClienteDAO.findAll", System.nanoTime() - t0, filas);
+ * </pre>
+ */
+public final class Metricas {
+
+    public static final int NUM_RECIENTES = 64;
+
+    private static final Map<String, Operacion> OPERACIONES = new ConcurrentHashMap<>();
+
+    private static final AtomicReferenceArray<Llamada> RECIENTES = new AtomicReferenceArray<>(NUM_RECIENTES);
+    private static final AtomicLong SIGUIENTE = new AtomicLong();
+
+    // Se avisa de cada operación nueva (fuera del mapa: puede tardar, p. ej. registrar un MBean)
+    private static volatile Consumer<Operacion> alCrear;
+
+    private Metricas() { }
+
+    /** Operación con ese nombre (se crea la primera vez). */
+    public static Operacion operacion(String nombre) {
+        Operacion o = OPERACIONES.get(nombre);
+        if (o != null) return o;
+
+        Operacion nueva = new Operacion(nombre);
+        o = OPERACIONES.putIfAbsent(nombre, nueva);
+        if (o != null) return o;
+        Consumer<Operacion> aviso = alCrear;
+        if (aviso != null) aviso.accept(nueva);
+        return nueva;
+    }
+
+    /**
+     * Llama a 'aviso' con cada operación que se cree a partir de ahora y con
+     * las que ya existen (alguna puede llegar dos veces si se crea a la vez).
+     */
+    static void alCrearOperacion(Consumer<Operacion> aviso) {
+        alCrear = aviso;
+        if (aviso != null) OPERACIONES.values().forEach(aviso);
+    }
+
+    /** Registra una llamada: estadísticas de su operación y lista de recientes. */
+    public static void registrar(String operacion, long nanos, int filas) {
+        operacion(operacion).registrar(nanos, filas);
+        long n = SIGUIENTE.getAndIncrement();
+        RECIENTES.set((int) (n % NUM_RECIENTES),
+                new Llamada(operacion, nanos, filas, System.currentTimeMillis()));
+    }
+
+    /** Registra la latencia de un valor que no es una llamada (p. ej. un pulso de JavaFX). */
+    public static void registrarValor(String operacion, long nanos) {
+        operacion(operacion).registrar(nanos, 0);
+    }
+
+    public static Collection<Operacion> operaciones() {
+        return OPERACIONES.values();
+    }
+
+    /** Últimas llamadas, de la más reciente a la más antigua. */
+    public static List<Llamada> recientes(int max) {
+        long fin = SIGUIENTE.get();
+        List<Llamada> out = new ArrayList<>(Math.min(max, NUM_RECIENTES));
+        for (long n = fin - 1; n >= 0 && n >= fin - NUM_RECIENTES && out.size() < max; n--) {
+            Llamada l = RECIENTES.get((int) (n % NUM_RECIENTES));
+            if (l != null) out.add(l);
+        }
+        return out;
+    }
+
+    /** Pone a cero todas las operaciones y olvida las recientes. */
+    public static void reiniciar() {
+        for (Operacion o : OPERACIONES.values()) o.reiniciar();
+        for (int i = 0; i < NUM_RECIENTES; i++) RECIENTES.set(i, null);
+    }
+}
@@ -0,0 +1,70 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas de una operación con nombre (p. ej. "ClienteDAO.findAll"):
+ * histograma de latencias, filas devueltas, errores y tamaño de los lotes
+ * (executeBatch).
+ */
+public class Operacion {
+
+    private final String nombre;
+    private final Histograma latencias = new Histograma();
+    private final LongAdder filas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final Histograma lotes = new Histograma();
+
+    Operacion(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public void registrar(long nanos, int numFilas) {
+        latencias.registrar(nanos);
+        if (numFilas > 0) filas.add(numFilas);
+    }
+
+    /** Una llamada que terminó con excepción (no entra en las latencias). */
+    public void registrarError() {
+        errores.increment();
+    }
+
+    /** Nº de sentencias de un executeBatch. */
+    public void registrarLote(int sentencias) {
+        lotes.registrar(sentencias);
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Histograma getLatencias() {
+        return latencias;
+    }
+
+    public long getFilas() {
+        return filas.sum();
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    /** Tamaños de lote (vacío si la operación no usa executeBatch). */
+    public Histograma getLotes() {
+        return lotes;
+    }
+
+    /** Filas de media por llamada. */
+    public double filasPorLlamada() {
+        long n = latencias.cuenta();
+        return n == 0 ? 0 : (double) filas.sum() / n;
+    }
+
+    void reiniciar() {
+        latencias.reiniciar();
+        filas.reset();
+        errores.reset();
+        lotes.reiniciar();
+    }
+}
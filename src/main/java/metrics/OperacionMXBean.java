@@ -0,0 +1,37 @@
+package metrics;
+
+/**
+ * Vista JMX de una Operacion (ver PublicacionMetricas). Tiempos en
+ * milisegundos; todo acumulado desde el arranque o el último reiniciar().
+ */
+public interface OperacionMXBean {
+
+    String getNombre();
+
+    long getLlamadas();
+
+    long getErrores();
+
+    long getFilas();
+
+    double getFilasPorLlamada();
+
+    double getMediaMs();
+
+    double getP50Ms();
+
+    double getP90Ms();
+
+    double getP99Ms();
+
+    double getP999Ms();
+
+    double getMaxMs();
+
+    /** Lotes ejecutados con executeBatch (0 si la operación no los usa). */
+    long getLotes();
+
+    double getLoteMedio();
+
+    long getLoteMax();
+}
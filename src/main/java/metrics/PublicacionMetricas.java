@@ -0,0 +1,172 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saca las métricas del proceso sin montar ningún servicio aparte:
+ *
+ *  - JMX: un MBean por operación, "lampreas.violeta:type=Operacion,name=...",
+ *    con llamadas, errores, filas, percentiles y lotes (ver OperacionMXBean).
+ *    Cualquier cliente JMX (jconsole, o un agente de monitorización que lea
+ *    MBeans) los ve; las operaciones nuevas se registran al aparecer.
+ *  - Log: cada 'intervalo' segundos, una línea JSON por operación con
+ *    llamadas en un fichero local (por defecto ~/.lampreas-violeta/metricas.log;
+ *    al pasar de MAX_BYTES_LOG se renombra a .1 y se empieza otro).
+ *
+ * Propiedades: lampreas.metricas.log (fichero) y lampreas.metricas.intervalo
+ * (segundos; 0 = sin log).
+ */
+public final class PublicacionMetricas {
+
+    public static final String DOMINIO_JMX = "lampreas.violeta";
+
+    private static final long MAX_BYTES_LOG = 10L << 20;
+
+    private static ScheduledExecutorService volcador;
+    private static File ficheroLog;
+
+    private PublicacionMetricas() { }
+
+    /** Registra los MBeans y empieza el volcado periódico (una sola vez). */
+    public static synchronized void iniciar() {
+        if (volcador != null) return;
+
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        Metricas.alCrearOperacion(o -> registrar(servidor, o));
+
+        int intervalo = Integer.getInteger("lampreas.metricas.intervalo", 60);
+        volcador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "volcado-metricas");
+            t.setDaemon(true);
+            return t;
+        });
+        if (intervalo <= 0) return;
+
+        ficheroLog = new File(System.getProperty("lampreas.metricas.log",
+                new File(new File(System.getProperty("user.home"), ".lampreas-violeta"), "metricas.log").getPath()));
+        volcador.scheduleAtFixedRate(PublicacionMetricas::volcarSinError, intervalo, intervalo, TimeUnit.SECONDS);
+    }
+
+    /** Para el volcado (haciendo uno último) y quita los MBeans. */
+    public static synchronized void detener() {
+        if (volcador == null) return;
+        volcador.shutdownNow();
+        volcador = null;
+        Metricas.alCrearOperacion(null);
+        if (ficheroLog != null) volcarSinError();
+
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName n : servidor.queryNames(new ObjectName(DOMINIO_JMX + ":type=Operacion,*"), null)) {
+                servidor.unregisterMBean(n);
+            }
+        } catch (JMException e) {
+            // Al salir: no hay nada que hacer
+        }
+    }
+
+    private static void registrar(MBeanServer servidor, Operacion o) {
+        try {
+            ObjectName nombre = new ObjectName(DOMINIO_JMX + ":type=Operacion,name=" + ObjectName.quote(o.getNombre()));
+            servidor.registerMBean(new StandardMBean(new Vista(o), OperacionMXBean.class, true), nombre);
+        } catch (InstanceAlreadyExistsException e) {
+            // Ya estaba (creada mientras se registraban las existentes)
+        } catch (JMException e) {
+            System.err.println("[Metricas] No se pudo registrar el MBean de " + o.getNombre() + ": " + e);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //  LOG
+    // ------------------------------------------------------------------
+
+    private static void volcarSinError() {
+        try {
+            volcar();
+        } catch (IOException | RuntimeException e) {
+            // Un fallo del log no debe parar el volcado siguiente
+            System.err.println("[Metricas] No se pudo escribir " + ficheroLog + ": " + e);
+        }
+    }
+
+    private static synchronized void volcar() throws IOException {
+        List<Operacion> ops = new ArrayList<>(Metricas.operaciones());
+        ops.removeIf(o -> o.getLatencias().cuenta() == 0 && o.getErrores() == 0);
+        if (ops.isEmpty()) return;
+        ops.sort(Comparator.comparing(Operacion::getNombre));
+
+        File dir = ficheroLog.getAbsoluteFile().getParentFile();
+        if (dir != null) dir.mkdirs();
+        if (ficheroLog.length() > MAX_BYTES_LOG) {
+            File anterior = new File(ficheroLog.getPath() + ".1");
+            anterior.delete();
+            ficheroLog.renameTo(anterior);
+        }
+
+        String instante = Instant.now().toString();
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(ficheroLog, true), StandardCharsets.UTF_8)) {
+            for (Operacion o : ops) w.write(lineaJson(instante, new Vista(o)));
+        }
+    }
+
+    private static String lineaJson(String instante, Vista v) {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"instante\":\"").append(instante)
+                .append("\",\"operacion\":\"").append(v.getNombre().replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\",\"llamadas\":").append(v.getLlamadas())
+                .append(",\"errores\":").append(v.getErrores())
+                .append(",\"filas\":").append(v.getFilas())
+                .append(String.format(Locale.ROOT, ",\"media_ms\":%.3f,\"p50_ms\":%.3f,\"p99_ms\":%.3f,\"p999_ms\":%.3f,\"max_ms\":%.3f",
+                        v.getMediaMs(), v.getP50Ms(), v.getP99Ms(), v.getP999Ms(), v.getMaxMs()));
+        if (v.getLotes() > 0) {
+            sb.append(",\"lotes\":").append(v.getLotes())
+                    .append(String.format(Locale.ROOT, ",\"lote_medio\":%.1f", v.getLoteMedio()));
+        }
+        return sb.append("}\n").toString();
+    }
+
+    // ------------------------------------------------------------------
+    //  MBEAN
+    // ------------------------------------------------------------------
+
+    private record Vista(Operacion o) implements OperacionMXBean {
+
+        private static double ms(double nanos) {
+            return nanos / 1e6;
+        }
+
+        @Override public String getNombre() { return o.getNombre(); }
+        @Override public long getLlamadas() { return o.getLatencias().cuenta(); }
+        @Override public long getErrores() { return o.getErrores(); }
+        @Override public long getFilas() { return o.getFilas(); }
+        @Override public double getFilasPorLlamada() { return o.filasPorLlamada(); }
+        @Override public double getMediaMs() { return ms(o.getLatencias().media()); }
+        @Override public double getP50Ms() { return ms(o.getLatencias().percentil(0.50)); }
+        @Override public double getP90Ms() { return ms(o.getLatencias().percentil(0.90)); }
+        @Override public double getP99Ms() { return ms(o.getLatencias().percentil(0.99)); }
+        @Override public double getP999Ms() { return ms(o.getLatencias().percentil(0.999)); }
+        @Override public double getMaxMs() { return ms(o.getLatencias().max()); }
+        @Override public long getLotes() { return o.getLotes().cuenta(); }
+        @Override public double getLoteMedio() { return o.getLotes().media(); }
+        @Override public long getLoteMax() { return o.getLotes().max(); }
+    }
+}
@@ -29,6 +29,9 @@ public class ClienteDetalle {
                 detalleClienteDAO.insert(d, con);
 
                 con.commit();
+
+                ExistenciaIds.CLIENTES.agregar(c.getId());
+                ExistenciaIds.DETALLES_CLIENTE.agregar(d.getId());
             } catch (SQLException e) {
                 con.rollback();
                 throw e;
@@ -0,0 +1,148 @@
+package services;
+
+import dao.ClienteDAO;
+import dao.DetalleClienteDAO;
+import dao.PedidoDAO;
+import dao.ProductoDAO;
+import util.FiltroBloom;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * Comprobación rápida de "¿existe ya este id?" para una tabla, sin ir a la BD
+ * cuando la respuesta es NO.
+ *
+ * Se apoya en un filtro de Bloom con todos los ids de la tabla:
+ *  - quizaExiste(id) == false → seguro que no existe: se puede insertar sin findById.
+ *  - quizaExiste(id) == true  → puede que exista: hay que preguntar a la BD.
+ *
+ * Uso:
+ *  - cebar() lee la columna id (en streaming) y construye el filtro.
+ *    Mientras no se haya cebado, quizaExiste() responde siempre true.
+ *  - Tras cada INSERT confirmado hay que llamar a agregar(id).
+ *
+ * IMPORTANTE:
+ * - Solo conoce los ids insertados por esta aplicación (o presentes al cebar).
+ *   Si otro proceso inserta, un "no existe" puede ser falso; el INSERT fallará
+ *   entonces por PK duplicada, como antes. Volver a cebar() lo corrige.
+ * - Los borrados no se quitan del filtro (solo provocan más "puede que exista").
+ * - Hay una instancia por tabla (CLIENTES, PRODUCTOS...): la comparten
+ *   todos los que insertan en esa tabla.
+ */
+public class ExistenciaIds {
+
+    /** Lee todos los ids de la tabla y se los pasa al consumidor. */
+    @FunctionalInterface
+    public interface CargadorIds {
+        void cargar(IntConsumer consumidor) throws SQLException;
+    }
+
+    // Tasa de falsos "puede que exista" (1 %: ~10 bits por id)
+    private static final double TASA_FALSOS_POSITIVOS = 0.01;
+
+    // Margen para los ids que se inserten después de cebar
+    private static final int HOLGURA_MINIMA = 1024;
+
+    public static final ExistenciaIds CLIENTES =
+            new ExistenciaIds("cliente", new ClienteDAO()::cargarIds);
+    public static final ExistenciaIds DETALLES_CLIENTE =
+            new ExistenciaIds("detalle_cliente", new DetalleClienteDAO()::cargarIds);
+    public static final ExistenciaIds PRODUCTOS =
+            new ExistenciaIds("producto", new ProductoDAO()::cargarIds);
+    public static final ExistenciaIds PEDIDOS =
+            new ExistenciaIds("pedido", new PedidoDAO()::cargarIds);
+
+    private final String tabla;
+    private final CargadorIds cargador;
+
+    // null = sin cebar. Se sustituye entero al volver a cebar.
+    private volatile FiltroBloom filtro;
+
+    // Ids que llegan por agregar() mientras se ceba: se pasan al filtro nuevo
+    // al publicarlo, para no perder inserts confirmados durante la lectura
+    private volatile Queue<Integer> pendientes;
+
+    public ExistenciaIds(String tabla, CargadorIds cargador) {
+        this.tabla = tabla;
+        this.cargador = cargador;
+    }
+
+    /**
+     * (Re)construye el filtro con los ids actuales de la tabla.
+     * Se dimensiona para el doble de ids (con un mínimo), así admite
+     * bastantes inserts posteriores sin que suban los falsos positivos.
+     */
+    public synchronized void cebar() throws SQLException {
+        Queue<Integer> cola = new ConcurrentLinkedQueue<>();
+        pendientes = cola;
+        try {
+            // Primero se leen los ids a un array, para saber cuántos hay
+            Ids ids = new Ids();
+            cargador.cargar(ids);
+
+            FiltroBloom nuevo = new FiltroBloom(Math.max(ids.n * 2, ids.n + HOLGURA_MINIMA), TASA_FALSOS_POSITIVOS);
+            for (int i = 0; i < ids.n; i++) nuevo.agregar(ids.v[i]);
+
+            // Orden importante: publicar, cerrar la cola y vaciarla.
+            // Quien añada a la cola después de vaciarla ya ve el filtro nuevo (ver agregar()).
+            filtro = nuevo;
+            pendientes = null;
+            for (Integer id : cola) nuevo.agregar(id);
+        } finally {
+            pendientes = null;
+        }
+    }
+
+    /** Array de ids que crece según llegan. */
+    private static final class Ids implements IntConsumer {
+        int[] v = new int[1024];
+        int n;
+
+        @Override
+        public void accept(int id) {
+            if (n == v.length) v = Arrays.copyOf(v, n * 2);
+            v[n++] = id;
+        }
+    }
+
+    /**
+     * Variante de cebar() que nunca lanza: si falla, el filtro queda sin cebar
+     * y todas las consultas siguen yendo a la BD (comportamiento de siempre).
+     */
+    public boolean cebarSinError() {
+        try {
+            cebar();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("[ExistenciaIds] No se pudo cebar " + tabla + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /** Registra un id recién insertado (llamar tras el commit). */
+    public void agregar(int id) {
+        // Primero la cola y luego el filtro: así no se pierde durante un cebar()
+        Queue<Integer> cola = pendientes;
+        if (cola != null) cola.add(id);
+        FiltroBloom f = filtro;
+        if (f != null) f.agregar(id);
+    }
+
+    /** false = seguro que no existe; true = puede que exista (o aún no se ha cebado). */
+    public boolean quizaExiste(int id) {
+        FiltroBloom f = filtro;
+        return f == null || f.puedeContener(id);
+    }
+
+    public boolean estaCebado() {
+        return filtro != null;
+    }
+
+    public String getTabla() {
+        return tabla;
+    }
+}
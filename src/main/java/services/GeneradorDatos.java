@@ -0,0 +1,411 @@
+package services;
+
+import dao.CacheConsultas;
+import model.*;
+import util.Zipf;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Generador de datos sintéticos para pruebas de rendimiento: clientes,
+ * detalles, productos, pedidos y líneas con volúmenes y sesgos realistas.
+ *
+ * - Determinista: la misma semilla y los mismos parámetros dan exactamente
+ *   las mismas filas, con cualquier número de hilos. Cada tabla se genera
+ *   por trozos de ids y cada trozo tiene su propio SplittableRandom, derivado
+ *   solo de (semilla, tabla, número de trozo).
+ * - Sesgo: la popularidad de los productos sigue una Zipf (unos pocos se
+ *   llevan la mayoría de las líneas) y la de los clientes otra (unos pocos
+ *   hacen muchísimos pedidos). Los más populares no son los ids bajos: el
+ *   rango se reparte por los ids con una permutación fija.
+ * - Paralelo: los trozos de las tablas de un mismo nivel de FKs se generan
+ *   a la vez; un nivel no empieza hasta que el anterior ha terminado (con
+ *   COPY, las FKs ya existen al insertar).
+ * - Escribe con SalidaGenerador: COPY directo a PostgreSQL o shards NDJSON.
+ *
+ * Los ids empiezan en 1: está pensado para tablas vacías.
+ */
+public final class GeneradorDatos {
+
+    /** Filas por trozo (unidad de trabajo y de transacción con COPY). */
+    static final int FILAS_POR_TROZO = 100_000;
+
+    // Máximo de líneas de un pedido (la cola de la geométrica se corta aquí)
+    private static final int MAX_LINEAS_POR_PEDIDO = 50;
+
+    /**
+     * @param lineasPorPedido     media de líneas por pedido (&gt;= 1)
+     * @param fraccionConDetalle  parte de los clientes que tiene detalle (0..1)
+     * @param zipfProductos       exponente de la popularidad de productos
+     * @param zipfClientes        exponente del nº de pedidos por cliente
+     */
+    public record Parametros(long semilla, int clientes, int productos, int pedidos,
+                             double lineasPorPedido, double fraccionConDetalle,
+                             double zipfProductos, double zipfClientes,
+                             LocalDate desde, LocalDate hasta, int hilos) {
+
+        public Parametros {
+            if (clientes <= 0 || productos <= 0 || pedidos < 0) {
+                throw new IllegalArgumentException("Hacen falta clientes y productos (> 0) y pedidos >= 0");
+            }
+            if (!(lineasPorPedido >= 1)) {
+                throw new IllegalArgumentException("lineasPorPedido debe ser >= 1: " + lineasPorPedido);
+            }
+            if (!(fraccionConDetalle >= 0 && fraccionConDetalle <= 1)) {
+                throw new IllegalArgumentException("fraccionConDetalle debe estar entre 0 y 1: " + fraccionConDetalle);
+            }
+            if (!desde.isBefore(hasta)) {
+                throw new IllegalArgumentException("'desde' debe ser anterior a 'hasta'");
+            }
+            if (hilos <= 0) throw new IllegalArgumentException("hilos debe ser > 0: " + hilos);
+        }
+
+        /** 100 000 clientes, 10 000 productos, 1 000 000 pedidos con ~5 líneas. */
+        public static Parametros porDefecto() {
+            return new Parametros(42, 100_000, 10_000, 1_000_000, 5.0, 0.8, 1.1, 1.0,
+                    LocalDate.of(2020, 1, 1), LocalDate.of(2025, 1, 1),
+                    Runtime.getRuntime().availableProcessors());
+        }
+
+        /** Nº aproximado de líneas de pedido que saldrán. */
+        public long lineasAproximadas() {
+            return Math.round(pedidos * lineasPorPedido);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //  Textos para nombres, direcciones... (combinados dan millones distintos)
+    // ------------------------------------------------------------------
+
+    private static final String[] NOMBRES = {
+            "Ana", "Luis", "María", "José", "Carmen", "Antonio", "Lucía", "Manuel", "Laura", "Javier",
+            "Marta", "David", "Elena", "Daniel", "Paula", "Carlos", "Sara", "Miguel", "Cristina", "Pablo",
+            "Isabel", "Jorge", "Raquel", "Sergio", "Beatriz", "Alejandro", "Nuria", "Fernando", "Silvia", "Rubén",
+            "Patricia", "Álvaro", "Irene", "Diego", "Rocío", "Adrián", "Andrea", "Iván", "Noelia", "Óscar",
+            "Alba", "Hugo", "Claudia", "Víctor", "Eva", "Mario", "Inés", "Jaime", "Sonia", "Rafael"};
+
+    private static final String[] APELLIDOS = {
+            "García", "Fernández", "González", "Rodríguez", "López", "Martínez", "Sánchez", "Pérez", "Gómez", "Martín",
+            "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz", "Álvarez", "Romero", "Alonso", "Gutiérrez",
+            "Navarro", "Torres", "Domínguez", "Vázquez", "Ramos", "Gil", "Ramírez", "Serrano", "Blanco", "Molina",
+            "Morales", "Suárez", "Ortega", "Delgado", "Castro", "Ortiz", "Rubio", "Marín", "Sanz", "Núñez",
+            "Iglesias", "Medina", "Garrido", "Cortés", "Castillo", "Santos", "Lozano", "Guerrero", "Cano", "Prieto"};
+
+    private static final String[] DOMINIOS = {
+            "gmail.com", "hotmail.com", "yahoo.es", "outlook.com", "telefonica.net", "icloud.com", "correo.es"};
+
+    private static final String[] VIAS = {"Calle", "Avenida", "Plaza", "Paseo", "Camino", "Ronda"};
+
+    private static final String[] CALLES = {
+            "Mayor", "Real", "de la Constitución", "del Sol", "Nueva", "de España", "San Juan", "del Carmen",
+            "de Goya", "de Cervantes", "del Mar", "de la Iglesia", "del Río", "de Alcalá", "de la Paz"};
+
+    private static final String[] CIUDADES = {
+            "Madrid", "Barcelona", "Valencia", "Sevilla", "Zaragoza", "Málaga", "Murcia", "Palma", "Bilbao",
+            "Alicante", "Córdoba", "Valladolid", "Vigo", "Gijón", "Granada", "Oviedo", "Santander", "Pamplona"};
+
+    private static final String[] NOTAS = {
+            "Cliente preferente", "Entregar por la tarde", "Llamar antes de enviar", "Factura mensual",
+            "Pago por transferencia", "No dejar en portería", "Pedido mínimo acordado"};
+
+    private static final String[] ARTICULOS = {
+            "Lámpara", "Silla", "Mesa", "Taza", "Cuaderno", "Mochila", "Auriculares", "Teclado", "Ratón", "Monitor",
+            "Cafetera", "Sartén", "Cojín", "Alfombra", "Reloj", "Bolígrafo", "Botella", "Linterna", "Altavoz", "Cable"};
+
+    private static final String[] ADJETIVOS = {
+            "clásica", "moderna", "compacta", "deluxe", "eco", "pro", "mini", "plegable", "inalámbrica", "retro"};
+
+    // Versiones sin tildes ni espacios para los emails (se calculan una vez)
+    private static final String[] NOMBRES_EMAIL = paraEmail(NOMBRES);
+    private static final String[] APELLIDOS_EMAIL = paraEmail(APELLIDOS);
+
+    private final Parametros p;
+    private final Zipf zipfProductos;
+    private final Zipf zipfClientes;
+    private final long[] preciosCentimos;   // índice = id de producto - 1
+    private final long multProductos;
+    private final long multClientes;
+    private final long epochDesde;
+    private final int dias;
+
+    private GeneradorDatos(Parametros p) {
+        this.p = p;
+        this.zipfProductos = new Zipf(p.productos(), p.zipfProductos());
+        this.zipfClientes = new Zipf(p.clientes(), p.zipfClientes());
+        this.multProductos = multiplicadorCoprimo(p.productos());
+        this.multClientes = multiplicadorCoprimo(p.clientes());
+        this.epochDesde = p.desde().toEpochDay();
+        this.dias = (int) (p.hasta().toEpochDay() - epochDesde);
+
+        // Los precios hacen falta también al generar las líneas (precio_unit):
+        // se calculan una vez, cada uno con su propio generador → deterministas
+        this.preciosCentimos = new long[p.productos()];
+        IntStream.range(0, p.productos()).parallel().forEach(i -> {
+            SplittableRandom r = new SplittableRandom(semilla(TablaSnapshot.PRODUCTO, -1 - i));
+            // Log-normal: muchos baratos y unos pocos caros (mediana ~20 €)
+            double euros = Math.exp(Math.log(20) + 0.9 * r.nextGaussian());
+            preciosCentimos[i] = Math.max(50, Math.min(500_000, Math.round(euros * 100)));
+        });
+    }
+
+    /**
+     * Genera todas las tablas y las escribe en 'salida'.
+     *
+     * @param progreso recibe un mensaje al terminar cada nivel
+     * @return filas escritas por tabla
+     */
+    public static Map<TablaSnapshot, Long> generar(Parametros p, SalidaGenerador salida, Consumer<String> progreso)
+            throws IOException, SQLException {
+        return new GeneradorDatos(p).ejecutar(salida, progreso);
+    }
+
+    private Map<TablaSnapshot, Long> ejecutar(SalidaGenerador salida, Consumer<String> progreso)
+            throws IOException, SQLException {
+        Map<TablaSnapshot, AtomicLong> filas = new EnumMap<>(TablaSnapshot.class);
+        for (TablaSnapshot t : TablaSnapshot.values()) filas.put(t, new AtomicLong());
+
+        ExecutorService pool = Executors.newFixedThreadPool(p.hilos());
+        try {
+            for (List<TablaSnapshot> nivel : TablaSnapshot.porNiveles()) {
+                long t0 = System.nanoTime();
+                List<Callable<Void>> tareas = new ArrayList<>();
+                for (TablaSnapshot t : nivel) {
+                    for (int k = 0; k < numTrozos(t); k++) {
+                        int trozo = k;
+                        tareas.add(() -> {
+                            filas.get(t).addAndGet(generarTrozo(t, trozo, salida));
+                            return null;
+                        });
+                    }
+                }
+
+                esperarTodas(pool, tareas);
+
+                double seg = (System.nanoTime() - t0) / 1e9;
+                for (TablaSnapshot t : nivel) {
+                    long n = filas.get(t).get();
+                    progreso.accept(String.format(Locale.ROOT, "%s: %,d filas (%.1f s, %,.0f filas/s por nivel)",
+                            t.getNombre(), n, seg, n / Math.max(seg, 1e-9)));
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            // Si alguien usa los filtros de existencia, ya no reflejan la BD
+            for (TablaSnapshot t : TablaSnapshot.values()) {
+                ExistenciaIds e = t.existencia();
+                if (e != null && e.estaCebado()) e.cebarSinError();
+            }
+            // COPY no pasa por los DAO: lo que hubiera en la caché de consultas tampoco
+            CacheConsultas.GLOBAL.vaciar();
+        }
+        salida.terminar();
+
+        Map<TablaSnapshot, Long> out = new EnumMap<>(TablaSnapshot.class);
+        filas.forEach((t, n) -> out.put(t, n.get()));
+        return out;
+    }
+
+    /** Lanza las tareas y espera a todas; si alguna falla, cancela el resto y lanza su error. */
+    private static void esperarTodas(ExecutorService pool, List<Callable<Void>> tareas)
+            throws IOException, SQLException {
+        CompletionService<Void> cs = new ExecutorCompletionService<>(pool);
+        List<Future<Void>> futuros = new ArrayList<>(tareas.size());
+        for (Callable<Void> t : tareas) futuros.add(cs.submit(t));
+
+        try {
+            for (int i = 0; i < tareas.size(); i++) {
+                cs.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futuros.forEach(f -> f.cancel(true));
+            throw new IOException("Generación interrumpida", e);
+        } catch (ExecutionException e) {
+            futuros.forEach(f -> f.cancel(true));
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException s) throw s;
+            if (causa instanceof IOException io) throw io;
+            if (causa instanceof RuntimeException r) throw r;
+            throw new IOException(causa);
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //  TROZOS
+    // ------------------------------------------------------------------
+
+    private int filasBase(TablaSnapshot t) {
+        return switch (t) {
+            case CLIENTE, DETALLE_CLIENTE -> p.clientes();
+            case PRODUCTO -> p.productos();
+            case PEDIDO, DETALLE_PEDIDO -> p.pedidos();
+        };
+    }
+
+    /** Ids (de la tabla, o de pedido para las líneas) que cubre cada trozo. */
+    private int idsPorTrozo(TablaSnapshot t) {
+        return t == TablaSnapshot.DETALLE_PEDIDO
+                ? Math.max(1, (int) (FILAS_POR_TROZO / p.lineasPorPedido()))
+                : FILAS_POR_TROZO;
+    }
+
+    private int numTrozos(TablaSnapshot t) {
+        long n = filasBase(t);
+        int porTrozo = idsPorTrozo(t);
+        return (int) ((n + porTrozo - 1) / porTrozo);
+    }
+
+    private long semilla(TablaSnapshot t, long trozo) {
+        return p.semilla() * 0x9E3779B97F4A7C15L + ((long) t.ordinal() << 48) + trozo;
+    }
+
+    private long generarTrozo(TablaSnapshot t, int trozo, SalidaGenerador salida) throws IOException, SQLException {
+        int porTrozo = idsPorTrozo(t);
+        int desde = trozo * porTrozo + 1;
+        int hasta = (int) Math.min((long) trozo * porTrozo + porTrozo, filasBase(t));
+        SplittableRandom r = new SplittableRandom(semilla(t, trozo));
+
+        SalidaGenerador.Trozo destino = salida.abrir(t, trozo);
+        long filas = 0;
+        try {
+            switch (t) {
+                case CLIENTE -> {
+                    for (int id = desde; id <= hasta; id++, filas++) destino.escribir(cliente(id, r));
+                }
+                case DETALLE_CLIENTE -> {
+                    for (int id = desde; id <= hasta; id++) {
+                        if (r.nextDouble() >= p.fraccionConDetalle()) continue;
+                        destino.escribir(detalleCliente(id, r));
+                        filas++;
+                    }
+                }
+                case PRODUCTO -> {
+                    for (int id = desde; id <= hasta; id++, filas++) {
+                        destino.escribir(new Producto(id, nombreProducto(id, r), preciosCentimos[id - 1] / 100.0));
+                    }
+                }
+                case PEDIDO -> {
+                    for (int id = desde; id <= hasta; id++, filas++) {
+                        int cliente = permutar(zipfClientes.muestra(r), multClientes, p.clientes());
+                        destino.escribir(new Pedido(id, cliente, LocalDate.ofEpochDay(epochDesde + r.nextInt(dias))));
+                    }
+                }
+                case DETALLE_PEDIDO -> {
+                    int[] enPedido = new int[MAX_LINEAS_POR_PEDIDO];
+                    for (int pedido = desde; pedido <= hasta; pedido++) {
+                        int n = numLineas(r);
+                        for (int j = 0; j < n; j++) {
+                            int producto = productoDistinto(r, enPedido, j);
+                            enPedido[j] = producto;
+                            destino.escribir(new DetallePedido(pedido, producto, cantidad(r),
+                                    preciosCentimos[producto - 1] / 100.0));
+                            filas++;
+                        }
+                    }
+                }
+            }
+            destino.cerrar();
+            return filas;
+        } catch (IOException | SQLException | RuntimeException e) {
+            destino.abortar();
+            throw e;
+        }
+    }
+
+    // ------------------------------------------------------------------
+    //  FILAS
+    // ------------------------------------------------------------------
+
+    private Cliente cliente(int id, SplittableRandom r) {
+        int n = r.nextInt(NOMBRES.length);
+        int a1 = r.nextInt(APELLIDOS.length);
+        int a2 = r.nextInt(APELLIDOS.length);
+        String nombre = NOMBRES[n] + " " + APELLIDOS[a1] + " " + APELLIDOS[a2];
+        // El id en el email lo hace único aunque se repita el nombre
+        String email = NOMBRES_EMAIL[n] + "." + APELLIDOS_EMAIL[a1] + id + "@" + DOMINIOS[r.nextInt(DOMINIOS.length)];
+        return new Cliente(id, nombre, email);
+    }
+
+    private DetalleCliente detalleCliente(int id, SplittableRandom r) {
+        String direccion = VIAS[r.nextInt(VIAS.length)] + " " + CALLES[r.nextInt(CALLES.length)] + " "
+                + (1 + r.nextInt(200)) + ", " + CIUDADES[r.nextInt(CIUDADES.length)];
+        String telefono = (r.nextBoolean() ? "6" : "7") + (10_000_000 + r.nextInt(90_000_000));
+        String notas = r.nextInt(5) == 0 ? NOTAS[r.nextInt(NOTAS.length)] : "";
+        return new DetalleCliente(id, direccion, telefono, notas);
+    }
+
+    private static String nombreProducto(int id, SplittableRandom r) {
+        return ARTICULOS[r.nextInt(ARTICULOS.length)] + " " + ADJETIVOS[r.nextInt(ADJETIVOS.length)]
+                + " " + Integer.toString(id, 36).toUpperCase(Locale.ROOT);
+    }
+
+    /** 1 + geométrica: media p.lineasPorPedido(), cortada en MAX_LINEAS_POR_PEDIDO y en nº de productos. */
+    private int numLineas(SplittableRandom r) {
+        double media = p.lineasPorPedido();
+        int n = 1;
+        if (media > 1) {
+            double q = 1 - 1 / media;   // probabilidad de "una línea más"
+            n += (int) Math.floor(Math.log(1 - r.nextDouble()) / Math.log(q));
+        }
+        return Math.min(n, Math.min(MAX_LINEAS_POR_PEDIDO, p.productos()));
+    }
+
+    /** Producto según su popularidad que no esté ya en el pedido (PK pedido_id + producto_id). */
+    private int productoDistinto(SplittableRandom r, int[] enPedido, int usados) {
+        while (true) {
+            int producto = permutar(zipfProductos.muestra(r), multProductos, p.productos());
+            boolean repetido = false;
+            for (int i = 0; i < usados && !repetido; i++) repetido = enPedido[i] == producto;
+            if (!repetido) return producto;
+        }
+    }
+
+    /** 1 casi siempre, a veces unas pocas. */
+    private static int cantidad(SplittableRandom r) {
+        int x = r.nextInt(100);
+        if (x < 70) return 1;
+        if (x < 90) return 2;
+        if (x < 97) return 3 + r.nextInt(3);
+        return 6 + r.nextInt(20);
+    }
+
+    /** Rango de popularidad (1..n) → id (1..n), biyección fija: k ↦ (k-1)·m mod n + 1. */
+    private static int permutar(int rango, long mult, int n) {
+        return (int) ((rango - 1) * mult % n) + 1;
+    }
+
+    /** Multiplicador primo con n (así la permutación es una biyección). */
+    private static long multiplicadorCoprimo(int n) {
+        long m = 2_654_435_761L % n;
+        if (m == 0) m = 1;
+        while (mcd(m, n) != 1) m++;
+        return m;
+    }
+
+    private static long mcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static String[] paraEmail(String[] textos) {
+        String[] out = new String[textos.length];
+        for (int i = 0; i < textos.length; i++) {
+            out[i] = java.text.Normalizer.normalize(textos[i], java.text.Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .replace(" ", "")
+                    .toLowerCase(Locale.ROOT);
+        }
+        return out;
+    }
+}
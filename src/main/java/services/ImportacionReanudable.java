@@ -0,0 +1,110 @@
+package services;
+
+import dao.ImportCheckpointDAO;
+import db.Db;
+import model.AppData;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Importación de una instantánea AppData que se puede reanudar.
+ *
+ * - Inserta cada tabla (en orden de FKs) por bloques de 'tamBloque' filas.
+ * - Cada bloque va en su propia transacción, junto con el progreso de esa
+ *   tabla en import_checkpoint: si el bloque se confirma, el progreso también.
+ * - Si algo falla, lo ya confirmado se queda y al volver a lanzar la importación
+ *   del mismo fichero se continúa desde el último bloque confirmado.
+ * - Al terminar todas las tablas se borra el progreso.
+ *
+ * El progreso se asocia a la ruta del fichero, no a su contenido: así se puede
+ * corregir una fila mala en el propio fichero y continuar. Para empezar desde
+ * cero con otro contenido en la misma ruta, llamar antes a reiniciar().
+ */
+public class ImportacionReanudable {
+
+    public static final int TAM_BLOQUE_POR_DEFECTO = 5000;
+
+    private final ImportCheckpointDAO checkpointDAO = new ImportCheckpointDAO();
+
+    private final String origen;
+    private final int tamBloque;
+
+    public ImportacionReanudable(File fichero, int tamBloque) {
+        if (tamBloque <= 0) {
+            throw new IllegalArgumentException("tamBloque debe ser > 0");
+        }
+        this.origen = fichero.getAbsolutePath();
+        this.tamBloque = tamBloque;
+    }
+
+    /**
+     * Importa los datos, saltándose lo que ya se confirmó en una ejecución anterior.
+     *
+     * @param log recibe mensajes de progreso (una línea por tabla/reanudación)
+     * @return filas insertadas en ESTA ejecución
+     */
+    public long importar(AppData data, Consumer<String> log) throws SQLException {
+        checkpointDAO.crearTablaSiNoExiste();
+        Map<String, Long> progreso = checkpointDAO.findByOrigen(origen);
+        long insertadas = 0;
+
+        for (TablaSnapshot tabla : TablaSnapshot.values()) {
+            List<?> filas = tabla.filas(data);
+            int desde = progreso.getOrDefault(tabla.getNombre(), 0L).intValue();
+
+            if (desde >= filas.size()) {
+                if (!filas.isEmpty()) log.accept(tabla.getNombre() + ": ya importada (" + filas.size() + " filas).");
+                continue;
+            }
+            if (desde > 0) {
+                log.accept(tabla.getNombre() + ": reanudando en la fila " + desde + " de " + filas.size() + ".");
+            }
+
+            try (Connection con = Db.getConnection()) {
+                con.setAutoCommit(false);
+                try {
+                    for (int i = desde; i < filas.size(); i += tamBloque) {
+                        int hasta = Math.min(i + tamBloque, filas.size());
+                        insertarBloque(tabla, filas, i, hasta, con);
+                        insertadas += hasta - i;
+                    }
+                } finally {
+                    con.setAutoCommit(true);
+                }
+            }
+
+            log.accept(tabla.getNombre() + ": " + filas.size() + " filas importadas.");
+        }
+
+        checkpointDAO.deleteByOrigen(origen);
+        return insertadas;
+    }
+
+    /** Olvida el progreso guardado para este fichero. */
+    public void reiniciar() throws SQLException {
+        checkpointDAO.crearTablaSiNoExiste();
+        checkpointDAO.deleteByOrigen(origen);
+    }
+
+    private void insertarBloque(TablaSnapshot tabla, List<?> filas, int desde, int hasta,
+                                Connection con) throws SQLException {
+        try {
+            tabla.insertBatch(filas.subList(desde, hasta), con);
+            checkpointDAO.guardar(origen, tabla.getNombre(), hasta, con);
+            con.commit();
+            tabla.registrarInsertados(filas.subList(desde, hasta));
+        } catch (SQLException e) {
+            con.rollback();
+            SQLException causa = e.getNextException() != null ? e.getNextException() : e;
+            throw new SQLException("Error en " + tabla.getNombre() + ", filas [" + desde + ", " + hasta
+                    + "): " + causa.getMessage() + "\nLo anterior queda confirmado; "
+                    + "corrige el fichero y vuelve a importar para continuar desde aquí.",
+                    e.getSQLState(), e);
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package services;
+
+import model.Cliente;
+import util.Hashing;
+import util.IntHashMap;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Índice invertido de trigramas para buscar clientes en memoria.
+ *
+ * Cada cliente se indexa por su id, nombre y email en minúsculas. Para cada
+ * clave se guarda la lista de ids de cliente que la tienen ("posting"), como
+ * int[] ordenado. Claves:
+ *  - TRIGRAMA: cada grupo de 3 caracteres seguidos de un campo.
+ *  - INICIO_CAMPO: los 1, 2 y 3 primeros caracteres de cada campo.
+ *  - INICIO_PALABRA: lo mismo tras cada separador (espacio, '@', '.'...).
+ *
+ * Relevancia (de más a menos):
+ *   0. el id es exactamente el texto
+ *   1. algún campo empieza por el texto
+ *   2. alguna palabra de un campo empieza por el texto
+ *   3. algún campo contiene el texto
+ * y, dentro de cada nivel, por id ascendente.
+ *
+ * Búsqueda de "texto" (k resultados):
+ *  - Para cada nivel se recorren en orden de id las listas que lo cubren
+ *    (inicio + todos los trigramas del texto), intersecándolas sobre la
+ *    marcha, y se para en cuanto hay k resultados. Como las listas ya están
+ *    ordenadas por id, no hace falta mirar el resto de coincidencias.
+ *  - Cada candidato se comprueba con startsWith/contains: las claves son
+ *    hashes y una colisión solo añade candidatos, nunca resultados falsos.
+ *  - Con menos de 3 caracteres los niveles 1 y 2 salen de las claves de
+ *    inicio; el nivel 3 recorre todos los clientes hasta completar k.
+ *
+ * Concurrencia: cerrojo de lectura/escritura. Varias búsquedas a la vez no se
+ * bloquean entre sí; agregar/quitar/cargar las excluyen mientras modifican.
+ */
+public class IndiceTrigramas {
+
+    private static final int TRIGRAMA = 0;
+    private static final int INICIO_CAMPO = 1;
+    private static final int INICIO_PALABRA = 2;
+
+    /** Un cliente indexado con sus campos ya normalizados. */
+    private record Doc(Cliente cliente, String id, String nombre, String email) { }
+
+    /** Lista de ids (ordenada y sin repetidos salvo durante cargar()). */
+    private static final class Posting {
+        int[] ids = new int[4];
+        int n;
+
+        void anadirAlFinal(int id) {
+            if (n == ids.length) ids = Arrays.copyOf(ids, n + (n >> 1) + 1);
+            ids[n++] = id;
+        }
+
+        void insertar(int id) {
+            int pos = Arrays.binarySearch(ids, 0, n, id);
+            if (pos >= 0) return;
+            pos = -pos - 1;
+            if (n == ids.length) ids = Arrays.copyOf(ids, n + (n >> 1) + 1);
+            System.arraycopy(ids, pos, ids, pos + 1, n - pos);
+            ids[pos] = id;
+            n++;
+        }
+
+        void quitar(int id) {
+            int pos = Arrays.binarySearch(ids, 0, n, id);
+            if (pos < 0) return;
+            System.arraycopy(ids, pos + 1, ids, pos, n - pos - 1);
+            n--;
+        }
+
+        /** Ordena, quita repetidos y recorta la holgura (tras una carga masiva). */
+        void compactar() {
+            Arrays.sort(ids, 0, n);
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (m == 0 || ids[i] != ids[m - 1]) ids[m++] = ids[i];
+            }
+            n = m;
+            ids = Arrays.copyOf(ids, n);
+        }
+    }
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private IntHashMap<Doc> docs = new IntHashMap<>();
+    private IntHashMap<Posting> postings = new IntHashMap<>();
+    private Posting todos = new Posting();
+
+    // =========================================================
+    // MANTENIMIENTO
+    // =========================================================
+
+    /** Sustituye todo el contenido del índice por estos clientes. */
+    public void cargar(Collection<Cliente> clientes) {
+        // Se construye fuera del cerrojo: las búsquedas siguen con el índice anterior
+        IntHashMap<Doc> nuevosDocs = new IntHashMap<>(clientes.size());
+        IntHashMap<Posting> nuevosPostings = new IntHashMap<>(Math.max(16, clientes.size() / 4));
+        Posting nuevosTodos = new Posting();
+        for (Cliente c : clientes) {
+            if (c.getId() == null) continue;
+            int id = c.getId();
+            Doc d = doc(c);
+            nuevosDocs.put(id, d);
+            nuevosTodos.anadirAlFinal(id);
+            forEachClave(d, k -> nuevosPostings.computeIfAbsent(k, x -> new Posting()).anadirAlFinal(id));
+        }
+        nuevosPostings.forEach((k, p) -> p.compactar());
+        nuevosTodos.compactar();
+
+        cerrojo.writeLock().lock();
+        try {
+            docs = nuevosDocs;
+            postings = nuevosPostings;
+            todos = nuevosTodos;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /** Añade el cliente o, si ya estaba, lo reindexa con sus datos actuales. */
+    public void agregar(Cliente c) {
+        if (c.getId() == null) return;
+        int id = c.getId();
+        Doc d = doc(c);
+
+        cerrojo.writeLock().lock();
+        try {
+            Doc anterior = docs.put(id, d);
+            if (anterior != null) quitarClaves(id, anterior);
+            todos.insertar(id);
+            forEachClave(d, k -> postings.computeIfAbsent(k, x -> new Posting()).insertar(id));
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    /** Quita el cliente del índice. Devuelve false si no estaba. */
+    public boolean quitar(int id) {
+        cerrojo.writeLock().lock();
+        try {
+            Doc anterior = docs.remove(id);
+            if (anterior == null) return false;
+            quitarClaves(id, anterior);
+            todos.quitar(id);
+            return true;
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        cerrojo.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private void quitarClaves(int id, Doc d) {
+        forEachClave(d, k -> {
+            Posting p = postings.get(k);
+            if (p == null) return;
+            p.quitar(id);
+            if (p.n == 0) postings.remove(k);
+        });
+    }
+
+    // =========================================================
+    // BÚSQUEDA
+    // =========================================================
+
+    /**
+     * Clientes cuyo id, nombre o email contienen el texto (sin distinguir
+     * mayúsculas), como mucho k, los más relevantes primero. Texto vacío: lista vacía.
+     */
+    public List<Cliente> buscar(String texto, int k) {
+        String q = normalizar(texto);
+        if (q.isEmpty() || k <= 0) return List.of();
+
+        cerrojo.readLock().lock();
+        try {
+            List<Cliente> out = new ArrayList<>(Math.min(k, 1024));
+
+            // Nivel 0: id exacto
+            Doc exacto = idExacto(q);
+            if (exacto != null) out.add(exacto.cliente());
+
+            // Niveles 1..3: listas que los cubren, recorridas en orden de id hasta tener k
+            int lenInicio = Math.min(q.length(), 3);
+            List<Posting> trigramas = new ArrayList<>();
+            if (q.length() >= 3) {
+                for (int i = 0; i + 3 <= q.length(); i++) {
+                    Posting p = postings.get(clave(TRIGRAMA, q, i, 3));
+                    if (p == null) return out;   // algún trigrama no aparece: nada contiene q
+                    if (!trigramas.contains(p)) trigramas.add(p);
+                }
+            } else {
+                trigramas.add(todos);
+            }
+
+            for (int nivel = 1; nivel <= 3 && out.size() < k; nivel++) {
+                List<Posting> listas = new ArrayList<>(trigramas);
+                if (nivel < 3) {
+                    Posting inicio = postings.get(clave(nivel == 1 ? INICIO_CAMPO : INICIO_PALABRA, q, 0, lenInicio));
+                    if (inicio == null) continue;
+                    listas.add(inicio);
+                }
+
+                int n = nivel;
+                recorrerInterseccion(listas, id -> {
+                    Doc d = docs.get(id);
+                    if (nivel(d, q) == n) out.add(d.cliente());
+                    return out.size() < k;
+                });
+            }
+            return out;
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    private Doc idExacto(String q) {
+        try {
+            Doc d = docs.get(Integer.parseInt(q));
+            return d != null && d.id().equals(q) ? d : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Llama a 'visitar' con cada id presente en TODAS las listas, en orden
+     * ascendente, mientras devuelva true. La lista más corta marca el paso y
+     * en las demás se busca con búsqueda binaria desde la última posición.
+     */
+    private static void recorrerInterseccion(List<Posting> listas, IntPredicate visitar) {
+        listas.sort(Comparator.comparingInt(p -> p.n));
+        Posting guia = listas.get(0);
+        int[] desde = new int[listas.size()];
+
+        siguiente:
+        for (int i = 0; i < guia.n; i++) {
+            int id = guia.ids[i];
+            for (int j = 1; j < listas.size(); j++) {
+                Posting p = listas.get(j);
+                int pos = Arrays.binarySearch(p.ids, desde[j], p.n, id);
+                if (pos < 0) {
+                    desde[j] = -pos - 1;
+                    if (desde[j] == p.n) return;   // esa lista ya no tiene ids mayores
+                    continue siguiente;
+                }
+                desde[j] = pos + 1;
+            }
+            if (!visitar.test(id)) return;
+        }
+    }
+
+    /** Nivel de relevancia del documento para q (0..3), o -1 si no lo contiene. */
+    private static int nivel(Doc d, String q) {
+        if (d.id().equals(q)) return 0;
+        if (d.id().startsWith(q) || d.nombre().startsWith(q) || d.email().startsWith(q)) return 1;
+        if (empiezaPalabra(d.nombre(), q) || empiezaPalabra(d.email(), q)) return 2;
+        if (d.id().contains(q) || d.nombre().contains(q) || d.email().contains(q)) return 3;
+        return -1;
+    }
+
+    private static boolean empiezaPalabra(String s, String q) {
+        for (int i = s.indexOf(q); i > 0; i = s.indexOf(q, i + 1)) {
+            if (esInicioPalabra(s, i)) return true;
+        }
+        return false;
+    }
+
+    private static boolean esInicioPalabra(String s, int i) {
+        return i > 0 && !Character.isLetterOrDigit(s.charAt(i - 1));
+    }
+
+    // =========================================================
+    // CLAVES
+    // =========================================================
+
+    private static Doc doc(Cliente c) {
+        return new Doc(c, String.valueOf(c.getId()), normalizar(c.getNombre()), normalizar(c.getEmail()));
+    }
+
+    private static String normalizar(String s) {
+        return s == null ? "" : s.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /** Claves de los tres campos (por separado: no se cruzan campos). */
+    private static void forEachClave(Doc d, IntConsumer accion) {
+        clavesCampo(d.id(), accion);
+        clavesCampo(d.nombre(), accion);
+        clavesCampo(d.email(), accion);
+    }
+
+    private static void clavesCampo(String s, IntConsumer accion) {
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            accion.accept(clave(TRIGRAMA, s, i, 3));
+        }
+        for (int i = 0; i < s.length(); i++) {
+            int tipo;
+            if (i == 0) tipo = INICIO_CAMPO;
+            else if (esInicioPalabra(s, i)) tipo = INICIO_PALABRA;
+            else continue;
+            for (int len = 1; len <= 3 && i + len <= s.length(); len++) {
+                accion.accept(clave(tipo, s, i, len));
+            }
+        }
+    }
+
+    /** Hash de (tipo, s[desde..desde+len)). */
+    private static int clave(int tipo, String s, int desde, int len) {
+        int h = tipo * 31 + len;
+        for (int i = desde; i < desde + len; i++) h = h * 31 + s.charAt(i);
+        return Hashing.mezclar(h);
+    }
+}
@@ -1,36 +1,96 @@
 package services;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * Utilidad genérica para exportar/importar JSON usando Jackson.
  * - write(file, data): serializa cualquier objeto a JSON
+ * - writeCompact(file, data): igual, pero sin sangrado (más pequeño y rápido)
  * - read(file, Class<T>): deserializa JSON a un tipo concreto
+ * - toLine / readLines: formato NDJSON (un objeto compacto por línea)
+ * - generador(out): para escribir en streaming (p. ej. un array fila a fila)
+ *
+ * Las clases del modelo se (de)serializan con ModeloJsonModule, sin reflexión.
  */
 public final class JsonIO {
 
     // ObjectMapper es el motor de Jackson: convierte Java <-> JSON
     private static final ObjectMapper MAPPER = new ObjectMapper()
-            .enable(SerializationFeature.INDENT_OUTPUT); // JSON "bonito" (pretty print)
+            .registerModule(new ModeloJsonModule());
+
+    // ObjectWriter/ObjectReader son inmutables: se crean una vez y se reutilizan
+    private static final ObjectWriter BONITO = MAPPER.writer()
+            .with(SerializationFeature.INDENT_OUTPUT); // JSON "bonito" (pretty print)
+
+    private static final ObjectWriter COMPACTO = MAPPER.writer();
+
+    // Un ObjectReader por tipo, creado la primera vez que se pide
+    private static final ClassValue<ObjectReader> LECTORES = new ClassValue<>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+            return MAPPER.readerFor(type);
+        }
+    };
 
     private JsonIO() { }
 
     /** Escribe un objeto Java como JSON en el fichero. */
     public static <T> void write(File file, T data) throws IOException {
+        write(file, data, BONITO);
+    }
+
+    /** Escribe un objeto Java como JSON compacto (sin sangrado) en el fichero. */
+    public static <T> void writeCompact(File file, T data) throws IOException {
+        write(file, data, COMPACTO);
+    }
+
+    private static <T> void write(File file, T data, ObjectWriter writer) throws IOException {
         // Si el fichero está en una carpeta que no existe, la creamos
         File parent = file.getParentFile();
         if (parent != null) parent.mkdirs();
 
-        MAPPER.writeValue(file, data);
+        writer.writeValue(file, data);
     }
 
     /** Lee un JSON desde fichero y lo convierte al tipo indicado. */
     public static <T> T read(File file, Class<T> type) throws IOException {
-        return MAPPER.readValue(file, type);
+        return LECTORES.get(type).readValue(file);
+    }
+
+    /** Serializa un objeto como una única línea JSON (UTF-8, sin el salto final). */
+    public static byte[] toLine(Object data) throws IOException {
+        return COMPACTO.writeValueAsBytes(data);
+    }
+
+    /**
+     * Generador JSON compacto sobre 'out', con el módulo del modelo:
+     * writeObject(fila) escribe cada objeto según llega, sin tener la lista
+     * entera en memoria. Cerrarlo vacía su buffer pero no cierra 'out', ni
+     * cierra los arrays/objetos abiertos (si se corta por un error, el JSON
+     * queda incompleto en vez de parecer válido).
+     */
+    public static JsonGenerator generador(OutputStream out) throws IOException {
+        return MAPPER.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+    }
+
+    /**
+     * Abre un fichero NDJSON y devuelve un iterador que deserializa
+     * un objeto por línea, sin cargar el fichero entero en memoria.
+     * Hay que cerrarlo (try-with-resources).
+     */
+    public static <T> MappingIterator<T> readLines(File file, Class<T> type) throws IOException {
+        return LECTORES.get(type).readValues(file);
     }
 }
@@ -0,0 +1,299 @@
+package services;
+
+import dao.DetallePedidoDAO;
+import model.DetallePedido;
+import util.Hashing;
+import util.OrdenacionPrimitiva;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Almacén en columnas de las líneas de pedido, para análisis en memoria.
+ *
+ * En lugar de un objeto DetallePedido por línea (cabecera + dos Integer + double),
+ * cada campo vive en su propio array primitivo: pedidoId[i], productoId[i],
+ * cantidad[i], precioUnit[i] forman la línea i. Son ~24 bytes por línea más
+ * ~8 de índices, y los recorridos son bucles sobre arrays contiguos.
+ *
+ * Índices (se construyen una vez, la estructura es inmutable):
+ *  - Filas ordenadas por (pedido_id, producto_id): las líneas de un pedido
+ *    son un tramo contiguo [inicioPedido[k], inicioPedido[k+1]).
+ *  - Por producto: las filas de cada producto agrupadas (estilo CSR)
+ *    y el "rango" denso de producto de cada fila, para acumular en arrays.
+ *
+ * Es seguro leerla desde varios hilos a la vez.
+ */
+public final class LineasPedidoColumnar {
+
+    private final int n;
+    private final int[] pedidoId;
+    private final int[] productoId;
+    private final int[] cantidad;
+    private final double[] precioUnit;
+
+    // Índice por pedido: ids distintos ordenados + inicio de su tramo de filas
+    private final int[] pedidos;
+    private final int[] inicioPedido;
+
+    // Índice por producto: ids distintos ordenados, rango de cada fila y filas agrupadas
+    private final int[] productos;
+    private final int[] rangoProducto;
+    private final int[] inicioProducto;
+    private final int[] filasPorProducto;
+
+    private LineasPedidoColumnar(int n, int[] pedidoId, int[] productoId, int[] cantidad, double[] precioUnit) {
+        this.n = n;
+        this.pedidoId = pedidoId;
+        this.productoId = productoId;
+        this.cantidad = cantidad;
+        this.precioUnit = precioUnit;
+
+        ordenarPorPedidoYProducto();
+
+        // ---- índice por pedido (las filas ya están ordenadas por pedido) ----
+        int distintos = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || pedidoId[i] != pedidoId[i - 1]) distintos++;
+        }
+        pedidos = new int[distintos];
+        inicioPedido = new int[distintos + 1];
+        for (int i = 0, k = 0; i < n; i++) {
+            if (i == 0 || pedidoId[i] != pedidoId[i - 1]) {
+                pedidos[k] = pedidoId[i];
+                inicioPedido[k++] = i;
+            }
+        }
+        inicioPedido[distintos] = n;
+
+        // ---- índice por producto: rango denso + agrupación por conteo ----
+        productos = distintosOrdenados(productoId, n);
+        rangoProducto = new int[n];
+        inicioProducto = new int[productos.length + 1];
+        for (int i = 0; i < n; i++) {
+            int r = Arrays.binarySearch(productos, productoId[i]);
+            rangoProducto[i] = r;
+            inicioProducto[r + 1]++;
+        }
+        for (int r = 0; r < productos.length; r++) {
+            inicioProducto[r + 1] += inicioProducto[r];
+        }
+        filasPorProducto = new int[n];
+        int[] siguiente = Arrays.copyOf(inicioProducto, productos.length);
+        for (int i = 0; i < n; i++) {
+            filasPorProducto[siguiente[rangoProducto[i]]++] = i;
+        }
+    }
+
+    // =========================================================
+    // CARGA
+    // =========================================================
+
+    /** Construye el almacén a partir de una instantánea (lista de DetallePedido). */
+    public static LineasPedidoColumnar desde(List<DetallePedido> lineas) {
+        Acumulador acc = new Acumulador(lineas.size());
+        for (DetallePedido dp : lineas) {
+            if (dp.getPedidoId() == null || dp.getProductoId() == null) {
+                throw new IllegalArgumentException("Línea con pedido_id o producto_id nulo: " + dp);
+            }
+            acc.leer(dp.getPedidoId(), dp.getProductoId(), dp.getCantidad(), dp.getPrecioUnit());
+        }
+        return acc.construir();
+    }
+
+    /** Construye el almacén leyendo detalle_pedido en streaming, sin crear DetallePedido. */
+    public static LineasPedidoColumnar desde(DetallePedidoDAO dao) throws SQLException {
+        Acumulador acc = new Acumulador(1024);
+        dao.recorrerTodas(acc);
+        return acc.construir();
+    }
+
+    /** Arrays que crecen mientras llegan líneas. */
+    private static final class Acumulador implements DetallePedidoDAO.LectorLinea {
+        private int n;
+        private int[] pedidoId;
+        private int[] productoId;
+        private int[] cantidad;
+        private double[] precioUnit;
+
+        Acumulador(int capacidad) {
+            capacidad = Math.max(capacidad, 16);
+            pedidoId = new int[capacidad];
+            productoId = new int[capacidad];
+            cantidad = new int[capacidad];
+            precioUnit = new double[capacidad];
+        }
+
+        @Override
+        public void leer(int pedido, int producto, int cant, double precio) {
+            if (n == pedidoId.length) {
+                int cap = n + (n >> 1);
+                pedidoId = Arrays.copyOf(pedidoId, cap);
+                productoId = Arrays.copyOf(productoId, cap);
+                cantidad = Arrays.copyOf(cantidad, cap);
+                precioUnit = Arrays.copyOf(precioUnit, cap);
+            }
+            pedidoId[n] = pedido;
+            productoId[n] = producto;
+            cantidad[n] = cant;
+            precioUnit[n] = precio;
+            n++;
+        }
+
+        LineasPedidoColumnar construir() {
+            // Ajustamos al tamaño real para no arrastrar la holgura de crecimiento
+            return new LineasPedidoColumnar(n,
+                    Arrays.copyOf(pedidoId, n), Arrays.copyOf(productoId, n),
+                    Arrays.copyOf(cantidad, n), Arrays.copyOf(precioUnit, n));
+        }
+    }
+
+    // =========================================================
+    // ACCESO POR FILA
+    // =========================================================
+
+    public int filas() { return n; }
+
+    public int pedidoId(int fila) { return pedidoId[fila]; }
+
+    public int productoId(int fila) { return productoId[fila]; }
+
+    public int cantidad(int fila) { return cantidad[fila]; }
+
+    public double precioUnit(int fila) { return precioUnit[fila]; }
+
+    public double importe(int fila) { return cantidad[fila] * precioUnit[fila]; }
+
+    // =========================================================
+    // ACCESO POR PEDIDO / PRODUCTO
+    // =========================================================
+
+    /** Ids de pedido distintos, ordenados (copia). */
+    public int[] pedidos() { return pedidos.clone(); }
+
+    /** Ids de producto distintos, ordenados (copia). */
+    public int[] productos() { return productos.clone(); }
+
+    /** Número de pedidos distintos. */
+    public int numPedidos() { return pedidos.length; }
+
+    /** Id del k-ésimo pedido distinto (orden ascendente). */
+    public int pedidoEn(int k) { return pedidos[k]; }
+
+    /**
+     * Primera fila del k-ésimo pedido distinto; sus líneas son [inicioPedido(k), inicioPedido(k + 1)).
+     * inicioPedido(numPedidos()) == filas().
+     */
+    public int inicioPedido(int k) { return inicioPedido[k]; }
+
+    /** Número de productos distintos. */
+    public int numProductos() { return productos.length; }
+
+    /** Posición del producto de esta fila dentro de productos() (para acumular en arrays). */
+    public int rangoProducto(int fila) { return rangoProducto[fila]; }
+
+    /** Número de líneas de un pedido (0 si no tiene). */
+    public int numLineasPedido(int pedidoId) {
+        int k = Arrays.binarySearch(pedidos, pedidoId);
+        return k < 0 ? 0 : inicioPedido[k + 1] - inicioPedido[k];
+    }
+
+    /** Llama a 'accion' con el número de fila de cada línea del pedido, por producto_id. */
+    public void forEachLineaDePedido(int pedidoId, IntConsumer accion) {
+        int k = Arrays.binarySearch(pedidos, pedidoId);
+        if (k < 0) return;
+        for (int i = inicioPedido[k]; i < inicioPedido[k + 1]; i++) accion.accept(i);
+    }
+
+    /** Llama a 'accion' con el número de fila de cada línea del producto, por pedido_id. */
+    public void forEachLineaDeProducto(int productoId, IntConsumer accion) {
+        int r = Arrays.binarySearch(productos, productoId);
+        if (r < 0) return;
+        for (int j = inicioProducto[r]; j < inicioProducto[r + 1]; j++) accion.accept(filasPorProducto[j]);
+    }
+
+    // =========================================================
+    // AGREGADOS (bucles sobre arrays, sin objetos por fila)
+    // =========================================================
+
+    /** Importe total de todas las líneas. */
+    public double ingresoTotal() {
+        double total = 0;
+        for (int i = 0; i < n; i++) total += cantidad[i] * precioUnit[i];
+        return total;
+    }
+
+    /** Unidades vendidas en total. */
+    public long unidadesTotales() {
+        long total = 0;
+        for (int i = 0; i < n; i++) total += cantidad[i];
+        return total;
+    }
+
+    /** Importe por pedido, alineado con pedidos(): out[k] es el total del pedido pedidos()[k]. */
+    public double[] ingresosPorPedido() {
+        double[] out = new double[pedidos.length];
+        for (int k = 0; k < pedidos.length; k++) {
+            double s = 0;
+            for (int i = inicioPedido[k]; i < inicioPedido[k + 1]; i++) s += cantidad[i] * precioUnit[i];
+            out[k] = s;
+        }
+        return out;
+    }
+
+    /** Importe por producto, alineado con productos(). */
+    public double[] ingresosPorProducto() {
+        double[] out = new double[productos.length];
+        for (int i = 0; i < n; i++) out[rangoProducto[i]] += cantidad[i] * precioUnit[i];
+        return out;
+    }
+
+    /** Unidades por producto, alineado con productos(). */
+    public long[] unidadesPorProducto() {
+        long[] out = new long[productos.length];
+        for (int i = 0; i < n; i++) out[rangoProducto[i]] += cantidad[i];
+        return out;
+    }
+
+    // =========================================================
+    // AUXILIARES
+    // =========================================================
+
+    /** Ordena las columnas por (pedido_id, producto_id) si no lo están ya (la BD las devuelve así). */
+    private void ordenarPorPedidoYProducto() {
+        long[] claves = new long[n];
+        boolean ordenado = true;
+        for (int i = 0; i < n; i++) {
+            claves[i] = Hashing.par(pedidoId[i], productoId[i]);
+            if (i > 0 && claves[i] < claves[i - 1]) ordenado = false;
+        }
+        if (ordenado) return;
+
+        int[] permutacion = new int[n];
+        for (int i = 0; i < n; i++) permutacion[i] = i;
+        OrdenacionPrimitiva.ordenar(claves, permutacion);
+
+        aplicar(permutacion, pedidoId);
+        aplicar(permutacion, productoId);
+        aplicar(permutacion, cantidad);
+        double[] p = precioUnit.clone();
+        for (int i = 0; i < n; i++) precioUnit[i] = p[permutacion[i]];
+    }
+
+    private static void aplicar(int[] permutacion, int[] columna) {
+        int[] copia = columna.clone();
+        for (int i = 0; i < permutacion.length; i++) columna[i] = copia[permutacion[i]];
+    }
+
+    private static int[] distintosOrdenados(int[] valores, int n) {
+        int[] v = Arrays.copyOf(valores, n);
+        Arrays.sort(v);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || v[i] != v[m - 1]) v[m++] = v[i];
+        }
+        return Arrays.copyOf(v, m);
+    }
+}
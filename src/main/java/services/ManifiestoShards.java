@@ -0,0 +1,65 @@
+package services;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Manifiesto de una exportación NDJSON por shards.
+ *
+ * Se escribe al final de la exportación, así que si existe
+ * todos los ficheros que enumera están completos.
+ *
+ * IMPORTANTE:
+ * - Constructor vacío + getters/setters para que Jackson pueda deserializar.
+ */
+public class ManifiestoShards {
+
+    private long maxBytesPorShard;
+    private List<TablaShards> tablas = new ArrayList<>();
+
+    public ManifiestoShards() { }
+
+    public long getMaxBytesPorShard() { return maxBytesPorShard; }
+    public void setMaxBytesPorShard(long maxBytesPorShard) { this.maxBytesPorShard = maxBytesPorShard; }
+
+    public List<TablaShards> getTablas() { return tablas; }
+    public void setTablas(List<TablaShards> tablas) { this.tablas = tablas; }
+
+    /** Shards de una tabla, en orden. */
+    public static class TablaShards {
+        private String tabla;
+        private long filas;
+        private List<Shard> shards = new ArrayList<>();
+
+        public TablaShards() { }
+        public TablaShards(String tabla) { this.tabla = tabla; }
+
+        public String getTabla() { return tabla; }
+        public void setTabla(String tabla) { this.tabla = tabla; }
+
+        public long getFilas() { return filas; }
+        public void setFilas(long filas) { this.filas = filas; }
+
+        public List<Shard> getShards() { return shards; }
+        public void setShards(List<Shard> shards) { this.shards = shards; }
+    }
+
+    /** Un fichero NDJSON: nombre relativo a la carpeta del manifiesto. */
+    public static class Shard {
+        private String fichero;
+        private long filas;
+        private long bytes;
+
+        public Shard() { }
+        public Shard(String fichero) { this.fichero = fichero; }
+
+        public String getFichero() { return fichero; }
+        public void setFichero(String fichero) { this.fichero = fichero; }
+
+        public long getFilas() { return filas; }
+        public void setFilas(long filas) { this.filas = filas; }
+
+        public long getBytes() { return bytes; }
+        public void setBytes(long bytes) { this.bytes = bytes; }
+    }
+}
@@ -0,0 +1,474 @@
+package services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import model.*;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Módulo de Jackson con serializadores/deserializadores escritos a mano
+ * para las clases del modelo.
+ *
+ * Por qué:
+ * - El ObjectMapper por defecto usa reflexión e introspección de getters;
+ *   aquí cada clase se lee/escribe campo a campo, sin objetos intermedios.
+ * - LocalDate (Pedido.fecha) se escribe como texto ISO "yyyy-MM-dd";
+ *   sin esto Jackson no sabe serializarlo.
+ *
+ * Formato:
+ * - Se escriben solo los campos persistidos. Los valores calculados
+ *   (Pedido.total, DetallePedido.importe) no se escriben y, si aparecen
+ *   en un JSON antiguo, se ignoran al leer, igual que cualquier campo desconocido.
+ */
+public class ModeloJsonModule extends SimpleModule {
+
+    public ModeloJsonModule() {
+        super("ModeloJsonModule");
+
+        addSerializer(LocalDate.class, new FechaSerializer());
+        addDeserializer(LocalDate.class, new FechaDeserializer());
+
+        addSerializer(Cliente.class, new ClienteSerializer());
+        addDeserializer(Cliente.class, new ClienteDeserializer());
+
+        addSerializer(DetalleCliente.class, new DetalleClienteSerializer());
+        addDeserializer(DetalleCliente.class, new DetalleClienteDeserializer());
+
+        addSerializer(Producto.class, new ProductoSerializer());
+        addDeserializer(Producto.class, new ProductoDeserializer());
+
+        addSerializer(Pedido.class, new PedidoSerializer());
+        addDeserializer(Pedido.class, new PedidoDeserializer());
+
+        addSerializer(DetallePedido.class, new DetallePedidoSerializer());
+        addDeserializer(DetallePedido.class, new DetallePedidoDeserializer());
+
+        addSerializer(AppData.class, new AppDataSerializer());
+        addDeserializer(AppData.class, new AppDataDeserializer());
+    }
+
+    /**
+     * Módulo que SOLO añade soporte de LocalDate.
+     * Sirve para comparar contra el camino reflexivo de Jackson (ver bench.JsonIOBenchmark).
+     */
+    public static SimpleModule soloFechas() {
+        SimpleModule m = new SimpleModule("Fechas");
+        m.addSerializer(LocalDate.class, new FechaSerializer());
+        m.addDeserializer(LocalDate.class, new FechaDeserializer());
+        return m;
+    }
+
+    // =========================================================
+    // INSTANCIAS COMPARTIDAS (sin estado, reutilizables)
+    // =========================================================
+
+    private static final DetalleClienteSerializer DETALLE_CLIENTE_SER = new DetalleClienteSerializer();
+    private static final DetalleClienteDeserializer DETALLE_CLIENTE_DES = new DetalleClienteDeserializer();
+    private static final DetallePedidoSerializer DETALLE_PEDIDO_SER = new DetallePedidoSerializer();
+    private static final DetallePedidoDeserializer DETALLE_PEDIDO_DES = new DetallePedidoDeserializer();
+    private static final PedidoSerializer PEDIDO_SER = new PedidoSerializer();
+    private static final PedidoDeserializer PEDIDO_DES = new PedidoDeserializer();
+    private static final ClienteSerializer CLIENTE_SER = new ClienteSerializer();
+    private static final ClienteDeserializer CLIENTE_DES = new ClienteDeserializer();
+    private static final ProductoSerializer PRODUCTO_SER = new ProductoSerializer();
+    private static final ProductoDeserializer PRODUCTO_DES = new ProductoDeserializer();
+
+    // =========================================================
+    // LOCALDATE
+    // =========================================================
+
+    static class FechaSerializer extends StdSerializer<LocalDate> {
+        FechaSerializer() { super(LocalDate.class); }
+
+        @Override
+        public void serialize(LocalDate f, JsonGenerator gen, SerializerProvider prov) throws IOException {
+            gen.writeString(f.toString());
+        }
+    }
+
+    static class FechaDeserializer extends StdDeserializer<LocalDate> {
+        FechaDeserializer() { super(LocalDate.class); }
+
+        @Override
+        public LocalDate deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            return fecha(p, ctx);
+        }
+    }
+
+    // =========================================================
+    // CLIENTE
+    // =========================================================
+
+    static class ClienteSerializer extends StdSerializer<Cliente> {
+        ClienteSerializer() { super(Cliente.class); }
+
+        @Override
+        public void serialize(Cliente c, JsonGenerator gen, SerializerProvider prov) throws IOException {
+            gen.writeStartObject(c);
+            entero(gen, "id", c.getId());
+            gen.writeStringField("nombre", c.getNombre());
+            gen.writeStringField("email", c.getEmail());
+
+            gen.writeFieldName("detalle");
+            if (c.getDetalle() == null) {
+                gen.writeNull();
+            } else {
+                DETALLE_CLIENTE_SER.serialize(c.getDetalle(), gen, prov);
+            }
+
+            gen.writeFieldName("pedidos");
+            lista(gen, c.getPedidos(), PEDIDO_SER, prov);
+            gen.writeEndObject();
+        }
+    }
+
+    static class ClienteDeserializer extends StdDeserializer<Cliente> {
+        ClienteDeserializer() { super(Cliente.class); }
+
+        @Override
+        public Cliente deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            Cliente c = new Cliente();
+            for (JsonToken t = inicioObjeto(p, ctx, handledType()); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String campo = p.currentName();
+                JsonToken v = p.nextToken();
+                switch (campo) {
+                    case "id" -> c.setId(entero(p, ctx));
+                    case "nombre" -> c.setNombre(texto(p, ctx));
+                    case "email" -> c.setEmail(texto(p, ctx));
+                    case "detalle" -> c.setDetalle(v == JsonToken.VALUE_NULL ? null : DETALLE_CLIENTE_DES.deserialize(p, ctx));
+                    case "pedidos" -> c.setPedidos(lista(p, ctx, PEDIDO_DES));
+                    default -> p.skipChildren();
+                }
+            }
+            return c;
+        }
+    }
+
+    // =========================================================
+    // DETALLE_CLIENTE
+    // =========================================================
+
+    static class DetalleClienteSerializer extends StdSerializer<DetalleCliente> {
+        DetalleClienteSerializer() { super(DetalleCliente.class); }
+
+        @Override
+        public void serialize(DetalleCliente d, JsonGenerator gen, SerializerProvider prov) throws IOException {
+            gen.writeStartObject(d);
+            entero(gen, "id", d.getId());
+            gen.writeStringField("direccion", d.getDireccion());
+            gen.writeStringField("telefono", d.getTelefono());
+            gen.writeStringField("notas", d.getNotas());
+            gen.writeEndObject();
+        }
+    }
+
+    static class DetalleClienteDeserializer extends StdDeserializer<DetalleCliente> {
+        DetalleClienteDeserializer() { super(DetalleCliente.class); }
+
+        @Override
+        public DetalleCliente deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            DetalleCliente d = new DetalleCliente();
+            for (JsonToken t = inicioObjeto(p, ctx, handledType()); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String campo = p.currentName();
+                p.nextToken();
+                switch (campo) {
+                    case "id" -> d.setId(entero(p, ctx));
+                    case "direccion" -> d.setDireccion(texto(p, ctx));
+                    case "telefono" -> d.setTelefono(texto(p, ctx));
+                    case "notas" -> d.setNotas(texto(p, ctx));
+                    default -> p.skipChildren();
+                }
+            }
+            return d;
+        }
+    }
+
+    // =========================================================
+    // PRODUCTO
+    // =========================================================
+
+    static class ProductoSerializer extends StdSerializer<Producto> {
+        ProductoSerializer() { super(Producto.class); }
+
+        @Override
+        public void serialize(Producto pr, JsonGenerator gen, SerializerProvider prov) throws IOException {
+            gen.writeStartObject(pr);
+            entero(gen, "id", pr.getId());
+            gen.writeStringField("nombre", pr.getNombre());
+            gen.writeNumberField("precio", pr.getPrecio());
+            gen.writeEndObject();
+        }
+    }
+
+    static class ProductoDeserializer extends StdDeserializer<Producto> {
+        ProductoDeserializer() { super(Producto.class); }
+
+        @Override
+        public Producto deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            Producto pr = new Producto();
+            for (JsonToken t = inicioObjeto(p, ctx, handledType()); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String campo = p.currentName();
+                p.nextToken();
+                switch (campo) {
+                    case "id" -> pr.setId(entero(p, ctx));
+                    case "nombre" -> pr.setNombre(texto(p, ctx));
+                    case "precio" -> pr.setPrecio(decimal(p, ctx));
+                    default -> p.skipChildren();
+                }
+            }
+            return pr;
+        }
+    }
+
+    // =========================================================
+    // PEDIDO
+    // =========================================================
+
+    static class PedidoSerializer extends StdSerializer<Pedido> {
+        PedidoSerializer() { super(Pedido.class); }
+
+        @Override
+        public void serialize(Pedido pe, JsonGenerator gen, SerializerProvider prov) throws IOException {
+            gen.writeStartObject(pe);
+            entero(gen, "id", pe.getId());
+            entero(gen, "clienteId", pe.getClienteId());
+            gen.writeStringField("fecha", pe.getFecha() == null ? null : pe.getFecha().toString());
+
+            gen.writeFieldName("lineas");
+            lista(gen, pe.getLineas(), DETALLE_PEDIDO_SER, prov);
+            gen.writeEndObject();
+        }
+    }
+
+    static class PedidoDeserializer extends StdDeserializer<Pedido> {
+        PedidoDeserializer() { super(Pedido.class); }
+
+        @Override
+        public Pedido deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            Pedido pe = new Pedido();
+            for (JsonToken t = inicioObjeto(p, ctx, handledType()); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String campo = p.currentName();
+                p.nextToken();
+                switch (campo) {
+                    case "id" -> pe.setId(entero(p, ctx));
+                    case "clienteId" -> pe.setClienteId(entero(p, ctx));
+                    case "fecha" -> pe.setFecha(fecha(p, ctx));
+                    case "lineas" -> pe.setLineas(lista(p, ctx, DETALLE_PEDIDO_DES));
+                    default -> p.skipChildren();
+                }
+            }
+            return pe;
+        }
+    }
+
+    // =========================================================
+    // DETALLE_PEDIDO
+    // =========================================================
+
+    static class DetallePedidoSerializer extends StdSerializer<DetallePedido> {
+        DetallePedidoSerializer() { super(DetallePedido.class); }
+
+        @Override
+        public void serialize(DetallePedido dp, JsonGenerator gen, SerializerProvider prov) throws IOException {
+            gen.writeStartObject(dp);
+            entero(gen, "pedidoId", dp.getPedidoId());
+            entero(gen, "productoId", dp.getProductoId());
+            gen.writeNumberField("cantidad", dp.getCantidad());
+            gen.writeNumberField("precioUnit", dp.getPrecioUnit());
+            gen.writeEndObject();
+        }
+    }
+
+    static class DetallePedidoDeserializer extends StdDeserializer<DetallePedido> {
+        DetallePedidoDeserializer() { super(DetallePedido.class); }
+
+        @Override
+        public DetallePedido deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            DetallePedido dp = new DetallePedido();
+            for (JsonToken t = inicioObjeto(p, ctx, handledType()); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String campo = p.currentName();
+                p.nextToken();
+                switch (campo) {
+                    case "pedidoId" -> dp.setPedidoId(entero(p, ctx));
+                    case "productoId" -> dp.setProductoId(entero(p, ctx));
+                    case "cantidad" -> dp.setCantidad(enteroNoNulo(p, ctx));
+                    case "precioUnit" -> dp.setPrecioUnit(decimal(p, ctx));
+                    default -> p.skipChildren();
+                }
+            }
+            return dp;
+        }
+    }
+
+    // =========================================================
+    // APPDATA
+    // =========================================================
+
+    static class AppDataSerializer extends StdSerializer<AppData> {
+        AppDataSerializer() { super(AppData.class); }
+
+        @Override
+        public void serialize(AppData d, JsonGenerator gen, SerializerProvider prov) throws IOException {
+            gen.writeStartObject(d);
+            gen.writeFieldName("clientes");
+            lista(gen, d.getClientes(), CLIENTE_SER, prov);
+            gen.writeFieldName("detallesCliente");
+            lista(gen, d.getDetallesCliente(), DETALLE_CLIENTE_SER, prov);
+            gen.writeFieldName("productos");
+            lista(gen, d.getProductos(), PRODUCTO_SER, prov);
+            gen.writeFieldName("pedidos");
+            lista(gen, d.getPedidos(), PEDIDO_SER, prov);
+            gen.writeFieldName("detallesPedido");
+            lista(gen, d.getDetallesPedido(), DETALLE_PEDIDO_SER, prov);
+            gen.writeEndObject();
+        }
+    }
+
+    static class AppDataDeserializer extends StdDeserializer<AppData> {
+        AppDataDeserializer() { super(AppData.class); }
+
+        @Override
+        public AppData deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+            AppData d = new AppData();
+            for (JsonToken t = inicioObjeto(p, ctx, handledType()); t == JsonToken.FIELD_NAME; t = p.nextToken()) {
+                String campo = p.currentName();
+                p.nextToken();
+                switch (campo) {
+                    case "clientes" -> d.setClientes(lista(p, ctx, CLIENTE_DES));
+                    case "detallesCliente" -> d.setDetallesCliente(lista(p, ctx, DETALLE_CLIENTE_DES));
+                    case "productos" -> d.setProductos(lista(p, ctx, PRODUCTO_DES));
+                    case "pedidos" -> d.setPedidos(lista(p, ctx, PEDIDO_DES));
+                    case "detallesPedido" -> d.setDetallesPedido(lista(p, ctx, DETALLE_PEDIDO_DES));
+                    default -> p.skipChildren();
+                }
+            }
+            return d;
+        }
+    }
+
+    // =========================================================
+    // AUXILIARES
+    // =========================================================
+
+    /**
+     * Deja el parser en el primer FIELD_NAME (o END_OBJECT si está vacío).
+     * Jackson puede llamarnos estando en START_OBJECT o ya en el primer campo;
+     * cualquier otra cosa (un número, un texto...) no es un objeto y se rechaza.
+     */
+    private static JsonToken inicioObjeto(JsonParser p, DeserializationContext ctx, Class<?> tipo)
+            throws IOException {
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.START_OBJECT) {
+            return p.nextToken();
+        }
+        if (t == JsonToken.FIELD_NAME || t == JsonToken.END_OBJECT) {
+            return t;
+        }
+        return ctx.reportInputMismatch(tipo, "Se esperaba un objeto %s y llegó %s", tipo.getSimpleName(), t);
+    }
+
+    private static Integer entero(JsonParser p, DeserializationContext ctx) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_NUMBER_INT -> p.getIntValue();
+            default -> (Integer) ctx.handleUnexpectedToken(Integer.class, p);
+        };
+    }
+
+    /** Para los campos int del modelo: null tampoco vale. */
+    private static int enteroNoNulo(JsonParser p, DeserializationContext ctx) throws IOException {
+        Integer n = entero(p, ctx);
+        if (n == null) {
+            return ctx.reportInputMismatch(Integer.TYPE, "El campo '%s' no puede ser null", p.currentName());
+        }
+        return n;
+    }
+
+    private static double decimal(JsonParser p, DeserializationContext ctx) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> p.getDoubleValue();
+            case VALUE_NULL -> ctx.reportInputMismatch(Double.TYPE, "El campo '%s' no puede ser null", p.currentName());
+            default -> (Double) ctx.handleUnexpectedToken(Double.class, p);
+        };
+    }
+
+    private static String texto(JsonParser p, DeserializationContext ctx) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> p.getText();
+            default -> (String) ctx.handleUnexpectedToken(String.class, p);
+        };
+    }
+
+    private static LocalDate fecha(JsonParser p, DeserializationContext ctx) throws IOException {
+        return switch (p.currentToken()) {
+            case VALUE_NULL -> null;
+            case VALUE_STRING -> {
+                String s = p.getText();
+                try {
+                    yield LocalDate.parse(s);
+                } catch (DateTimeParseException e) {
+                    yield (LocalDate) ctx.handleWeirdStringValue(LocalDate.class, s, "no es una fecha ISO (yyyy-MM-dd)");
+                }
+            }
+            default -> (LocalDate) ctx.handleUnexpectedToken(LocalDate.class, p);
+        };
+    }
+
+    private static void entero(JsonGenerator gen, String campo, Integer valor) throws IOException {
+        if (valor == null) {
+            gen.writeNullField(campo);
+        } else {
+            gen.writeNumberField(campo, valor);
+        }
+    }
+
+    private static <T> void lista(JsonGenerator gen, List<T> lista, StdSerializer<T> ser,
+                                  SerializerProvider prov) throws IOException {
+        if (lista == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray(lista, lista.size());
+        for (T elem : lista) {
+            if (elem == null) {
+                gen.writeNull();
+            } else {
+                ser.serialize(elem, gen, prov);
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    private static <T> List<T> lista(JsonParser p, DeserializationContext ctx,
+                                     StdDeserializer<T> des) throws IOException {
+        List<T> out = new ArrayList<>();
+        JsonToken t = p.currentToken();
+        if (t == JsonToken.VALUE_NULL) {
+            return out;
+        }
+        if (t != JsonToken.START_ARRAY) {
+            return ctx.reportInputMismatch(des, "Se esperaba un array de %s y llegó %s",
+                    des.handledType().getSimpleName(), t);
+        }
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY) {
+            if (t == null) {
+                return ctx.reportInputMismatch(des, "El array de %s no se cierra",
+                        des.handledType().getSimpleName());
+            }
+            out.add(t == JsonToken.VALUE_NULL ? null : des.deserialize(p, ctx));
+        }
+        return out;
+    }
+}
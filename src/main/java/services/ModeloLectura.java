@@ -0,0 +1,240 @@
+package services;
+
+import dao.*;
+import model.*;
+import util.IntHashMap;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Modelo de lectura en memoria: responde consultas sin ir a PostgreSQL.
+ *
+ * Se construye a partir de una instantánea AppData (o leyendo los DAO) y
+ * guarda índices para:
+ *  - clientes por id y por email
+ *  - pedidos por id, por cliente y por rango de fechas
+ *  - líneas por pedido y por producto
+ * y enlaza las referencias Cliente.detalle, Cliente.pedidos y Pedido.lineas.
+ *
+ * Concurrencia:
+ *  - Cada Instantanea es inmutable una vez construida y se publica con una
+ *    AtomicReference: los lectores toman instantanea() y trabajan con ella
+ *    sin cerrojos, aunque mientras tanto se haga un refrescar().
+ *  - refrescar() construye la nueva instantánea aparte y la sustituye de golpe.
+ *  - La instantánea se construye con COPIAS de los objetos del AppData: los
+ *    enlaces (detalle, pedidos, líneas) se ponen en las copias, y lo que el
+ *    llamador siga haciendo con sus objetos no la afecta.
+ *
+ * IMPORTANTE:
+ * - Los objetos que devuelve (Cliente, Pedido...) se comparten entre
+ *   lectores: NO se deben modificar. Las listas son de solo lectura.
+ */
+public class ModeloLectura {
+
+    private final AtomicReference<Instantanea> actual =
+            new AtomicReference<>(Instantanea.construir(new AppData()));
+
+    /** Instantánea vigente. Es estable: un refresco posterior no la modifica. */
+    public Instantanea instantanea() {
+        return actual.get();
+    }
+
+    /** Construye una instantánea nueva con estos datos y la publica. */
+    public Instantanea refrescar(AppData data) {
+        Instantanea nueva = Instantanea.construir(data);
+        actual.set(nueva);
+        return nueva;
+    }
+
+    /** Relee todas las tablas de la BD y publica la nueva instantánea. */
+    public Instantanea refrescarDesdeBD() throws SQLException {
+        AppData data = new AppData();
+        data.setClientes(new ClienteDAO().findAll());
+        data.setDetallesCliente(new DetalleClienteDAO().findAll());
+        data.setProductos(new ProductoDAO().findAll());
+        data.setPedidos(new PedidoDAO().findAll());
+        data.setDetallesPedido(new DetallePedidoDAO().findAll());
+        return refrescar(data);
+    }
+
+    // =========================================================
+    // INSTANTÁNEA INMUTABLE
+    // =========================================================
+
+    public static final class Instantanea {
+
+        private final IntHashMap<Cliente> clientesPorId;
+        private final Map<String, Cliente> clientesPorEmail;
+        private final IntHashMap<Producto> productosPorId;
+        private final IntHashMap<Pedido> pedidosPorId;
+        private final IntHashMap<List<Pedido>> pedidosPorCliente;
+        private final IntHashMap<List<DetallePedido>> lineasPorProducto;
+
+        // Pedidos con fecha, ordenados por fecha, y sus días (epochDay) para búsqueda binaria
+        private final List<Pedido> pedidosPorFecha;
+        private final long[] diasPorFecha;
+
+        private final int numClientes;
+        private final int numPedidos;
+        private final int numLineas;
+
+        private Instantanea(AppData data) {
+            // Copias: se enlazan y se comparten entre lectores, así que no pueden ser las del llamador
+            List<Cliente> clientes = copias(data.getClientes(),
+                    c -> new Cliente(c.getId(), c.getNombre(), c.getEmail()));
+            List<DetalleCliente> detalles = copias(data.getDetallesCliente(),
+                    d -> new DetalleCliente(d.getId(), d.getDireccion(), d.getTelefono(), d.getNotas()));
+            List<Producto> productos = copias(data.getProductos(),
+                    p -> new Producto(p.getId(), p.getNombre(), p.getPrecio()));
+            List<Pedido> pedidos = copias(data.getPedidos(),
+                    p -> new Pedido(p.getId(), p.getClienteId(), p.getFecha()));
+            List<DetallePedido> lineas = copias(data.getDetallesPedido(),
+                    dp -> new DetallePedido(dp.getPedidoId(), dp.getProductoId(), dp.getCantidad(), dp.getPrecioUnit()));
+
+            numClientes = clientes.size();
+            numPedidos = pedidos.size();
+            numLineas = lineas.size();
+
+            // ---- clientes ----
+            clientesPorId = new IntHashMap<>(clientes.size());
+            clientesPorEmail = new HashMap<>(Math.max(16, clientes.size() * 2));
+            for (Cliente c : clientes) {
+                if (c.getId() != null) clientesPorId.put(c.getId(), c);
+                if (c.getEmail() != null) clientesPorEmail.put(normalizarEmail(c.getEmail()), c);
+            }
+            for (DetalleCliente d : detalles) {
+                Cliente c = d.getId() == null ? null : clientesPorId.get(d.getId());
+                if (c != null) c.setDetalle(d);
+            }
+
+            // ---- productos ----
+            productosPorId = new IntHashMap<>(productos.size());
+            for (Producto p : productos) {
+                if (p.getId() != null) productosPorId.put(p.getId(), p);
+            }
+
+            // ---- líneas: por pedido (se enlazan abajo) y por producto ----
+            IntHashMap<List<DetallePedido>> lineasPorPedido = new IntHashMap<>(pedidos.size());
+            lineasPorProducto = new IntHashMap<>(productosPorId.size());
+            for (DetallePedido dp : lineas) {
+                if (dp.getPedidoId() != null) {
+                    lineasPorPedido.computeIfAbsent(dp.getPedidoId(), k -> new ArrayList<>()).add(dp);
+                }
+                if (dp.getProductoId() != null) {
+                    lineasPorProducto.computeIfAbsent(dp.getProductoId(), k -> new ArrayList<>()).add(dp);
+                }
+            }
+            // Sustituir el valor de una clave existente no reorganiza la tabla: se puede hacer al recorrerla
+            lineasPorProducto.forEach((id, l) -> lineasPorProducto.put(id, Collections.unmodifiableList(l)));
+
+            // ---- pedidos: por id, por cliente y por fecha ----
+            pedidosPorId = new IntHashMap<>(pedidos.size());
+            pedidosPorCliente = new IntHashMap<>(clientes.size());
+            List<Pedido> conFecha = new ArrayList<>(pedidos.size());
+            for (Pedido p : pedidos) {
+                if (p.getId() != null) {
+                    pedidosPorId.put(p.getId(), p);
+                    List<DetallePedido> l = lineasPorPedido.get(p.getId());
+                    p.setLineas(l == null ? List.of() : Collections.unmodifiableList(l));
+                }
+                if (p.getClienteId() != null) {
+                    pedidosPorCliente.computeIfAbsent(p.getClienteId(), k -> new ArrayList<>()).add(p);
+                }
+                if (p.getFecha() != null) conFecha.add(p);
+            }
+            pedidosPorCliente.forEach((id, l) -> pedidosPorCliente.put(id, Collections.unmodifiableList(l)));
+            for (Cliente c : clientes) {
+                List<Pedido> suyos = c.getId() == null ? null : pedidosPorCliente.get(c.getId());
+                c.setPedidos(suyos == null ? List.of() : suyos);
+            }
+
+            conFecha.sort(Comparator.comparing(Pedido::getFecha));
+            pedidosPorFecha = Collections.unmodifiableList(conFecha);
+            diasPorFecha = new long[conFecha.size()];
+            for (int i = 0; i < diasPorFecha.length; i++) {
+                diasPorFecha[i] = conFecha.get(i).getFecha().toEpochDay();
+            }
+        }
+
+        static Instantanea construir(AppData data) {
+            return new Instantanea(data);
+        }
+
+        /** Copia de cada elemento (los null de la lista se saltan). */
+        private static <T> List<T> copias(List<T> origen, UnaryOperator<T> copiar) {
+            List<T> out = new ArrayList<>(origen.size());
+            for (T x : origen) {
+                if (x != null) out.add(copiar.apply(x));
+            }
+            return out;
+        }
+
+        // ---------------- consultas ----------------
+
+        /** Cliente por id (con detalle y pedidos enlazados) o null. */
+        public Cliente cliente(int id) {
+            return clientesPorId.get(id);
+        }
+
+        /** Cliente por email, sin distinguir mayúsculas, o null. */
+        public Cliente clientePorEmail(String email) {
+            return email == null ? null : clientesPorEmail.get(normalizarEmail(email));
+        }
+
+        public Producto producto(int id) {
+            return productosPorId.get(id);
+        }
+
+        /** Pedido por id (con sus líneas enlazadas) o null. */
+        public Pedido pedido(int id) {
+            return pedidosPorId.get(id);
+        }
+
+        /** Pedidos de un cliente (aunque el cliente no esté en la instantánea). */
+        public List<Pedido> pedidosDeCliente(int clienteId) {
+            List<Pedido> l = pedidosPorCliente.get(clienteId);
+            return l == null ? List.of() : l;
+        }
+
+        /** Pedidos con fecha en [desde, hasta], ambos incluidos, ordenados por fecha. */
+        public List<Pedido> pedidosEntre(LocalDate desde, LocalDate hasta) {
+            int a = primeraPosicionDesde(desde.toEpochDay());
+            int b = primeraPosicionDesde(hasta.toEpochDay() + 1);
+            return a >= b ? List.of() : pedidosPorFecha.subList(a, b);
+        }
+
+        public List<DetallePedido> lineasDePedido(int pedidoId) {
+            Pedido p = pedidosPorId.get(pedidoId);
+            return p == null ? List.of() : p.getLineas();
+        }
+
+        public List<DetallePedido> lineasDeProducto(int productoId) {
+            List<DetallePedido> l = lineasPorProducto.get(productoId);
+            return l == null ? List.of() : l;
+        }
+
+        public int numClientes() { return numClientes; }
+
+        public int numPedidos() { return numPedidos; }
+
+        public int numLineas() { return numLineas; }
+
+        /** Primera posición de diasPorFecha con valor >= dia. */
+        private int primeraPosicionDesde(long dia) {
+            int lo = 0, hi = diasPorFecha.length;
+            while (lo < hi) {
+                int m = (lo + hi) >>> 1;
+                if (diasPorFecha[m] < dia) lo = m + 1; else hi = m;
+            }
+            return lo;
+        }
+
+        private static String normalizarEmail(String email) {
+            return email.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+}
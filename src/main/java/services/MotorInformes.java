@@ -0,0 +1,381 @@
+package services;
+
+import model.*;
+import util.IntHashMap;
+import util.OrdenacionPrimitiva;
+
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Informes de ventas sobre una instantánea exportada (AppData), sin tocar la BD.
+ *
+ * Calcula:
+ *  - ingresos por cliente, por producto y por mes
+ *  - top-N clientes y productos por ingresos
+ *  - distribución del tamaño de los pedidos (nº de líneas e importe)
+ *
+ * Cómo:
+ *  - Las líneas se pasan a LineasPedidoColumnar (arrays primitivos, ordenadas por pedido).
+ *  - Los pedidos se reparten en bloques que procesa el ForkJoinPool común con
+ *    tantas tareas como su paralelismo. Cada tarea va cogiendo bloques de un
+ *    contador compartido y los acumula en SU propio Parcial (arrays
+ *    primitivos), sin cerrojos ni contención; al acabar se suman. Así hay un
+ *    Parcial por hilo y no por bloque: cada uno ocupa del orden de
+ *    clientes + productos doubles. Nada queda colgado de los hilos del pool.
+ *  - Con esto el coste es lineal en líneas y escala con los núcleos.
+ */
+public final class MotorInformes {
+
+    // Bloques por hilo: suficientes para repartir bien la carga, pocos para no pagar de más
+    private static final int BLOQUES_POR_HILO = 8;
+
+    private MotorInformes() { }
+
+    /** Una fila de un top-N. */
+    public record Entrada(int id, String nombre, double ingresos) { }
+
+    /** Resultado del informe. */
+    public static class Informe {
+        private final double ingresoTotal;
+        private final int numPedidos;
+        private final int numLineas;
+        private final List<Entrada> topClientes;
+        private final List<Entrada> topProductos;
+        private final SortedMap<YearMonth, Double> ingresosPorMes;
+        private final long[] histogramaLineas;
+        private final double[] percentilesImporte;
+
+        // Detalle completo: ids ordenados y su ingreso en la misma posición
+        private final int[] clientes;
+        private final double[] ingresosPorCliente;
+        private final int[] productos;
+        private final double[] ingresosPorProducto;
+
+        Informe(double ingresoTotal, int numPedidos, int numLineas,
+                List<Entrada> topClientes, List<Entrada> topProductos,
+                SortedMap<YearMonth, Double> ingresosPorMes,
+                long[] histogramaLineas, double[] percentilesImporte,
+                int[] clientes, double[] ingresosPorCliente,
+                int[] productos, double[] ingresosPorProducto) {
+            this.ingresoTotal = ingresoTotal;
+            this.numPedidos = numPedidos;
+            this.numLineas = numLineas;
+            this.topClientes = topClientes;
+            this.topProductos = topProductos;
+            this.ingresosPorMes = ingresosPorMes;
+            this.histogramaLineas = histogramaLineas;
+            this.percentilesImporte = percentilesImporte;
+            this.clientes = clientes;
+            this.ingresosPorCliente = ingresosPorCliente;
+            this.productos = productos;
+            this.ingresosPorProducto = ingresosPorProducto;
+        }
+
+        public double getIngresoTotal() { return ingresoTotal; }
+        public int getNumPedidos() { return numPedidos; }
+        public int getNumLineas() { return numLineas; }
+        public List<Entrada> getTopClientes() { return topClientes; }
+        public List<Entrada> getTopProductos() { return topProductos; }
+        public SortedMap<YearMonth, Double> getIngresosPorMes() { return ingresosPorMes; }
+
+        /** histograma[b] = pedidos con entre 2^b y 2^(b+1)-1 líneas. */
+        public long[] getHistogramaLineas() { return histogramaLineas.clone(); }
+
+        /** Importe de pedido en los percentiles PERCENTILES (p50, p90, p99, máximo). */
+        public double[] getPercentilesImporte() { return percentilesImporte.clone(); }
+
+        public int[] getClientes() { return clientes.clone(); }
+        public double[] getIngresosPorCliente() { return ingresosPorCliente.clone(); }
+        public int[] getProductos() { return productos.clone(); }
+        public double[] getIngresosPorProducto() { return ingresosPorProducto.clone(); }
+
+        public void imprimir(PrintStream out) {
+            out.printf("Ingresos totales: %.2f  (%d pedidos, %d líneas)%n", ingresoTotal, numPedidos, numLineas);
+
+            out.println("Top clientes:");
+            topClientes.forEach(e -> out.printf("  %8d  %-30s %14.2f%n", e.id(), e.nombre(), e.ingresos()));
+
+            out.println("Top productos:");
+            topProductos.forEach(e -> out.printf("  %8d  %-30s %14.2f%n", e.id(), e.nombre(), e.ingresos()));
+
+            out.println("Ingresos por mes:");
+            ingresosPorMes.forEach((mes, v) -> out.printf("  %s  %14.2f%n", mes, v));
+
+            out.println("Pedidos por nº de líneas:");
+            for (int b = 0; b < histogramaLineas.length; b++) {
+                if (histogramaLineas[b] == 0) continue;
+                long desde = 1L << b, hasta = (1L << (b + 1)) - 1;
+                out.printf("  %6d-%-6d %10d%n", desde, hasta, histogramaLineas[b]);
+            }
+
+            out.printf("Importe por pedido: p50=%.2f  p90=%.2f  p99=%.2f  máx=%.2f%n",
+                    percentilesImporte[0], percentilesImporte[1], percentilesImporte[2], percentilesImporte[3]);
+        }
+    }
+
+    /** Percentiles de importe por pedido que se calculan (1.0 = máximo). */
+    public static final double[] PERCENTILES = {0.50, 0.90, 0.99, 1.0};
+
+    // =========================================================
+    // GENERACIÓN
+    // =========================================================
+
+    public static Informe generar(AppData data, int topN) {
+        LineasPedidoColumnar lineas = LineasPedidoColumnar.desde(data.getDetallesPedido());
+        Pedidos pedidos = new Pedidos(data.getPedidos());
+
+        int numPedidos = lineas.numPedidos();
+        int numProductos = lineas.numProductos();
+        int numClientes = pedidos.clientes.length;
+        int numMeses = pedidos.numMeses();
+
+        // Importe de cada pedido (posición k de lineas): cada bloque escribe solo sus k
+        double[] importePedido = new double[numPedidos];
+
+        int hilos = Math.max(1, Math.min(numPedidos, ForkJoinPool.getCommonPoolParallelism()));
+        int bloques = Math.max(1, Math.min(numPedidos, hilos * BLOQUES_POR_HILO));
+
+        // Un Parcial por tarea (no por bloque); los bloques se reparten con 'siguiente'
+        AtomicInteger siguiente = new AtomicInteger();
+        List<Parcial> parciales = new ArrayList<>(hilos);
+        List<ForkJoinTask<?>> tareas = new ArrayList<>(hilos);
+        for (int t = 0; t < hilos; t++) {
+            Parcial p = new Parcial(numClientes, numProductos, numMeses);
+            parciales.add(p);
+            tareas.add(ForkJoinTask.adapt(() -> {
+                for (int b; (b = siguiente.getAndIncrement()) < bloques; ) {
+                    acumularBloque(lineas, pedidos, importePedido,
+                            (int) ((long) numPedidos * b / bloques),
+                            (int) ((long) numPedidos * (b + 1) / bloques), p);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tareas);
+
+        Parcial total = parciales.get(0);
+        for (int t = 1; t < hilos; t++) total.sumar(parciales.get(t));
+
+        // ---- nombres para los top-N ----
+        IntHashMap<String> nombresCliente = new IntHashMap<>(data.getClientes().size());
+        for (Cliente c : data.getClientes()) {
+            if (c.getId() != null && c.getNombre() != null) nombresCliente.put(c.getId(), c.getNombre());
+        }
+        IntHashMap<String> nombresProducto = new IntHashMap<>(data.getProductos().size());
+        for (Producto pr : data.getProductos()) {
+            if (pr.getId() != null && pr.getNombre() != null) nombresProducto.put(pr.getId(), pr.getNombre());
+        }
+
+        int[] productos = lineas.productos();
+        List<Entrada> topClientes = new ArrayList<>();
+        for (int r : topN(total.porCliente, topN)) {
+            int id = pedidos.clientes[r];
+            topClientes.add(new Entrada(id, Objects.toString(nombresCliente.get(id), "?"), total.porCliente[r]));
+        }
+        List<Entrada> topProductos = new ArrayList<>();
+        for (int r : topN(total.porProducto, topN)) {
+            int id = productos[r];
+            topProductos.add(new Entrada(id, Objects.toString(nombresProducto.get(id), "?"), total.porProducto[r]));
+        }
+
+        SortedMap<YearMonth, Double> porMes = new TreeMap<>();
+        for (int m = 0; m < numMeses; m++) {
+            if (total.porMes[m] != 0) porMes.put(pedidos.mesDesdeIndice(m), total.porMes[m]);
+        }
+
+        return new Informe(lineas.ingresoTotal(), numPedidos, lineas.filas(),
+                topClientes, topProductos, porMes,
+                total.histogramaLineas, percentiles(importePedido),
+                pedidos.clientes, total.porCliente, productos, total.porProducto);
+    }
+
+    // =========================================================
+    // AUXILIARES
+    // =========================================================
+
+    /** Pedidos [desde, hasta) de lineas: importe de cada uno en importePedido y el resto en p. */
+    private static void acumularBloque(LineasPedidoColumnar lineas, Pedidos pedidos,
+                                       double[] importePedido, int desde, int hasta, Parcial p) {
+        for (int k = desde; k < hasta; k++) {
+            int iniFila = lineas.inicioPedido(k);
+            int finFila = lineas.inicioPedido(k + 1);
+
+            double totalPedido = 0;
+            for (int i = iniFila; i < finFila; i++) {
+                double importe = lineas.importe(i);
+                totalPedido += importe;
+                p.porProducto[lineas.rangoProducto(i)] += importe;
+            }
+            importePedido[k] = totalPedido;
+            p.histogramaLineas[31 - Integer.numberOfLeadingZeros(finFila - iniFila)]++;
+
+            int pos = pedidos.posicion(lineas.pedidoEn(k));
+            if (pos >= 0) {
+                p.porCliente[pedidos.rangoCliente[pos]] += totalPedido;
+                int mes = pedidos.mes[pos];
+                if (mes >= 0) p.porMes[mes] += totalPedido;
+            }
+        }
+    }
+
+    /** Acumuladores de una tarea. */
+    private static final class Parcial {
+        final double[] porCliente;
+        final double[] porProducto;
+        final double[] porMes;
+        final long[] histogramaLineas = new long[32];
+
+        Parcial(int clientes, int productos, int meses) {
+            porCliente = new double[clientes];
+            porProducto = new double[productos];
+            porMes = new double[meses];
+        }
+
+        void sumar(Parcial o) {
+            for (int i = 0; i < porCliente.length; i++) porCliente[i] += o.porCliente[i];
+            for (int i = 0; i < porProducto.length; i++) porProducto[i] += o.porProducto[i];
+            for (int i = 0; i < porMes.length; i++) porMes[i] += o.porMes[i];
+            for (int i = 0; i < histogramaLineas.length; i++) histogramaLineas[i] += o.histogramaLineas[i];
+        }
+    }
+
+    /**
+     * Pedidos en arrays ordenados por id: para cada uno, rango denso de su
+     * cliente y mes (índice desde el primer mes con pedidos, -1 si no tiene fecha).
+     */
+    private static final class Pedidos {
+        final int[] ids;
+        final int[] rangoCliente;
+        final int[] mes;
+        final int[] clientes;     // ids de cliente distintos, ordenados
+        final int primerMes;      // año*12 + mes-1 del primer mes
+        final int ultimoMes;
+
+        Pedidos(List<Pedido> pedidos) {
+            int n = 0;
+            long[] claves = new long[pedidos.size()];
+            int[] pos = new int[pedidos.size()];
+            for (int i = 0; i < pedidos.size(); i++) {
+                Pedido p = pedidos.get(i);
+                if (p.getId() == null || p.getClienteId() == null) continue;
+                claves[n] = p.getId();
+                pos[n++] = i;
+            }
+            claves = Arrays.copyOf(claves, n);
+            pos = Arrays.copyOf(pos, n);
+            OrdenacionPrimitiva.ordenar(claves, pos);
+
+            ids = new int[n];
+            int[] clienteId = new int[n];
+            int[] mesAbs = new int[n];
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+            for (int j = 0; j < n; j++) {
+                Pedido p = pedidos.get(pos[j]);
+                ids[j] = p.getId();
+                clienteId[j] = p.getClienteId();
+                LocalDate f = p.getFecha();
+                mesAbs[j] = f == null ? Integer.MIN_VALUE : f.getYear() * 12 + f.getMonthValue() - 1;
+                if (f != null) {
+                    min = Math.min(min, mesAbs[j]);
+                    max = Math.max(max, mesAbs[j]);
+                }
+            }
+            primerMes = min;
+            ultimoMes = max;
+
+            int[] c = clienteId.clone();
+            Arrays.sort(c);
+            int m = 0;
+            for (int j = 0; j < n; j++) {
+                if (j == 0 || c[j] != c[m - 1]) c[m++] = c[j];
+            }
+            clientes = Arrays.copyOf(c, m);
+
+            rangoCliente = new int[n];
+            mes = new int[n];
+            for (int j = 0; j < n; j++) {
+                rangoCliente[j] = Arrays.binarySearch(clientes, clienteId[j]);
+                mes[j] = mesAbs[j] == Integer.MIN_VALUE ? -1 : mesAbs[j] - primerMes;
+            }
+        }
+
+        int posicion(int pedidoId) {
+            return Arrays.binarySearch(ids, pedidoId);
+        }
+
+        int numMeses() {
+            return ultimoMes < primerMes ? 0 : ultimoMes - primerMes + 1;
+        }
+
+        YearMonth mesDesdeIndice(int m) {
+            int abs = primerMes + m;
+            return YearMonth.of(abs / 12, abs % 12 + 1);
+        }
+    }
+
+    /** Índices de los n mayores valores, de mayor a menor (montículo de mínimos de tamaño n). */
+    static int[] topN(double[] valores, int n) {
+        n = Math.min(n, valores.length);
+        if (n <= 0) return new int[0];
+
+        int[] heap = new int[n];
+        int tam = 0;
+        for (int i = 0; i < valores.length; i++) {
+            if (tam < n) {
+                heap[tam] = i;
+                subir(heap, tam++, valores);
+            } else if (valores[i] > valores[heap[0]]) {
+                heap[0] = i;
+                bajar(heap, tam, valores);
+            }
+        }
+
+        // Sacamos el mínimo cada vez y lo colocamos al final: queda de mayor a menor
+        int[] out = new int[tam];
+        for (int j = tam - 1; j >= 0; j--) {
+            out[j] = heap[0];
+            heap[0] = heap[--tam];
+            bajar(heap, tam, valores);
+        }
+        return out;
+    }
+
+    private static void subir(int[] heap, int i, double[] v) {
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (v[heap[i]] >= v[heap[padre]]) break;
+            int t = heap[i]; heap[i] = heap[padre]; heap[padre] = t;
+            i = padre;
+        }
+    }
+
+    private static void bajar(int[] heap, int tam, double[] v) {
+        int i = 0;
+        while (true) {
+            int hijo = 2 * i + 1;
+            if (hijo >= tam) break;
+            if (hijo + 1 < tam && v[heap[hijo + 1]] < v[heap[hijo]]) hijo++;
+            if (v[heap[i]] <= v[heap[hijo]]) break;
+            int t = heap[i]; heap[i] = heap[hijo]; heap[hijo] = t;
+            i = hijo;
+        }
+    }
+
+    private static double[] percentiles(double[] importes) {
+        double[] out = new double[PERCENTILES.length];
+        if (importes.length == 0) return out;
+
+        double[] ordenados = importes.clone();
+        Arrays.parallelSort(ordenados);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int pos = (int) Math.ceil(PERCENTILES[i] * ordenados.length) - 1;
+            out[i] = ordenados[Math.max(0, Math.min(pos, ordenados.length - 1))];
+        }
+        return out;
+    }
+}
@@ -0,0 +1,203 @@
+package services;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import db.Db;
+import model.AppData;
+
+import java.io.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Exportación/importación de una instantánea en formato NDJSON por shards.
+ *
+ * Estructura en disco (una carpeta):
+ *  - manifest.json                 → ManifiestoShards
+ *  - cliente-00000.ndjson, ...     → una fila por línea, cada fichero ≤ maxBytesPorShard
+ *
+ * La importación carga los shards en paralelo, cada uno en su propia conexión
+ * y transacción, respetando el orden de FKs entre niveles (ver TablaSnapshot).
+ */
+public final class NdjsonShards {
+
+    public static final String MANIFIESTO = "manifest.json";
+
+    /** Tamaño por defecto de cada shard: 64 MB. */
+    public static final long MAX_BYTES_POR_DEFECTO = 64L * 1024 * 1024;
+
+    // Filas por executeBatch durante la importación
+    private static final int TAM_LOTE = 1000;
+
+    private NdjsonShards() { }
+
+    // ===============================
+    // EXPORTACIÓN
+    // ===============================
+
+    /**
+     * Escribe la instantánea en la carpeta indicada, un conjunto de shards por tabla.
+     * Las tablas se escriben en paralelo; el manifiesto se escribe el último.
+     */
+    public static ManifiestoShards exportar(AppData data, File dir, long maxBytesPorShard) throws IOException {
+        if (maxBytesPorShard <= 0) {
+            throw new IllegalArgumentException("maxBytesPorShard debe ser > 0");
+        }
+        dir.mkdirs();
+
+        ManifiestoShards manifiesto = new ManifiestoShards();
+        manifiesto.setMaxBytesPorShard(maxBytesPorShard);
+
+        try {
+            List<ManifiestoShards.TablaShards> tablas = List.of(TablaSnapshot.values()).parallelStream()
+                    .map(t -> {
+                        try {
+                            return exportarTabla(t, t.filas(data), dir, maxBytesPorShard);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toList();
+            manifiesto.setTablas(new ArrayList<>(tablas));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        JsonIO.write(new File(dir, MANIFIESTO), manifiesto);
+        return manifiesto;
+    }
+
+    private static ManifiestoShards.TablaShards exportarTabla(TablaSnapshot tabla, List<?> filas,
+                                                              File dir, long maxBytes) throws IOException {
+        ManifiestoShards.TablaShards info = new ManifiestoShards.TablaShards(tabla.getNombre());
+        ManifiestoShards.Shard shard = null;
+        OutputStream out = null;
+
+        try {
+            for (Object fila : filas) {
+                byte[] linea = JsonIO.toLine(fila);
+
+                // Abrimos un shard nuevo si no hay ninguno o si esta línea lo haría pasar del límite
+                // (un shard siempre lleva al menos una línea, aunque esa línea sola ya lo supere)
+                if (shard == null || (shard.getBytes() > 0 && shard.getBytes() + linea.length + 1 > maxBytes)) {
+                    if (out != null) out.close();
+                    shard = new ManifiestoShards.Shard(
+                            "%s-%05d.ndjson".formatted(tabla.getNombre(), info.getShards().size()));
+                    info.getShards().add(shard);
+                    out = new BufferedOutputStream(new FileOutputStream(new File(dir, shard.getFichero())), 1 << 16);
+                }
+
+                out.write(linea);
+                out.write('\n');
+                shard.setBytes(shard.getBytes() + linea.length + 1);
+                shard.setFilas(shard.getFilas() + 1);
+                info.setFilas(info.getFilas() + 1);
+            }
+        } finally {
+            if (out != null) out.close();
+        }
+
+        return info;
+    }
+
+    // ===============================
+    // IMPORTACIÓN
+    // ===============================
+
+    /**
+     * Importa una exportación por shards usando 'hilos' conexiones en paralelo.
+     *
+     * Cada shard se inserta en su propia transacción: o entra entero o no entra.
+     * Un nivel no empieza hasta que el anterior ha terminado; si algún shard falla
+     * se termina el nivel en curso y se lanza el primer error encontrado.
+     *
+     * @return número total de filas insertadas
+     */
+    public static long importar(File dir, int hilos) throws IOException, SQLException {
+        ManifiestoShards manifiesto = JsonIO.read(new File(dir, MANIFIESTO), ManifiestoShards.class);
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, hilos));
+        long total = 0;
+
+        try {
+            for (List<TablaSnapshot> nivel : TablaSnapshot.porNiveles()) {
+                List<Callable<Long>> tareas = new ArrayList<>();
+
+                for (ManifiestoShards.TablaShards info : manifiesto.getTablas()) {
+                    TablaSnapshot tabla = TablaSnapshot.porNombre(info.getTabla());
+                    if (!nivel.contains(tabla)) continue;
+
+                    for (ManifiestoShards.Shard shard : info.getShards()) {
+                        File f = new File(dir, shard.getFichero());
+                        tareas.add(() -> cargarShard(tabla, f));
+                    }
+                }
+
+                for (Future<Long> fut : pool.invokeAll(tareas)) {
+                    total += esperar(fut);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importación interrumpida", e);
+        } finally {
+            pool.shutdownNow();
+            // Los shards confirmados (aunque otro haya fallado) ya tienen ids nuevos:
+            // los filtros de existencia que estuvieran en uso se vuelven a cebar
+            for (TablaSnapshot t : TablaSnapshot.values()) {
+                ExistenciaIds e = t.existencia();
+                if (e != null && e.estaCebado()) e.cebarSinError();
+            }
+        }
+
+        return total;
+    }
+
+    private static long cargarShard(TablaSnapshot tabla, File f) throws IOException, SQLException {
+        long filas = 0;
+
+        try (Connection con = Db.getConnection();
+             MappingIterator<?> it = JsonIO.readLines(f, tabla.getTipo())) {
+            con.setAutoCommit(false);
+
+            try {
+                List<Object> lote = new ArrayList<>(TAM_LOTE);
+                while (it.hasNextValue()) {
+                    lote.add(it.nextValue());
+                    if (lote.size() == TAM_LOTE) {
+                        tabla.insertBatch(lote, con);
+                        filas += lote.size();
+                        lote.clear();
+                    }
+                }
+                if (!lote.isEmpty()) {
+                    tabla.insertBatch(lote, con);
+                    filas += lote.size();
+                }
+
+                con.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+
+        return filas;
+    }
+
+    private static long esperar(Future<Long> fut) throws IOException, SQLException, InterruptedException {
+        try {
+            return fut.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof SQLException s) throw s;
+            if (causa instanceof IOException io) throw io;
+            if (causa instanceof RuntimeException r) throw r;
+            throw new IOException(causa);
+        }
+    }
+}
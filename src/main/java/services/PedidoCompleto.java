@@ -0,0 +1,41 @@
+package services;
+
+import dao.DetallePedidoDAO;
+import dao.PedidoDAO;
+import db.Db;
+import model.DetallePedido;
+import model.Pedido;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+public class PedidoCompleto {
+
+    private final PedidoDAO pedidoDAO = new PedidoDAO();
+    private final DetallePedidoDAO detallePedidoDAO = new DetallePedidoDAO();
+
+    /**
+     * Guarda un pedido y sus líneas en una única transacción (las líneas en
+     * un solo lote). Si algo falla, se hace rollback y no se inserta nada.
+     */
+    public void guardarPedidoCompleto(Pedido p, List<DetallePedido> lineas) throws SQLException {
+        try (Connection con = Db.getConnection()) {
+            con.setAutoCommit(false);
+
+            try {
+                pedidoDAO.insert(p, con);
+                if (!lineas.isEmpty()) detallePedidoDAO.insertBatch(lineas, con);
+
+                con.commit();
+
+                ExistenciaIds.PEDIDOS.agregar(p.getId());
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(true);
+            }
+        }
+    }
+}
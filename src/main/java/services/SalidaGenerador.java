@@ -0,0 +1,261 @@
+package services;
+
+import db.Db;
+import model.*;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Adónde escribe GeneradorDatos. Los datos se generan por trozos (un rango
+ * de ids de una tabla); cada trozo se escribe entero desde un hilo, y
+ * varios trozos a la vez desde hilos distintos.
+ *
+ * Implementaciones:
+ *  - copy(): directamente a PostgreSQL con COPY ... FROM STDIN (formato CSV),
+ *    una conexión y una transacción por trozo. Es lo más rápido para
+ *    cargar millones de filas: sin un INSERT por fila.
+ *  - ndjson(dir): un shard NDJSON por trozo más manifest.json, el mismo
+ *    formato que NdjsonShards (se puede importar con él después).
+ */
+public interface SalidaGenerador {
+
+    /** Empieza el trozo 'numero' de la tabla. */
+    Trozo abrir(TablaSnapshot tabla, int numero) throws IOException, SQLException;
+
+    /** Se llama una vez, cuando todas las tablas han terminado sin errores. */
+    default void terminar() throws IOException { }
+
+    /** Un trozo en curso: se usa desde un solo hilo. */
+    interface Trozo {
+        void escribir(Object fila) throws IOException, SQLException;
+
+        /** Confirma el trozo. */
+        void cerrar() throws IOException, SQLException;
+
+        /** Descarta lo escrito (tras un error); no lanza. */
+        void abortar();
+    }
+
+    static SalidaGenerador copy() {
+        return Copy::new;
+    }
+
+    static SalidaGenerador ndjson(File dir) {
+        return new Ndjson(dir);
+    }
+
+    // =========================================================================
+    //  COPY
+    // =========================================================================
+
+    /** Un COPY por trozo; las filas se pasan al driver en bloques de ~64 KB. */
+    final class Copy implements Trozo {
+
+        private static final int TAM_BLOQUE = 1 << 16;
+
+        private final TablaSnapshot tabla;
+        private final Connection con;
+        private final CopyIn copia;
+        private final StringBuilder sb = new StringBuilder(TAM_BLOQUE + 1024);
+
+        Copy(TablaSnapshot tabla, int numero) throws SQLException {
+            this.tabla = tabla;
+            this.con = Db.getConnection();
+            try {
+                this.copia = con.unwrap(PGConnection.class).getCopyAPI().copyIn(sentencia(tabla));
+            } catch (SQLException e) {
+                con.close();
+                throw e;
+            }
+        }
+
+        private static String sentencia(TablaSnapshot tabla) {
+            String columnas = switch (tabla) {
+                case CLIENTE -> "id, nombre, email";
+                case DETALLE_CLIENTE -> "id, direccion, telefono, notas";
+                case PRODUCTO -> "id, nombre, precio";
+                case PEDIDO -> "id, cliente_id, fecha";
+                case DETALLE_PEDIDO -> "pedido_id, producto_id, cantidad, precio_unit";
+            };
+            return "COPY " + tabla.getNombre() + " (" + columnas + ") FROM STDIN (FORMAT csv)";
+        }
+
+        @Override
+        public void escribir(Object fila) throws SQLException {
+            switch (tabla) {
+                case CLIENTE -> {
+                    Cliente c = (Cliente) fila;
+                    sb.append(c.getId()).append(',');
+                    texto(c.getNombre()).append(',');
+                    texto(c.getEmail());
+                }
+                case DETALLE_CLIENTE -> {
+                    DetalleCliente d = (DetalleCliente) fila;
+                    sb.append(d.getId()).append(',');
+                    texto(d.getDireccion()).append(',');
+                    texto(d.getTelefono()).append(',');
+                    texto(d.getNotas());
+                }
+                case PRODUCTO -> {
+                    Producto p = (Producto) fila;
+                    sb.append(p.getId()).append(',');
+                    texto(p.getNombre()).append(',');
+                    importe(p.getPrecio());
+                }
+                case PEDIDO -> {
+                    Pedido p = (Pedido) fila;
+                    sb.append(p.getId()).append(',').append(p.getClienteId()).append(',').append(p.getFecha());
+                }
+                case DETALLE_PEDIDO -> {
+                    DetallePedido l = (DetallePedido) fila;
+                    sb.append(l.getPedidoId()).append(',').append(l.getProductoId()).append(',')
+                            .append(l.getCantidad()).append(',');
+                    importe(l.getPrecioUnit());
+                }
+            }
+            sb.append('\n');
+            if (sb.length() >= TAM_BLOQUE) vaciar();
+        }
+
+        /** Texto CSV: null = vacío sin comillas (NULL en COPY); comillas si hace falta. */
+        private StringBuilder texto(String s) {
+            if (s == null) return sb;
+            boolean comillas = s.isEmpty();
+            for (int i = 0; i < s.length() && !comillas; i++) {
+                char c = s.charAt(i);
+                comillas = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!comillas) return sb.append(s);
+            return sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+        }
+
+        /** Importe con dos decimales, sin pasar por Double.toString. */
+        private void importe(double valor) {
+            long centimos = Math.round(valor * 100);
+            if (centimos < 0) {
+                sb.append('-');
+                centimos = -centimos;
+            }
+            long resto = centimos % 100;
+            sb.append(centimos / 100).append('.').append(resto < 10 ? "0" : "").append(resto);
+        }
+
+        private void vaciar() throws SQLException {
+            if (sb.length() == 0) return;
+            byte[] b = sb.toString().getBytes(StandardCharsets.UTF_8);
+            copia.writeToCopy(b, 0, b.length);
+            sb.setLength(0);
+        }
+
+        @Override
+        public void cerrar() throws SQLException {
+            try {
+                vaciar();
+                copia.endCopy();
+            } finally {
+                con.close();
+            }
+        }
+
+        @Override
+        public void abortar() {
+            try {
+                if (copia.isActive()) copia.cancelCopy();
+            } catch (SQLException e) {
+                // La conexión se cierra igualmente
+            }
+            try {
+                con.close();
+            } catch (SQLException e) {
+                // Nada más que hacer
+            }
+        }
+    }
+
+    // =========================================================================
+    //  NDJSON
+    // =========================================================================
+
+    /** Un shard por trozo; el manifiesto se escribe al terminar todo. */
+    final class Ndjson implements SalidaGenerador {
+
+        private final File dir;
+        private final Map<TablaSnapshot, ConcurrentSkipListMap<Integer, ManifiestoShards.Shard>> shards =
+                new ConcurrentHashMap<>();
+
+        Ndjson(File dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public Trozo abrir(TablaSnapshot tabla, int numero) throws IOException {
+            dir.mkdirs();
+            ManifiestoShards.Shard shard = new ManifiestoShards.Shard(
+                    "%s-%05d.ndjson".formatted(tabla.getNombre(), numero));
+            File f = new File(dir, shard.getFichero());
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(f), 1 << 16);
+
+            return new Trozo() {
+                @Override
+                public void escribir(Object fila) throws IOException {
+                    byte[] linea = JsonIO.toLine(fila);
+                    out.write(linea);
+                    out.write('\n');
+                    shard.setBytes(shard.getBytes() + linea.length + 1);
+                    shard.setFilas(shard.getFilas() + 1);
+                }
+
+                @Override
+                public void cerrar() throws IOException {
+                    out.close();
+                    // Los trozos vacíos no dejan shard
+                    if (shard.getFilas() == 0) {
+                        f.delete();
+                        return;
+                    }
+                    shards.computeIfAbsent(tabla, t -> new ConcurrentSkipListMap<>()).put(numero, shard);
+                }
+
+                @Override
+                public void abortar() {
+                    try {
+                        out.close();
+                    } catch (IOException e) {
+                        // Se borra igualmente
+                    }
+                    f.delete();
+                }
+            };
+        }
+
+        @Override
+        public void terminar() throws IOException {
+            ManifiestoShards manifiesto = new ManifiestoShards();
+            long maxBytes = 0;
+
+            for (TablaSnapshot t : TablaSnapshot.values()) {
+                ManifiestoShards.TablaShards info = new ManifiestoShards.TablaShards(t.getNombre());
+                Map<Integer, ManifiestoShards.Shard> deTabla = shards.getOrDefault(t, new ConcurrentSkipListMap<>());
+                info.setShards(new ArrayList<>(deTabla.values()));
+                for (ManifiestoShards.Shard s : deTabla.values()) {
+                    info.setFilas(info.getFilas() + s.getFilas());
+                    maxBytes = Math.max(maxBytes, s.getBytes());
+                }
+                manifiesto.getTablas().add(info);
+            }
+            manifiesto.setMaxBytesPorShard(maxBytes);
+
+            // El último: si existe, todos los shards que enumera están completos
+            JsonIO.write(new File(dir, NdjsonShards.MANIFIESTO), manifiesto);
+        }
+    }
+}
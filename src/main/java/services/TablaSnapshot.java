@@ -0,0 +1,125 @@
+package services;
+
+import dao.*;
+import model.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tablas que forman una instantánea (AppData), con su nivel en el orden de FKs.
+ *
+ * Las tablas de un mismo nivel no dependen entre sí y se pueden cargar a la vez:
+ *  - nivel 0: cliente, producto
+ *  - nivel 1: detalle_cliente, pedido (requieren cliente)
+ *  - nivel 2: detalle_pedido (requiere pedido y producto)
+ */
+public enum TablaSnapshot {
+
+    CLIENTE("cliente", 0, Cliente.class),
+    PRODUCTO("producto", 0, Producto.class),
+    DETALLE_CLIENTE("detalle_cliente", 1, DetalleCliente.class),
+    PEDIDO("pedido", 1, Pedido.class),
+    DETALLE_PEDIDO("detalle_pedido", 2, DetallePedido.class);
+
+    private final String nombre;
+    private final int nivel;
+    private final Class<?> tipo;
+
+    TablaSnapshot(String nombre, int nivel, Class<?> tipo) {
+        this.nombre = nombre;
+        this.nivel = nivel;
+        this.tipo = tipo;
+    }
+
+    /** Nombre de la tabla en la BD. */
+    public String getNombre() { return nombre; }
+
+    /** Nivel en el orden de FKs (0 = sin dependencias). */
+    public int getNivel() { return nivel; }
+
+    /** Clase del modelo que representa una fila. */
+    public Class<?> getTipo() { return tipo; }
+
+    /** Filas de esta tabla dentro de la instantánea. */
+    public List<?> filas(AppData data) {
+        return switch (this) {
+            case CLIENTE -> data.getClientes();
+            case PRODUCTO -> data.getProductos();
+            case DETALLE_CLIENTE -> data.getDetallesCliente();
+            case PEDIDO -> data.getPedidos();
+            case DETALLE_PEDIDO -> data.getDetallesPedido();
+        };
+    }
+
+    /**
+     * Inserta un lote de filas de esta tabla con la conexión del llamador
+     * (usa el insertBatch del DAO correspondiente; no hace commit).
+     */
+    @SuppressWarnings("unchecked")
+    public void insertBatch(List<?> filas, Connection con) throws SQLException {
+        switch (this) {
+            case CLIENTE -> Daos.CLIENTE.insertBatch((List<Cliente>) filas, con);
+            case PRODUCTO -> Daos.PRODUCTO.insertBatch((List<Producto>) filas, con);
+            case DETALLE_CLIENTE -> Daos.DETALLE_CLIENTE.insertBatch((List<DetalleCliente>) filas, con);
+            case PEDIDO -> Daos.PEDIDO.insertBatch((List<Pedido>) filas, con);
+            case DETALLE_PEDIDO -> Daos.DETALLE_PEDIDO.insertBatch((List<DetallePedido>) filas, con);
+        }
+    }
+
+    /** Filtro de existencia de ids de esta tabla, o null si no tiene (detalle_pedido: PK compuesta). */
+    public ExistenciaIds existencia() {
+        return switch (this) {
+            case CLIENTE -> ExistenciaIds.CLIENTES;
+            case PRODUCTO -> ExistenciaIds.PRODUCTOS;
+            case DETALLE_CLIENTE -> ExistenciaIds.DETALLES_CLIENTE;
+            case PEDIDO -> ExistenciaIds.PEDIDOS;
+            case DETALLE_PEDIDO -> null;
+        };
+    }
+
+    /** Apunta en el filtro de existencia los ids de un lote ya confirmado. */
+    public void registrarInsertados(List<?> filas) {
+        ExistenciaIds e = existencia();
+        if (e == null) return;
+        for (Object o : filas) {
+            Integer id = switch (this) {
+                case CLIENTE -> ((Cliente) o).getId();
+                case PRODUCTO -> ((Producto) o).getId();
+                case DETALLE_CLIENTE -> ((DetalleCliente) o).getId();
+                case PEDIDO -> ((Pedido) o).getId();
+                case DETALLE_PEDIDO -> null;
+            };
+            if (id != null) e.agregar(id);
+        }
+    }
+
+    // Los DAO no tienen estado: una instancia compartida por tabla
+    private static final class Daos {
+        static final ClienteDAO CLIENTE = new ClienteDAO();
+        static final ProductoDAO PRODUCTO = new ProductoDAO();
+        static final DetalleClienteDAO DETALLE_CLIENTE = new DetalleClienteDAO();
+        static final PedidoDAO PEDIDO = new PedidoDAO();
+        static final DetallePedidoDAO DETALLE_PEDIDO = new DetallePedidoDAO();
+    }
+
+    /** Busca una tabla por su nombre en la BD. */
+    public static TablaSnapshot porNombre(String nombre) {
+        for (TablaSnapshot t : values()) {
+            if (t.nombre.equals(nombre)) return t;
+        }
+        throw new IllegalArgumentException("Tabla desconocida: " + nombre);
+    }
+
+    /** Tablas agrupadas por nivel, en el orden en que deben insertarse. */
+    public static List<List<TablaSnapshot>> porNiveles() {
+        List<List<TablaSnapshot>> niveles = new ArrayList<>();
+        for (TablaSnapshot t : values()) {
+            while (niveles.size() <= t.nivel) niveles.add(new ArrayList<>());
+            niveles.get(t.nivel).add(t);
+        }
+        return niveles;
+    }
+}
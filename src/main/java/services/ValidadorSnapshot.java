@@ -0,0 +1,177 @@
+package services;
+
+import model.*;
+import util.Hashing;
+import util.IntHashSet;
+import util.LongHashSet;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Validación en memoria de una instantánea AppData ANTES de tocar la BD.
+ *
+ * Detecta:
+ *  - ids nulos y claves primarias duplicadas (en todas las tablas)
+ *  - pares (pedido_id, producto_id) repetidos en detalle_pedido
+ *  - FKs rotas: pedido → cliente, detalle_cliente → cliente,
+ *    detalle_pedido → pedido y detalle_pedido → producto
+ *
+ * Cómo:
+ *  1) En paralelo, una tarea por tabla construye su conjunto de ids
+ *     (IntHashSet / LongHashSet, sin Integer) y anota los duplicados.
+ *  2) Con los conjuntos ya construidos (solo lectura), las FKs se comprueban
+ *     con streams paralelos sobre los índices de cada lista.
+ */
+public final class ValidadorSnapshot {
+
+    private ValidadorSnapshot() { }
+
+    /** Un problema concreto: tabla, posición de la fila en su lista y descripción. */
+    public record Incidencia(String tabla, int fila, String mensaje) {
+        @Override public String toString() {
+            return "%s[%d]: %s".formatted(tabla, fila, mensaje);
+        }
+    }
+
+    /** Resultado de la validación. */
+    public static class Informe {
+        private final List<Incidencia> incidencias;
+
+        Informe(List<Incidencia> incidencias) {
+            this.incidencias = incidencias;
+        }
+
+        public boolean esValido() { return incidencias.isEmpty(); }
+
+        public List<Incidencia> getIncidencias() { return incidencias; }
+
+        /** Imprime un resumen y como mucho 'max' incidencias. */
+        public void imprimir(PrintStream out, int max) {
+            if (esValido()) {
+                out.println("Validación OK: sin duplicados ni FKs rotas.");
+                return;
+            }
+            out.println("Validación con " + incidencias.size() + " incidencia(s):");
+            incidencias.stream().limit(max).forEach(i -> out.println("  " + i));
+            if (incidencias.size() > max) {
+                out.println("  ... y " + (incidencias.size() - max) + " más.");
+            }
+        }
+    }
+
+    public static Informe validar(AppData data) {
+        List<Cliente> clientes = data.getClientes();
+        List<Producto> productos = data.getProductos();
+        List<Pedido> pedidos = data.getPedidos();
+        List<DetalleCliente> detallesCliente = data.getDetallesCliente();
+        List<DetallePedido> detallesPedido = data.getDetallesPedido();
+
+        // ---------- 1) conjuntos de claves primarias, en paralelo ----------
+        Ids idsClientes = new Ids(clientes.size());
+        Ids idsProductos = new Ids(productos.size());
+        Ids idsPedidos = new Ids(pedidos.size());
+        Ids idsDetallesCliente = new Ids(detallesCliente.size());
+        List<Incidencia> paresDuplicados = new ArrayList<>();
+
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> idsClientes.cargar("cliente", clientes.size(), i -> clientes.get(i).getId())),
+                CompletableFuture.runAsync(() -> idsProductos.cargar("producto", productos.size(), i -> productos.get(i).getId())),
+                CompletableFuture.runAsync(() -> idsPedidos.cargar("pedido", pedidos.size(), i -> pedidos.get(i).getId())),
+                CompletableFuture.runAsync(() -> idsDetallesCliente.cargar("detalle_cliente", detallesCliente.size(), i -> detallesCliente.get(i).getId())),
+                CompletableFuture.runAsync(() -> paresDuplicados.addAll(paresRepetidos(detallesPedido)))
+        ).join();
+
+        List<Incidencia> out = new ArrayList<>();
+        out.addAll(idsClientes.incidencias);
+        out.addAll(idsProductos.incidencias);
+        out.addAll(idsPedidos.incidencias);
+        out.addAll(idsDetallesCliente.incidencias);
+        out.addAll(paresDuplicados);
+
+        // ---------- 2) claves ajenas, en paralelo sobre las filas ----------
+        out.addAll(comprobarFk("pedido", pedidos.size(), i -> {
+            Integer c = pedidos.get(i).getClienteId();
+            return c == null ? "cliente_id nulo"
+                    : idsClientes.ids.contains(c) ? null : "cliente_id " + c + " no existe";
+        }));
+
+        out.addAll(comprobarFk("detalle_cliente", detallesCliente.size(), i -> {
+            Integer id = detallesCliente.get(i).getId();
+            return id == null || idsClientes.ids.contains(id) ? null : "no existe el cliente " + id;
+        }));
+
+        out.addAll(comprobarFk("detalle_pedido", detallesPedido.size(), i -> {
+            DetallePedido dp = detallesPedido.get(i);
+            Integer pe = dp.getPedidoId();
+            Integer pr = dp.getProductoId();
+            String error = null;
+            if (pe == null) error = "pedido_id nulo";
+            else if (!idsPedidos.ids.contains(pe)) error = "pedido_id " + pe + " no existe";
+            if (pr == null) error = concatenar(error, "producto_id nulo");
+            else if (!idsProductos.ids.contains(pr)) error = concatenar(error, "producto_id " + pr + " no existe");
+            return error;
+        }));
+
+        return new Informe(out);
+    }
+
+    // =========================================================
+    // AUXILIARES
+    // =========================================================
+
+    /** Conjunto de ids de una tabla + incidencias encontradas al construirlo. */
+    private static final class Ids {
+        final IntHashSet ids;
+        final List<Incidencia> incidencias = new ArrayList<>();
+
+        Ids(int filas) {
+            ids = new IntHashSet(filas);
+        }
+
+        void cargar(String tabla, int filas, IntFunction<Integer> id) {
+            for (int i = 0; i < filas; i++) {
+                Integer v = id.apply(i);
+                if (v == null) {
+                    incidencias.add(new Incidencia(tabla, i, "id nulo"));
+                } else if (!ids.add(v)) {
+                    incidencias.add(new Incidencia(tabla, i, "id " + v + " duplicado"));
+                }
+            }
+        }
+    }
+
+    private static List<Incidencia> paresRepetidos(List<DetallePedido> lineas) {
+        List<Incidencia> out = new ArrayList<>();
+        LongHashSet pares = new LongHashSet(lineas.size());
+
+        for (int i = 0; i < lineas.size(); i++) {
+            DetallePedido dp = lineas.get(i);
+            if (dp.getPedidoId() == null || dp.getProductoId() == null) continue; // se informa como FK
+            if (!pares.add(Hashing.par(dp.getPedidoId(), dp.getProductoId()))) {
+                out.add(new Incidencia("detalle_pedido", i, "par (pedido_id=%d, producto_id=%d) duplicado"
+                        .formatted(dp.getPedidoId(), dp.getProductoId())));
+            }
+        }
+        return out;
+    }
+
+    private static List<Incidencia> comprobarFk(String tabla, int filas, IntFunction<String> comprobar) {
+        return IntStream.range(0, filas).parallel()
+                .mapToObj(i -> {
+                    String error = comprobar.apply(i);
+                    return error == null ? null : new Incidencia(tabla, i, error);
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static String concatenar(String a, String b) {
+        return a == null ? b : a + "; " + b;
+    }
+}
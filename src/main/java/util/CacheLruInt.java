@@ -0,0 +1,118 @@
+package util;
+
+/**
+ * Caché de claves int con tamaño máximo que descarta la usada hace más tiempo (LRU).
+ *
+ * Es lo que da un LinkedHashMap<Integer, V> en orden de acceso con
+ * removeEldestEntry, pero sin "boxing" de la clave: las entradas están en
+ * un IntHashMap y el orden de uso, en una lista doblemente enlazada de sus
+ * nodos (el más reciente al principio).
+ *
+ * - get() cuenta como uso; containsKey() no.
+ * - Los valores no pueden ser null (como en IntHashMap).
+ * - No es thread-safe.
+ */
+public class CacheLruInt<V> {
+
+    private static final class Nodo<V> {
+        final int clave;
+        V valor;
+        Nodo<V> anterior;
+        Nodo<V> siguiente;
+
+        Nodo(int clave, V valor) {
+            this.clave = clave;
+            this.valor = valor;
+        }
+    }
+
+    private final int maxEntradas;
+    private final IntHashMap<Nodo<V>> nodos;
+
+    // Centinela de la lista circular: siguiente = más reciente, anterior = menos reciente
+    private final Nodo<V> centinela = new Nodo<>(0, null);
+
+    public CacheLruInt(int maxEntradas) {
+        if (maxEntradas <= 0) throw new IllegalArgumentException("maxEntradas debe ser > 0: " + maxEntradas);
+        this.maxEntradas = maxEntradas;
+        this.nodos = new IntHashMap<>(maxEntradas + 1);
+        centinela.anterior = centinela;
+        centinela.siguiente = centinela;
+    }
+
+    /** Valor de la clave, o null si no está. Lo marca como el más reciente. */
+    public V get(int clave) {
+        Nodo<V> n = nodos.get(clave);
+        if (n == null) return null;
+        alPrincipio(n);
+        return n.valor;
+    }
+
+    /** Si la clave está, sin cambiar el orden de uso. */
+    public boolean containsKey(int clave) {
+        return nodos.containsKey(clave);
+    }
+
+    /**
+     * Guarda el valor como el más reciente. Si con él se pasa de maxEntradas,
+     * se descarta el menos reciente. Devuelve el valor anterior o null.
+     */
+    public V put(int clave, V valor) {
+        if (valor == null) throw new NullPointerException("valor");
+        Nodo<V> n = nodos.get(clave);
+        if (n != null) {
+            V anterior = n.valor;
+            n.valor = valor;
+            alPrincipio(n);
+            return anterior;
+        }
+
+        n = new Nodo<>(clave, valor);
+        nodos.put(clave, n);
+        enlazarAlPrincipio(n);
+        if (nodos.size() > maxEntradas) {
+            Nodo<V> viejo = centinela.anterior;
+            desenlazar(viejo);
+            nodos.remove(viejo.clave);
+        }
+        return null;
+    }
+
+    /** Quita la clave. Devuelve el valor que tenía o null. */
+    public V remove(int clave) {
+        Nodo<V> n = nodos.remove(clave);
+        if (n == null) return null;
+        desenlazar(n);
+        return n.valor;
+    }
+
+    public int size() {
+        return nodos.size();
+    }
+
+    public void clear() {
+        nodos.clear();
+        centinela.anterior = centinela;
+        centinela.siguiente = centinela;
+    }
+
+    private void alPrincipio(Nodo<V> n) {
+        if (centinela.siguiente == n) return;
+        desenlazar(n);
+        enlazarAlPrincipio(n);
+    }
+
+    private void enlazarAlPrincipio(Nodo<V> n) {
+        n.anterior = centinela;
+        n.siguiente = centinela.siguiente;
+        centinela.siguiente.anterior = n;
+        centinela.siguiente = n;
+    }
+
+    private static <V> void desenlazar(Nodo<V> n) {
+        n.anterior.siguiente = n.siguiente;
+        n.siguiente.anterior = n.anterior;
+        n.anterior = null;
+        n.siguiente = null;
+    }
+}
@@ -0,0 +1,158 @@
+package util;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntFunction;
+
+/**
+ * Versión concurrente de IntHashMap: bloqueo por segmentos ("lock striping").
+ *
+ * Las claves se reparten entre N segmentos (potencia de dos) según los bits
+ * altos de su hash; cada segmento es un IntHashMap con su propio cerrojo de
+ * lectura/escritura. Lecturas de segmentos distintos no compiten entre sí,
+ * y varias lecturas del mismo segmento tampoco.
+ *
+ * size() y forEach() recorren los segmentos de uno en uno: el resultado es
+ * coherente por segmento, pero no una foto exacta de todo el mapa.
+ */
+public class ConcurrentIntHashMap<V> {
+
+    private final Segmento<V>[] segmentos;
+    private final int desplazamiento;
+
+    private static final class Segmento<V> {
+        final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+        final IntHashMap<V> mapa;
+
+        Segmento(int capacidad) {
+            mapa = new IntHashMap<>(capacidad);
+        }
+    }
+
+    public ConcurrentIntHashMap() {
+        this(16, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * @param capacidadEsperada número de entradas previsto en total
+     * @param concurrencia      hilos que se espera que escriban a la vez (se redondea a potencia de dos)
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentIntHashMap(int capacidadEsperada, int concurrencia) {
+        int n = Integer.highestOneBit(Math.max(1, Math.min(concurrencia, 1 << 16)) * 2 - 1);
+        // new Segmento<V>[n] no es válido en Java: array de comodín y conversión (sin tipos "raw")
+        segmentos = (Segmento<V>[]) new Segmento<?>[n];
+        for (int i = 0; i < n; i++) {
+            segmentos[i] = new Segmento<>(Math.max(16, capacidadEsperada / n));
+        }
+        desplazamiento = 32 - Integer.numberOfTrailingZeros(n);
+    }
+
+    private Segmento<V> segmento(int clave) {
+        // Bits altos del hash: IntHashMap usa los bajos para la posición dentro del segmento
+        return desplazamiento == 32 ? segmentos[0] : segmentos[Hashing.mezclar(clave) >>> desplazamiento];
+    }
+
+    public V get(int clave) {
+        Segmento<V> s = segmento(clave);
+        s.cerrojo.readLock().lock();
+        try {
+            return s.mapa.get(clave);
+        } finally {
+            s.cerrojo.readLock().unlock();
+        }
+    }
+
+    public boolean containsKey(int clave) {
+        return get(clave) != null;
+    }
+
+    public V put(int clave, V valor) {
+        Segmento<V> s = segmento(clave);
+        s.cerrojo.writeLock().lock();
+        try {
+            return s.mapa.put(clave, valor);
+        } finally {
+            s.cerrojo.writeLock().unlock();
+        }
+    }
+
+    /** Guarda el valor solo si la clave no estaba. Devuelve el valor previo o null. */
+    public V putIfAbsent(int clave, V valor) {
+        Segmento<V> s = segmento(clave);
+        s.cerrojo.writeLock().lock();
+        try {
+            V actual = s.mapa.get(clave);
+            if (actual == null) s.mapa.put(clave, valor);
+            return actual;
+        } finally {
+            s.cerrojo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve el valor de la clave o lo crea de forma atómica.
+     * 'crear' se ejecuta con el segmento bloqueado: debe ser rápido y no tocar este mapa.
+     */
+    public V computeIfAbsent(int clave, IntFunction<? extends V> crear) {
+        V v = get(clave);
+        if (v != null) return v;
+
+        Segmento<V> s = segmento(clave);
+        s.cerrojo.writeLock().lock();
+        try {
+            return s.mapa.computeIfAbsent(clave, crear);
+        } finally {
+            s.cerrojo.writeLock().unlock();
+        }
+    }
+
+    public V remove(int clave) {
+        Segmento<V> s = segmento(clave);
+        s.cerrojo.writeLock().lock();
+        try {
+            return s.mapa.remove(clave);
+        } finally {
+            s.cerrojo.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        int total = 0;
+        for (Segmento<V> s : segmentos) {
+            s.cerrojo.readLock().lock();
+            try {
+                total += s.mapa.size();
+            } finally {
+                s.cerrojo.readLock().unlock();
+            }
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        for (Segmento<V> s : segmentos) {
+            s.cerrojo.writeLock().lock();
+            try {
+                s.mapa.clear();
+            } finally {
+                s.cerrojo.writeLock().unlock();
+            }
+        }
+    }
+
+    /** Recorre las entradas segmento a segmento (cada uno bloqueado en lectura mientras se recorre). */
+    public void forEach(IntHashMap.Visitante<? super V> visitante) {
+        for (Segmento<V> s : segmentos) {
+            s.cerrojo.readLock().lock();
+            try {
+                s.mapa.forEach(visitante);
+            } finally {
+                s.cerrojo.readLock().unlock();
+            }
+        }
+    }
+}
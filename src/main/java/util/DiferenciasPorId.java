@@ -0,0 +1,139 @@
+package util;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Diferencia entre dos listas de elementos con id, expresada como las
+ * operaciones mínimas para pasar de una a otra: quitar tramos, insertar
+ * tramos y actualizar en su sitio (mismo id, contenido distinto).
+ *
+ * Los elementos que siguen en la lista nueva se quedan donde están siempre
+ * que sea posible: se conserva la subsecuencia creciente más larga de sus
+ * posiciones nuevas, y solo los demás se mueven (quitar + insertar).
+ *
+ * Coste O(n log n), sin comparar contenidos más que de los que se conservan.
+ * Así, quien aplica el cambio (p. ej. una ObservableList de una TableView)
+ * solo repinta lo que ha cambiado y mantiene scroll y selección.
+ */
+public final class DiferenciasPorId {
+
+    /**
+     * Recibe las operaciones en orden. Los índices son los de la lista que se
+     * va transformando (tras aplicar las operaciones anteriores).
+     */
+    public interface Destino<T> {
+        void quitar(int desde, List<T> quitados);
+
+        void insertar(int desde, List<T> nuevos);
+
+        void actualizar(int indice, T antes, T despues);
+    }
+
+    private DiferenciasPorId() { }
+
+    /**
+     * Transforma 'lista' en 'nuevos' con operaciones sobre ella misma
+     * (remove/addAll/set): en una ObservableList, un evento por tramo.
+     *
+     * @return número de elementos quitados, insertados o actualizados
+     */
+    public static <T> int aplicar(List<T> lista, List<T> nuevos, Function<? super T, ?> id,
+                                  BiPredicate<? super T, ? super T> mismoContenido) {
+        return calcular(List.copyOf(lista), nuevos, id, mismoContenido, new Destino<>() {
+            @Override
+            public void quitar(int desde, List<T> quitados) {
+                lista.subList(desde, desde + quitados.size()).clear();
+            }
+
+            @Override
+            public void insertar(int desde, List<T> insertados) {
+                lista.addAll(desde, insertados);
+            }
+
+            @Override
+            public void actualizar(int indice, T antes, T despues) {
+                lista.set(indice, despues);
+            }
+        });
+    }
+
+    /**
+     * Calcula la diferencia y la entrega a 'destino'.
+     * Los ids deben ser únicos dentro de cada lista.
+     *
+     * @return número de elementos quitados, insertados o actualizados
+     */
+    public static <T> int calcular(List<T> antes, List<T> despues, Function<? super T, ?> id,
+                                   BiPredicate<? super T, ? super T> mismoContenido, Destino<T> destino) {
+        int na = antes.size(), nd = despues.size();
+
+        Map<Object, Integer> posNueva = new HashMap<>(nd * 2);
+        for (int j = 0; j < nd; j++) posNueva.put(id.apply(despues.get(j)), j);
+
+        // Posición en 'despues' de cada elemento de 'antes' (-1 = ya no está)
+        int[] destinoDe = new int[na];
+        for (int i = 0; i < na; i++) {
+            Integer j = posNueva.get(id.apply(antes.get(i)));
+            destinoDe[i] = j != null ? j : -1;
+        }
+        boolean[] conservar = subsecuenciaCreciente(destinoDe);
+
+        int cambios = 0;
+        int pos = 0, i = 0, j = 0;
+        while (i < na || j < nd) {
+            if (i < na && !conservar[i]) {
+                int fin = i;
+                while (fin < na && !conservar[fin]) fin++;
+                destino.quitar(pos, antes.subList(i, fin));
+                cambios += fin - i;
+                i = fin;
+            } else if (j < nd && (i == na || destinoDe[i] != j)) {
+                // Hasta la posición del siguiente que se conserva, todo es nuevo
+                int fin = i == na ? nd : destinoDe[i];
+                destino.insertar(pos, despues.subList(j, fin));
+                cambios += fin - j;
+                pos += fin - j;
+                j = fin;
+            } else {
+                T a = antes.get(i), d = despues.get(j);
+                if (a != d && !mismoContenido.test(a, d)) {
+                    destino.actualizar(pos, a, d);
+                    cambios++;
+                }
+                pos++;
+                i++;
+                j++;
+            }
+        }
+        return cambios;
+    }
+
+    /**
+     * Marca una subsecuencia estrictamente creciente de longitud máxima entre
+     * los valores >= 0 (patience sorting, O(n log n)).
+     */
+    private static boolean[] subsecuenciaCreciente(int[] v) {
+        int n = v.length;
+        int[] colas = new int[n];      // índice del menor final para cada longitud
+        int[] anterior = new int[n];
+        int largo = 0;
+
+        for (int i = 0; i < n; i++) {
+            if (v[i] < 0) continue;
+            int lo = 0, hi = largo;
+            while (lo < hi) {
+                int m = (lo + hi) >>> 1;
+                if (v[colas[m]] < v[i]) lo = m + 1; else hi = m;
+            }
+            anterior[i] = lo > 0 ? colas[lo - 1] : -1;
+            colas[lo] = i;
+            if (lo == largo) largo++;
+        }
+
+        boolean[] marcados = new boolean[n];
+        for (int k = largo == 0 ? -1 : colas[largo - 1]; k >= 0; k = anterior[k]) marcados[k] = true;
+        return marcados;
+    }
+}
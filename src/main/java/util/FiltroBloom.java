@@ -0,0 +1,75 @@
+package util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom para claves int: responde "seguro que no está" o
+ * "puede que esté", en memoria fija y sin guardar las claves.
+ *
+ * - m bits en un AtomicLongArray y k posiciones por clave, sacadas de dos
+ *   hashes (h1 + i*h2, "doble hashing").
+ * - Sin falsos negativos: si se añadió, puedeContener() siempre da true.
+ * - Falsos positivos con la tasa pedida mientras no se pase de
+ *   'elementosEsperados'; a partir de ahí la tasa va subiendo.
+ * - No admite borrar.
+ * - Thread-safe: agregar() marca los bits con CAS, las consultas no bloquean.
+ */
+public class FiltroBloom {
+
+    private final AtomicLongArray bits;
+    private final long numBits;
+    private final int numHashes;
+
+    /**
+     * @param elementosEsperados  claves que se prevé añadir
+     * @param tasaFalsosPositivos probabilidad de "puede que esté" para una clave ausente (0..1)
+     */
+    public FiltroBloom(int elementosEsperados, double tasaFalsosPositivos) {
+        if (!(tasaFalsosPositivos > 0 && tasaFalsosPositivos < 1)) {
+            throw new IllegalArgumentException("tasaFalsosPositivos debe estar entre 0 y 1: " + tasaFalsosPositivos);
+        }
+        long n = Math.max(1, elementosEsperados);
+        double ln2 = Math.log(2);
+
+        // Fórmulas clásicas: m = -n ln p / (ln 2)^2 ; k = m/n ln 2
+        long m = (long) Math.ceil(-n * Math.log(tasaFalsosPositivos) / (ln2 * ln2));
+        int palabras = (int) Math.max(1, Math.min((m + 63) >>> 6, Integer.MAX_VALUE - 8));
+        bits = new AtomicLongArray(palabras);
+        numBits = (long) palabras << 6;
+        numHashes = Math.max(1, (int) Math.round((double) numBits / n * ln2));
+    }
+
+    /** Añade la clave. */
+    public void agregar(int clave) {
+        long h1 = Hashing.mezclar(clave) & 0xffffffffL;
+        long h2 = Hashing.mezclar((long) clave) | 1;   // impar: recorre posiciones distintas
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            int palabra = (int) (bit >>> 6);
+            long mascara = 1L << bit;
+            long actual = bits.get(palabra);
+            while ((actual & mascara) == 0 && !bits.compareAndSet(palabra, actual, actual | mascara)) {
+                actual = bits.get(palabra);
+            }
+        }
+    }
+
+    /** false = seguro que no se añadió; true = puede que sí. */
+    public boolean puedeContener(int clave) {
+        long h1 = Hashing.mezclar(clave) & 0xffffffffL;
+        long h2 = Hashing.mezclar((long) clave) | 1;
+        for (int i = 0; i < numHashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, numBits);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    public long numBits() {
+        return numBits;
+    }
+
+    public int numHashes() {
+        return numHashes;
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+/**
+ * Funciones de hash y tamaño compartidas por las colecciones primitivas.
+ */
+public final class Hashing {
+
+    private static final int CAPACIDAD_MAXIMA = 1 << 30;
+
+    private Hashing() { }
+
+    /**
+     * Mezcla los bits de un int (finalizador de MurmurHash3).
+     * Los ids suelen ser consecutivos; sin mezclar, con sondeo lineal
+     * se formarían racimos largos.
+     */
+    public static int mezclar(int x) {
+        x ^= x >>> 16;
+        x *= 0x85ebca6b;
+        x ^= x >>> 13;
+        x *= 0xc2b2ae35;
+        x ^= x >>> 16;
+        return x;
+    }
+
+    /** Mezcla los bits de un long y los reduce a int (finalizador de MurmurHash3, 64 bits). */
+    public static int mezclar(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return (int) x;
+    }
+
+    /** Empaqueta dos int en un long (a en los 32 bits altos, b en los bajos). */
+    public static long par(int a, int b) {
+        return ((long) a << 32) | (b & 0xffffffffL);
+    }
+
+    /** Potencia de dos suficiente para 'elementos' sin pasar del factor de carga. */
+    static int capacidadPara(int elementos, float cargaMaxima) {
+        long necesaria = (long) Math.ceil(Math.max(elementos, 2) / cargaMaxima) + 1;
+        if (necesaria >= CAPACIDAD_MAXIMA) return CAPACIDAD_MAXIMA;
+        return Integer.highestOneBit((int) necesaria - 1) << 1;
+    }
+}
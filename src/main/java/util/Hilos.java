@@ -0,0 +1,34 @@
+package util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Ejecutores para tareas que pasan casi todo el tiempo esperando (BD, red).
+ */
+public final class Hilos {
+
+    private Hilos() { }
+
+    /**
+     * Un hilo virtual por tarea si la JVM los tiene (Java 21+; se busca por
+     * reflexión porque el proyecto compila para Java 17). Si no, un pool fijo
+     * de 'hilosSiNoHay' hilos.
+     */
+    public static ExecutorService unoPorTarea(int hilosSiNoHay) {
+        return unoPorTarea(() -> {
+            System.err.println("Sin hilos virtuales (Java < 21): pool de " + hilosSiNoHay + " hilos");
+            return Executors.newFixedThreadPool(hilosSiNoHay);
+        });
+    }
+
+    /** Como unoPorTarea(int), con el ejecutor que se quiera si no hay hilos virtuales. */
+    public static ExecutorService unoPorTarea(Supplier<ExecutorService> siNoHay) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return siNoHay.get();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package util;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Mapa int → V sin "boxing" de la clave: direccionamiento abierto con
+ * sondeo lineal sobre un int[] de claves y un Object[] de valores.
+ *
+ * Frente a HashMap<Integer, V> no crea un Integer ni un nodo por entrada.
+ *
+ * - Los valores no pueden ser null (get devuelve null = "no está").
+ * - El 0 marca hueco libre; la clave 0 se guarda aparte.
+ * - El borrado desplaza hacia atrás las entradas siguientes, sin "lápidas".
+ * - No es thread-safe: quien lo comparta entre hilos lo protege por fuera
+ *   (p. ej. IndiceTrigramas, con un cerrojo de lectura/escritura) o usa
+ *   ConcurrentIntHashMap (cerrojos por segmento).
+ */
+public class IntHashMap<V> {
+
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    /** Recibe cada entrada en forEach. */
+    @FunctionalInterface
+    public interface Visitante<V> {
+        void visitar(int clave, V valor);
+    }
+
+    private int[] claves;
+    private Object[] valores;
+    private int mascara;
+    private int tamano;
+    private int umbral;
+    private V valorCero;
+
+    public IntHashMap() {
+        this(16);
+    }
+
+    /** @param capacidadEsperada número de entradas previsto (evita redimensionar) */
+    public IntHashMap(int capacidadEsperada) {
+        iniciar(Hashing.capacidadPara(capacidadEsperada, CARGA_MAXIMA));
+    }
+
+    private void iniciar(int cap) {
+        claves = new int[cap];
+        valores = new Object[cap];
+        mascara = cap - 1;
+        umbral = (int) (cap * CARGA_MAXIMA);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int clave) {
+        if (clave == 0) return valorCero;
+
+        int i = Hashing.mezclar(clave) & mascara;
+        while (claves[i] != 0) {
+            if (claves[i] == clave) return (V) valores[i];
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int clave) {
+        return get(clave) != null;
+    }
+
+    /** Asocia el valor a la clave. Devuelve el valor anterior o null. */
+    @SuppressWarnings("unchecked")
+    public V put(int clave, V valor) {
+        if (valor == null) {
+            throw new NullPointerException("IntHashMap no admite valores null");
+        }
+        if (clave == 0) {
+            V anterior = valorCero;
+            if (anterior == null) tamano++;
+            valorCero = valor;
+            return anterior;
+        }
+
+        int i = Hashing.mezclar(clave) & mascara;
+        while (claves[i] != 0) {
+            if (claves[i] == clave) {
+                V anterior = (V) valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+        if (++tamano >= umbral) redimensionar();
+        return null;
+    }
+
+    /** Devuelve el valor de la clave; si no está, lo crea con 'crear' y lo guarda. */
+    public V computeIfAbsent(int clave, IntFunction<? extends V> crear) {
+        V v = get(clave);
+        if (v == null) {
+            v = crear.apply(clave);
+            if (v != null) put(clave, v);
+        }
+        return v;
+    }
+
+    /** Quita la clave. Devuelve el valor que tenía o null. */
+    @SuppressWarnings("unchecked")
+    public V remove(int clave) {
+        if (clave == 0) {
+            V anterior = valorCero;
+            if (anterior != null) tamano--;
+            valorCero = null;
+            return anterior;
+        }
+
+        int i = Hashing.mezclar(clave) & mascara;
+        while (claves[i] != clave) {
+            if (claves[i] == 0) return null;
+            i = (i + 1) & mascara;
+        }
+        V anterior = (V) valores[i];
+        tamano--;
+
+        // Desplazamiento hacia atrás: cada entrada siguiente del racimo que pueda
+        // ocupar el hueco (porque su posición ideal no cae entre el hueco y ella) se mueve.
+        int hueco = i;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (claves[j] == 0) break;
+            int ideal = Hashing.mezclar(claves[j]) & mascara;
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                claves[hueco] = claves[j];
+                valores[hueco] = valores[j];
+                hueco = j;
+            }
+        }
+        claves[hueco] = 0;
+        valores[hueco] = null;
+        return anterior;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(claves, 0);
+        Arrays.fill(valores, null);
+        valorCero = null;
+        tamano = 0;
+    }
+
+    /** Recorre todas las entradas, en orden indeterminado. */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitante<? super V> visitante) {
+        if (valorCero != null) visitante.visitar(0, valorCero);
+        for (int i = 0; i < claves.length; i++) {
+            if (claves[i] != 0) visitante.visitar(claves[i], (V) valores[i]);
+        }
+    }
+
+    private void redimensionar() {
+        int[] viejasClaves = claves;
+        Object[] viejosValores = valores;
+        iniciar(viejasClaves.length * 2);
+
+        for (int k = 0; k < viejasClaves.length; k++) {
+            int c = viejasClaves[k];
+            if (c == 0) continue;
+            int i = Hashing.mezclar(c) & mascara;
+            while (claves[i] != 0) i = (i + 1) & mascara;
+            claves[i] = c;
+            valores[i] = viejosValores[k];
+        }
+    }
+}
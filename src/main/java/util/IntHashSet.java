@@ -0,0 +1,103 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de int sin "boxing": direccionamiento abierto con sondeo lineal
+ * sobre un único int[].
+ *
+ * - El 0 marca hueco libre; si se añade la clave 0 se guarda aparte.
+ * - No es thread-safe: se construye desde un hilo y, una vez publicado
+ *   (join, Future.get...), se puede consultar desde varios a la vez.
+ */
+public class IntHashSet {
+
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private int[] claves;
+    private int mascara;
+    private int tamano;
+    private boolean tieneCero;
+    private int umbral;
+
+    public IntHashSet() {
+        this(16);
+    }
+
+    /** @param capacidadEsperada número de elementos previsto (evita redimensionar) */
+    public IntHashSet(int capacidadEsperada) {
+        int cap = Hashing.capacidadPara(capacidadEsperada, CARGA_MAXIMA);
+        claves = new int[cap];
+        mascara = cap - 1;
+        umbral = (int) (cap * CARGA_MAXIMA);
+    }
+
+    /** Añade la clave. Devuelve false si ya estaba. */
+    public boolean add(int clave) {
+        if (clave == 0) {
+            if (tieneCero) return false;
+            tieneCero = true;
+            tamano++;
+            return true;
+        }
+
+        int i = Hashing.mezclar(clave) & mascara;
+        while (claves[i] != 0) {
+            if (claves[i] == clave) return false;
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        if (++tamano >= umbral) redimensionar();
+        return true;
+    }
+
+    public boolean contains(int clave) {
+        if (clave == 0) return tieneCero;
+
+        int i = Hashing.mezclar(clave) & mascara;
+        while (claves[i] != 0) {
+            if (claves[i] == clave) return true;
+            i = (i + 1) & mascara;
+        }
+        return false;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    /** Copia de las claves, en orden indeterminado. */
+    public int[] toArray() {
+        int[] out = new int[tamano];
+        int n = 0;
+        if (tieneCero) out[n++] = 0;
+        for (int c : claves) {
+            if (c != 0) out[n++] = c;
+        }
+        return out;
+    }
+
+    public void clear() {
+        Arrays.fill(claves, 0);
+        tieneCero = false;
+        tamano = 0;
+    }
+
+    private void redimensionar() {
+        int[] viejas = claves;
+        claves = new int[viejas.length * 2];
+        mascara = claves.length - 1;
+        umbral = (int) (claves.length * CARGA_MAXIMA);
+
+        for (int c : viejas) {
+            if (c == 0) continue;
+            int i = Hashing.mezclar(c) & mascara;
+            while (claves[i] != 0) i = (i + 1) & mascara;
+            claves[i] = c;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de long sin "boxing". Misma estructura que IntHashSet.
+ *
+ * Útil para claves compuestas de dos int, por ejemplo (pedido_id, producto_id)
+ * empaquetados con Hashing.par(a, b).
+ */
+public class LongHashSet {
+
+    private static final float CARGA_MAXIMA = 0.6f;
+
+    private long[] claves;
+    private int mascara;
+    private int tamano;
+    private boolean tieneCero;
+    private int umbral;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /** @param capacidadEsperada número de elementos previsto (evita redimensionar) */
+    public LongHashSet(int capacidadEsperada) {
+        int cap = Hashing.capacidadPara(capacidadEsperada, CARGA_MAXIMA);
+        claves = new long[cap];
+        mascara = cap - 1;
+        umbral = (int) (cap * CARGA_MAXIMA);
+    }
+
+    /** Añade la clave. Devuelve false si ya estaba. */
+    public boolean add(long clave) {
+        if (clave == 0) {
+            if (tieneCero) return false;
+            tieneCero = true;
+            tamano++;
+            return true;
+        }
+
+        int i = Hashing.mezclar(clave) & mascara;
+        while (claves[i] != 0) {
+            if (claves[i] == clave) return false;
+            i = (i + 1) & mascara;
+        }
+        claves[i] = clave;
+        if (++tamano >= umbral) redimensionar();
+        return true;
+    }
+
+    public boolean contains(long clave) {
+        if (clave == 0) return tieneCero;
+
+        int i = Hashing.mezclar(clave) & mascara;
+        while (claves[i] != 0) {
+            if (claves[i] == clave) return true;
+            i = (i + 1) & mascara;
+        }
+        return false;
+    }
+
+    public int size() {
+        return tamano;
+    }
+
+    public boolean isEmpty() {
+        return tamano == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(claves, 0);
+        tieneCero = false;
+        tamano = 0;
+    }
+
+    private void redimensionar() {
+        long[] viejas = claves;
+        claves = new long[viejas.length * 2];
+        mascara = claves.length - 1;
+        umbral = (int) (claves.length * CARGA_MAXIMA);
+
+        for (long c : viejas) {
+            if (c == 0) continue;
+            int i = Hashing.mezclar(c) & mascara;
+            while (claves[i] != 0) i = (i + 1) & mascara;
+            claves[i] = c;
+        }
+    }
+}
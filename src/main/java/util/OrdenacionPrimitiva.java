@@ -0,0 +1,78 @@
+package util;
+
+/**
+ * Ordenación de arrays primitivos que arrastra un array "satélite".
+ *
+ * Arrays.sort no permite ordenar un int[] de índices por una clave sin
+ * pasar a Integer[] + Comparator; aquí se ordenan las claves (long) y se
+ * aplican los mismos intercambios a los valores (int), sin crear objetos.
+ */
+public final class OrdenacionPrimitiva {
+
+    // Por debajo de este tamaño la inserción directa es más rápida
+    private static final int UMBRAL_INSERCION = 24;
+
+    private OrdenacionPrimitiva() { }
+
+    /**
+     * Ordena 'claves' ascendentemente y reordena 'valores' igual.
+     * No es estable. Quicksort con mediana de tres; la recursión va
+     * siempre por la parte pequeña, así que la pila es O(log n).
+     */
+    public static void ordenar(long[] claves, int[] valores) {
+        if (claves.length != valores.length) {
+            throw new IllegalArgumentException("claves y valores deben tener la misma longitud");
+        }
+        ordenar(claves, valores, 0, claves.length - 1);
+    }
+
+    private static void ordenar(long[] k, int[] v, int lo, int hi) {
+        while (hi - lo > UMBRAL_INSERCION) {
+            int medio = (lo + hi) >>> 1;
+            if (k[medio] < k[lo]) intercambiar(k, v, medio, lo);
+            if (k[hi] < k[lo]) intercambiar(k, v, hi, lo);
+            if (k[hi] < k[medio]) intercambiar(k, v, hi, medio);
+            long pivote = k[medio];
+
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (k[i] < pivote) i++;
+                while (k[j] > pivote) j--;
+                if (i <= j) {
+                    intercambiar(k, v, i, j);
+                    i++;
+                    j--;
+                }
+            }
+
+            if (j - lo < hi - i) {
+                ordenar(k, v, lo, j);
+                lo = i;
+            } else {
+                ordenar(k, v, i, hi);
+                hi = j;
+            }
+        }
+        insercion(k, v, lo, hi);
+    }
+
+    private static void insercion(long[] k, int[] v, int lo, int hi) {
+        for (int i = lo + 1; i <= hi; i++) {
+            long clave = k[i];
+            int valor = v[i];
+            int j = i - 1;
+            while (j >= lo && k[j] > clave) {
+                k[j + 1] = k[j];
+                v[j + 1] = v[j];
+                j--;
+            }
+            k[j + 1] = clave;
+            v[j + 1] = valor;
+        }
+    }
+
+    private static void intercambiar(long[] k, int[] v, int a, int b) {
+        long tk = k[a]; k[a] = k[b]; k[b] = tk;
+        int tv = v[a]; v[a] = v[b]; v[b] = tv;
+    }
+}
@@ -0,0 +1,81 @@
+package util;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Muestreo de una distribución de Zipf en 1..n: P(k) ∝ 1 / k^s.
+ *
+ * Método de "rechazo-inversión" (Hörmann y Derflinger, 1996): O(1) por
+ * muestra y sin tablas, así que sirve igual para n = 100 que para
+ * n = 100 millones. Con s ≈ 1, unos pocos valores se llevan la mayoría de
+ * las muestras (productos más vendidos, clientes que más compran).
+ *
+ * Es inmutable: se puede compartir entre hilos, cada uno con su generador.
+ */
+public final class Zipf {
+
+    private final int n;
+    private final double s;
+    private final double hIntegralX1;
+    private final double hIntegralN;
+    private final double umbral;
+
+    /**
+     * @param n número de valores (1..n)
+     * @param s exponente (&gt; 0); cuanto mayor, más concentrado en los primeros
+     */
+    public Zipf(int n, double s) {
+        if (n <= 0) throw new IllegalArgumentException("n debe ser > 0: " + n);
+        if (!(s > 0)) throw new IllegalArgumentException("s debe ser > 0: " + s);
+        this.n = n;
+        this.s = s;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralN = hIntegral(n + 0.5);
+        this.umbral = 2.0 - hIntegralInversa(hIntegral(2.5) - h(2));
+    }
+
+    /** Un valor en 1..n (el 1 es el más probable). */
+    public int muestra(RandomGenerator rnd) {
+        while (true) {
+            double u = hIntegralN + rnd.nextDouble() * (hIntegralX1 - hIntegralN);
+            double x = hIntegralInversa(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) k = 1;
+            else if (k > n) k = n;
+
+            // Casi siempre se acepta a la primera
+            if (k - x <= umbral || u >= hIntegral(k + 0.5) - h(k)) return k;
+        }
+    }
+
+    public int getN() {
+        return n;
+    }
+
+    // h(x) = 1/x^s y su integral H(x), con H y su inversa estables cerca de s = 1
+
+    private double h(double x) {
+        return Math.exp(-s * Math.log(x));
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return auxiliar2((1.0 - s) * logX) * logX;
+    }
+
+    private double hIntegralInversa(double x) {
+        double t = x * (1.0 - s);
+        if (t < -1.0) t = -1.0;   // por redondeo
+        return Math.exp(auxiliar1(t) * x);
+    }
+
+    /** log(1 + x) / x, estable cerca de 0. */
+    private static double auxiliar1(double x) {
+        return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    /** (exp(x) - 1) / x, estable cerca de 0. */
+    private static double auxiliar2(double x) {
+        return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+    }
+}